@@ -0,0 +1,266 @@
+package chess;
+
+/**
+ * Computes the spaces each kind of chess piece attacks, as bitboards (see
+ * {@link Bitboard}). A piece attacks a space if it could capture an enemy
+ * piece there, ignoring whether doing so would leave its own king in check.
+ * The attacks of Knights, Kings and Pawns don't depend on the other pieces,
+ * so they are worked out once for every space and looked up after that.
+ * Rooks, Bishops and Queens are looked up in {@link MagicBitboards}. The
+ * spaces between and through any two spaces in line are kept too, for
+ * working out pins and blocking checks.
+ */
+public final class Attacks {
+
+    /**
+     * Row and column steps a Knight can make.
+     */
+    private static final int[][] KNIGHT_STEPS = {
+        {  2,  1 }, {  2, -1 }, { -2,  1 }, { -2, -1 },
+        {  1,  2 }, {  1, -2 }, { -1,  2 }, { -1, -2 }
+    };
+
+    /**
+     * Row and column steps a King can make.
+     */
+    private static final int[][] KING_STEPS = {
+        {  1, -1 }, {  1, 0 }, {  1, 1 },
+        {  0, -1 },            {  0, 1 },
+        { -1, -1 }, { -1, 0 }, { -1, 1 }
+    };
+
+    /**
+     * Row and column directions a Rook slides in.
+     */
+    private static final int[][] ROOK_DIRECTIONS = {
+        { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 }
+    };
+
+    /**
+     * Row and column directions a Bishop slides in.
+     */
+    private static final int[][] BISHOP_DIRECTIONS = {
+        { 1, 1 }, { 1, -1 }, { -1, 1 }, { -1, -1 }
+    };
+
+    /**
+     * The spaces a Knight attacks, indexed by the Knight's space.
+     */
+    private static final long[] KNIGHT_ATTACKS = new long[Bitboard.SQUARE_COUNT];
+
+    /**
+     * The spaces a King attacks, indexed by the King's space.
+     */
+    private static final long[] KING_ATTACKS = new long[Bitboard.SQUARE_COUNT];
+
+    /**
+     * The spaces a Pawn attacks, indexed by the Pawn's color's ordinal and
+     * then its space. A Pawn of color NONE attacks nothing.
+     */
+    private static final long[][] PAWN_ATTACKS = new long[ChessPieceColor.values().length][Bitboard.SQUARE_COUNT];
+
+    /**
+     * The spaces strictly between two spaces on the same row, column or
+     * diagonal, indexed by both spaces. Empty for spaces not in line.
+     */
+    private static final long[][] BETWEEN = new long[Bitboard.SQUARE_COUNT][Bitboard.SQUARE_COUNT];
+
+    /**
+     * The whole row, column or diagonal through two spaces, from edge to
+     * edge, indexed by both spaces. Empty for spaces not in line.
+     */
+    private static final long[][] LINE = new long[Bitboard.SQUARE_COUNT][Bitboard.SQUARE_COUNT];
+
+    static {
+        for (int square = 0; square < Bitboard.SQUARE_COUNT; square++) {
+            KNIGHT_ATTACKS[square] = stepAttacks(square, KNIGHT_STEPS);
+            KING_ATTACKS[square] = stepAttacks(square, KING_STEPS);
+            PAWN_ATTACKS[ChessPieceColor.WHITE.ordinal()][square] = computePawnAttacks(square, 1);
+            PAWN_ATTACKS[ChessPieceColor.BLACK.ordinal()][square] = computePawnAttacks(square, -1);
+        }
+        // the ray walk rather than MagicBitboards, whose tables are built
+        // from this class
+        for (int a = 0; a < Bitboard.SQUARE_COUNT; a++) {
+            for (int b = 0; b < Bitboard.SQUARE_COUNT; b++) {
+                final long bits = Bitboard.bit(a) | Bitboard.bit(b);
+                if (Bitboard.contains(slidingRookAttacks(a, Bitboard.EMPTY), b)) {
+                    BETWEEN[a][b] = slidingRookAttacks(a, bits) & slidingRookAttacks(b, bits);
+                    LINE[a][b] = (slidingRookAttacks(a, Bitboard.EMPTY) & slidingRookAttacks(b, Bitboard.EMPTY)) | bits;
+                } else if (Bitboard.contains(slidingBishopAttacks(a, Bitboard.EMPTY), b)) {
+                    BETWEEN[a][b] = slidingBishopAttacks(a, bits) & slidingBishopAttacks(b, bits);
+                    LINE[a][b] = (slidingBishopAttacks(a, Bitboard.EMPTY) & slidingBishopAttacks(b, Bitboard.EMPTY)) | bits;
+                }
+            }
+        }
+    }
+
+    /**
+     * This class only holds static helpers.
+     */
+    private Attacks()
+    {
+    }
+
+    /**
+     * @param square of the Knight (0-63)
+     * @return bitboard of the spaces a Knight on the given space attacks
+     */
+    public static long knightAttacks(int square)
+    {
+        return KNIGHT_ATTACKS[square];
+    }
+
+    /**
+     * @param square of the King (0-63)
+     * @return bitboard of the spaces a King on the given space attacks
+     */
+    public static long kingAttacks(int square)
+    {
+        return KING_ATTACKS[square];
+    }
+
+    /**
+     * Get the spaces a Pawn attacks, which are the two spaces diagonally in
+     * front of it.
+     * @param square of the Pawn (0-63)
+     * @param color of the Pawn (BLACK or WHITE)
+     * @return bitboard of the spaces the Pawn attacks
+     */
+    public static long pawnAttacks(int square, ChessPieceColor color)
+    {
+        return PAWN_ATTACKS[color.ordinal()][square];
+    }
+
+    /**
+     * @param square of the Rook (0-63)
+     * @param occupied bitboard of every occupied space, which block the Rook
+     * @return bitboard of the spaces the Rook attacks, including the first
+     * occupied space in each direction
+     */
+    public static long rookAttacks(int square, long occupied)
+    {
+        return MagicBitboards.rookAttacks(square, occupied);
+    }
+
+    /**
+     * @param square of the Bishop (0-63)
+     * @param occupied bitboard of every occupied space, which block the Bishop
+     * @return bitboard of the spaces the Bishop attacks, including the first
+     * occupied space in each direction
+     */
+    public static long bishopAttacks(int square, long occupied)
+    {
+        return MagicBitboards.bishopAttacks(square, occupied);
+    }
+
+    /**
+     * @param square of the Queen (0-63)
+     * @param occupied bitboard of every occupied space, which block the Queen
+     * @return bitboard of the spaces the Queen attacks
+     */
+    public static long queenAttacks(int square, long occupied)
+    {
+        return MagicBitboards.rookAttacks(square, occupied) | MagicBitboards.bishopAttacks(square, occupied);
+    }
+
+    /**
+     * Get the spaces a piece would have to cross going from one space to
+     * another along a row, column or diagonal.
+     * @param from one space (0-63)
+     * @param to the other space (0-63)
+     * @return bitboard of the spaces strictly between the two, or an empty
+     * one if they aren't in line
+     */
+    public static long between(int from, int to)
+    {
+        return BETWEEN[from][to];
+    }
+
+    /**
+     * Get the row, column or diagonal two spaces share.
+     * @param from one space (0-63)
+     * @param to the other space (0-63)
+     * @return bitboard of every space on the line through both, including
+     * them, or an empty one if they aren't in line
+     */
+    public static long line(int from, int to)
+    {
+        return LINE[from][to];
+    }
+
+    /**
+     * Work out a Rook's attacks by walking along each line, which is how the
+     * lookup tables are built.
+     * @param square of the Rook (0-63)
+     * @param occupied bitboard of every occupied space
+     * @return bitboard of the spaces the Rook attacks
+     */
+    static long slidingRookAttacks(int square, long occupied)
+    {
+        return slidingAttacks(square, occupied, ROOK_DIRECTIONS);
+    }
+
+    /**
+     * Work out a Bishop's attacks by walking along each diagonal, which is
+     * how the lookup tables are built.
+     * @param square of the Bishop (0-63)
+     * @param occupied bitboard of every occupied space
+     * @return bitboard of the spaces the Bishop attacks
+     */
+    static long slidingBishopAttacks(int square, long occupied)
+    {
+        return slidingAttacks(square, occupied, BISHOP_DIRECTIONS);
+    }
+
+    /**
+     * Get the spaces a piece that moves in single steps attacks.
+     */
+    private static long stepAttacks(int square, int[][] steps)
+    {
+        final int row = Bitboard.row(square);
+        final int column = Bitboard.column(square);
+        long attacks = Bitboard.EMPTY;
+        for (int[] step : steps) {
+            if (ChessBoard.isOnTheBoard(row + step[0], column + step[1]))
+                attacks |= Bitboard.bit(Bitboard.square(row + step[0], column + step[1]));
+        }
+        return attacks;
+    }
+
+    /**
+     * Get the spaces a Pawn attacks, the two spaces diagonally in front of it.
+     * @param rowStep 1 for a white Pawn, -1 for a black one
+     */
+    private static long computePawnAttacks(int square, int rowStep)
+    {
+        final int row = Bitboard.row(square) + rowStep;
+        final int column = Bitboard.column(square);
+        long attacks = Bitboard.EMPTY;
+        if (ChessBoard.isOnTheBoard(row, column - 1))
+            attacks |= Bitboard.bit(Bitboard.square(row, column - 1));
+        if (ChessBoard.isOnTheBoard(row, column + 1))
+            attacks |= Bitboard.bit(Bitboard.square(row, column + 1));
+        return attacks;
+    }
+
+    /**
+     * Get the spaces a piece that slides until it is blocked attacks.
+     */
+    private static long slidingAttacks(int square, long occupied, int[][] directions)
+    {
+        long attacks = Bitboard.EMPTY;
+        for (int[] direction : directions) {
+            int row = Bitboard.row(square) + direction[0];
+            int column = Bitboard.column(square) + direction[1];
+            while (ChessBoard.isOnTheBoard(row, column)) {
+                int target = Bitboard.square(row, column);
+                attacks |= Bitboard.bit(target);
+                if (Bitboard.contains(occupied, target))
+                    break;
+                row += direction[0];
+                column += direction[1];
+            }
+        }
+        return attacks;
+    }
+}
@@ -26,6 +26,15 @@ public class Bishop extends ChessPiece {
         super(file, rank, color);
     }
 
+    /**
+     * @return {@link ChessPieceType#BISHOP}
+     */
+    @Override
+    public ChessPieceType getType()
+    {
+        return ChessPieceType.BISHOP;
+    }
+
     /**
      * Determine if the Bishop is in its starting position.
      */
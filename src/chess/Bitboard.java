@@ -0,0 +1,111 @@
+package chess;
+
+/**
+ * Helpers for working with bitboards. A bitboard is a 64 bit long where each
+ * bit represents one space on the chess board. Spaces are numbered from 0 to
+ * 63 starting at a1 (row 1, column 1) and moving left to right, then bottom to
+ * top, so b1 is 1, a2 is 8, and h8 is 63.
+ */
+public final class Bitboard {
+
+    /**
+     * A bitboard with no spaces set.
+     */
+    public static final long EMPTY = 0L;
+
+    /**
+     * The number of spaces on the chess board.
+     */
+    public static final int SQUARE_COUNT = 64;
+
+    /**
+     * This class only holds static helpers.
+     */
+    private Bitboard()
+    {
+    }
+
+    /**
+     * Get the space index of a row and column on the board.
+     * @param row (1-8)
+     * @param column (1-8)
+     * @return the space index (0-63)
+     */
+    public static int square(int row, int column)
+    {
+        return ((row - 1) << 3) | (column - 1);
+    }
+
+    /**
+     * Get the row of a space index.
+     * @param square index (0-63)
+     * @return the row (1-8)
+     */
+    public static int row(int square)
+    {
+        return (square >>> 3) + 1;
+    }
+
+    /**
+     * Get the column of a space index.
+     * @param square index (0-63)
+     * @return the column (1-8)
+     */
+    public static int column(int square)
+    {
+        return (square & 7) + 1;
+    }
+
+    /**
+     * Get a bitboard with only the given space set.
+     * @param square index (0-63)
+     * @return bitboard with a single bit set
+     */
+    public static long bit(int square)
+    {
+        return 1L << square;
+    }
+
+    /**
+     * Determine if a space is set on a bitboard.
+     * @param bitboard to inspect
+     * @param square index (0-63)
+     * @return true if the space is set, false otherwise
+     */
+    public static boolean contains(long bitboard, int square)
+    {
+        return (bitboard & (1L << square)) != 0;
+    }
+
+    /**
+     * Get the lowest space index set on a non-empty bitboard. Combined with
+     * {@link #popLowest(long)} this is how the set spaces of a bitboard are
+     * iterated.
+     * @param bitboard to inspect, must not be empty
+     * @return the lowest space index that is set
+     */
+    public static int lowestSquare(long bitboard)
+    {
+        return Long.numberOfTrailingZeros(bitboard);
+    }
+
+    /**
+     * Clear the lowest set space on a bitboard.
+     * @param bitboard to modify
+     * @return the bitboard without its lowest set space
+     */
+    public static long popLowest(long bitboard)
+    {
+        return bitboard & (bitboard - 1);
+    }
+
+    /**
+     * Count the spaces set on a bitboard.
+     * @param bitboard to inspect
+     * @return number of set spaces (0-64)
+     */
+    public static int count(long bitboard)
+    {
+        return Long.bitCount(bitboard);
+    }
+}
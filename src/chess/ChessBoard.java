@@ -12,22 +12,250 @@ public class ChessBoard {
     public static final int BOARD_SIZE = 8;
 
     /**
-     * The board held in a 2 dimensional array; this is one greater than the
-     * board so that indexing can start from 1 as it does in chess.
+     * Space index used to indicate "no space", e.g. when there is no en
+     * passant capture available.
      */
-    private ChessPiece[][] board = new ChessPiece[BOARD_SIZE + 1][BOARD_SIZE + 1];
+    public static final int NO_SQUARE = -1;
 
     /**
-     * The last piece that was moved. Used for determining if you can perform
-     * an en passant.
+     * Castling right bit for white castling kingside. See
+     * {@link #getCastlingRights()}.
      */
-    private ChessPiece pieceLastMoved;
+    public static final int WHITE_KINGSIDE = 1;
 
     /**
-     * The row that the most recently moved piece came from. Used for determining
-     * if you can perform an en passant.
+     * Castling right bit for white castling queenside.
      */
-    private int startRowOfPieceLastMoved;
+    public static final int WHITE_QUEENSIDE = 2;
+
+    /**
+     * Castling right bit for black castling kingside.
+     */
+    public static final int BLACK_KINGSIDE = 4;
+
+    /**
+     * Castling right bit for black castling queenside.
+     */
+    public static final int BLACK_QUEENSIDE = 8;
+
+    /**
+     * Forsyth-Edwards Notation letter of each piece type, indexed by ordinal.
+     * White pieces use the uppercase letters.
+     */
+    private static final String FEN_PIECE_LETTERS = "pnbrqk";
+
+    /**
+     * Every piece type, since values() makes a new array every call.
+     */
+    private static final ChessPieceType[] PIECE_TYPES = ChessPieceType.values();
+
+    /**
+     * The starting spaces of every combination of piece type and color,
+     * indexed like {@link #pieceBitboards}. Worked out from the pieces' own
+     * {@link ChessPiece#inStartingPosition()} rules.
+     */
+    private static final long[] STARTING_SPACES = startingSpaces();
+
+    /**
+     * The number of colors that have pieces on the board (WHITE and BLACK).
+     */
+    private static final int PLAYER_COUNT = 2;
+
+    /**
+     * Transposition table question: is a move valid?
+     */
+    private static final int VALID_MOVE_QUERY = 1;
+
+    /**
+     * Transposition table question: does a player have no valid moves?
+     */
+    private static final int NO_VALID_MOVES_QUERY = 2;
+
+    /**
+     * One bitboard for every combination of piece type and color, indexed by
+     * {@link #bitboardIndex(ChessPieceType, ChessPieceColor)}. These are the
+     * authoritative record of what occupies each space.
+     */
+    private final long[] pieceBitboards = new long[PLAYER_COUNT * ChessPieceType.COUNT];
+
+    /**
+     * All spaces occupied by each color, indexed by the color's ordinal.
+     * These double as each player's piece list: walking the set bits visits
+     * only that player's pieces, so loops over a player's pieces cost the
+     * number of pieces rather than the 64 spaces of the board.
+     */
+    private final long[] colorBitboards = new long[PLAYER_COUNT];
+
+    /**
+     * All occupied spaces on the board.
+     */
+    private long occupiedBitboard;
+
+    /**
+     * The type of the piece on each space indexed by space (see
+     * {@link Bitboard}), or null for an empty space. The board holds no
+     * ChessPiece objects: the types are shared enum constants, the colors
+     * are in {@link #colorBitboards} and the moved flags in
+     * {@link #movedPieces}, so copying a board copies arrays and nothing else.
+     */
+    private final ChessPieceType[] pieceTypes = new ChessPieceType[Bitboard.SQUARE_COUNT];
+
+    /**
+     * The spaces whose pieces have moved earlier in the game, or were set up
+     * as having moved. A piece's flag goes with it when it moves.
+     */
+    private long movedPieces;
+
+    /**
+     * The spaces attacked by the piece on each space, indexed by space. Only
+     * meaningful for occupied spaces, and only up to date for spaces not in
+     * {@link #changedSquares}.
+     */
+    private final long[] attacksFrom = new long[Bitboard.SQUARE_COUNT];
+
+    /**
+     * All spaces attacked by each color, indexed by the color's ordinal.
+     */
+    private final long[] attackedBitboards = new long[PLAYER_COUNT];
+
+    /**
+     * The space of each player's king, indexed by the color's ordinal, or
+     * {@link #NO_SQUARE} if the player has no king on the board.
+     */
+    private final int[] kingSquares = { NO_SQUARE, NO_SQUARE };
+
+    /**
+     * Spaces whose contents changed since the attack maps were last brought
+     * up to date by {@link #refreshAttacks()}.
+     */
+    private long changedSquares;
+
+    /**
+     * The Zobrist numbers (see {@link Zobrist}) of every piece on the board
+     * combined. Kept up to date as pieces are placed and removed.
+     */
+    private long pieceKey;
+
+    /**
+     * The middlegame values (see {@link Evaluator}) of every piece on the
+     * board added up, from white's point of view. Kept up to date as pieces
+     * are placed and removed.
+     */
+    private int middlegameScore;
+
+    /**
+     * The endgame values of every piece on the board added up, from white's
+     * point of view.
+     */
+    private int endgameScore;
+
+    /**
+     * How much material is left, for blending the middlegame and endgame
+     * scores.
+     */
+    private int gamePhase;
+
+    /**
+     * The player whose turn it is. Each move hands the turn to the other
+     * color of the piece that moved.
+     */
+    private ChessPieceColor sideToMove = ChessPieceColor.WHITE;
+
+    /**
+     * The space skipped over by the last move if it was a pawn moving two
+     * spaces forward, otherwise {@link #NO_SQUARE}. Used for determining if
+     * you can perform an en passant.
+     */
+    private int enPassantSquare = NO_SQUARE;
+
+    /**
+     * The space the pawn that skipped over {@link #enPassantSquare} landed
+     * on, otherwise {@link #NO_SQUARE}.
+     */
+    private int doublePushSquare = NO_SQUARE;
+
+    /**
+     * The number of moves since the last capture or pawn move, for the
+     * fifty-move rule.
+     */
+    private int halfmoveClock;
+
+    /**
+     * The number of the current full move. Starts at 1 and goes up after
+     * each of black's moves.
+     */
+    private int fullmoveNumber = 1;
+
+    /**
+     * Records for taking back moves made with {@link #makeMove(int)}. The
+     * records are reused, so the stack only allocates when it grows.
+     */
+    private MoveUndo[] undoStack = new MoveUndo[0];
+
+    /**
+     * The number of moves on {@link #undoStack} that can be taken back.
+     */
+    private int undoCount;
+
+    /**
+     * How many times each position before a move on {@link #undoStack} came
+     * up, for the threefold repetition rule, or null if repetitions aren't
+     * being counted.
+     */
+    private RepetitionTable repetitions;
+
+    /**
+     * Scratch list for move generation inside the board, created on first use.
+     */
+    private MoveList scratchMoves;
+
+    /**
+     * Optional cache of move validity and game status results shared with
+     * other boards, or null to always compute them.
+     */
+    private TranspositionTable transpositionTable;
+
+    /**
+     * Incremented every time a piece is placed or removed, so cached results
+     * can tell whether the board has changed since they were computed.
+     */
+    private long positionVersion;
+
+    /**
+     * The last result of {@link #gameStatus(ChessPieceColor)} for each color,
+     * indexed by the color's ordinal.
+     */
+    private final GameStatus[] cachedStatus = new GameStatus[ChessPieceColor.values().length];
+
+    /**
+     * The {@link #positionVersion} each entry of {@link #cachedStatus} was
+     * computed at.
+     */
+    private final long[] cachedStatusVersion = { -1, -1, -1 };
+
+    /**
+     * The pieces of {@link #pinsColor} pinned to their king: moving one off
+     * the line between its king and the enemy piece behind it would expose
+     * the king.
+     */
+    private long pinnedPieces;
+
+    /**
+     * The enemy pieces attacking the king of {@link #pinsColor}.
+     */
+    private long checkingPieces;
+
+    /**
+     * The player {@link #pinnedPieces} and {@link #checkingPieces} were
+     * worked out for.
+     */
+    private ChessPieceColor pinsColor;
+
+    /**
+     * The {@link #positionVersion} {@link #pinnedPieces} and
+     * {@link #checkingPieces} were worked out at.
+     */
+    private long pinsVersion = -1;
 
     /**
      * Determine if a given position is on the ChessBoard.
@@ -52,32 +280,32 @@ public class ChessBoard {
         // init white side
         int row = 1;
         int col = 1;
-        board[row][col] = new Rook  (row, col++, ChessPieceColor.WHITE);
-        board[row][col] = new Knight(row, col++, ChessPieceColor.WHITE);
-        board[row][col] = new Bishop(row, col++, ChessPieceColor.WHITE);
-        board[row][col] = new Queen (row, col++, ChessPieceColor.WHITE);
-        board[row][col] = new King  (row, col++, ChessPieceColor.WHITE);
-        board[row][col] = new Bishop(row, col++, ChessPieceColor.WHITE);
-        board[row][col] = new Knight(row, col++, ChessPieceColor.WHITE);
-        board[row][col] = new Rook  (row, col++, ChessPieceColor.WHITE);
+        addPiece(new Rook  (row, col++, ChessPieceColor.WHITE));
+        addPiece(new Knight(row, col++, ChessPieceColor.WHITE));
+        addPiece(new Bishop(row, col++, ChessPieceColor.WHITE));
+        addPiece(new Queen (row, col++, ChessPieceColor.WHITE));
+        addPiece(new King  (row, col++, ChessPieceColor.WHITE));
+        addPiece(new Bishop(row, col++, ChessPieceColor.WHITE));
+        addPiece(new Knight(row, col++, ChessPieceColor.WHITE));
+        addPiece(new Rook  (row, col++, ChessPieceColor.WHITE));
         row = 2;
         for (col = 1; col <= BOARD_SIZE; col++)
-            board[row][col] = new Pawn(row, col, ChessPieceColor.WHITE);
+            addPiece(new Pawn(row, col, ChessPieceColor.WHITE));
 
         // init black side
         row = 7;
         for (col = 1; col <= BOARD_SIZE; col++)
-            board[row][col] = new Pawn(row, col, ChessPieceColor.BLACK);
+            addPiece(new Pawn(row, col, ChessPieceColor.BLACK));
         row = 8;
         col = 1;
-        board[row][col] = new Rook  (row, col++, ChessPieceColor.BLACK);
-        board[row][col] = new Knight(row, col++, ChessPieceColor.BLACK);
-        board[row][col] = new Bishop(row, col++, ChessPieceColor.BLACK);
-        board[row][col] = new Queen (row, col++, ChessPieceColor.BLACK);
-        board[row][col] = new King  (row, col++, ChessPieceColor.BLACK);
-        board[row][col] = new Bishop(row, col++, ChessPieceColor.BLACK);
-        board[row][col] = new Knight(row, col++, ChessPieceColor.BLACK);
-        board[row][col] = new Rook  (row, col++, ChessPieceColor.BLACK);
+        addPiece(new Rook  (row, col++, ChessPieceColor.BLACK));
+        addPiece(new Knight(row, col++, ChessPieceColor.BLACK));
+        addPiece(new Bishop(row, col++, ChessPieceColor.BLACK));
+        addPiece(new Queen (row, col++, ChessPieceColor.BLACK));
+        addPiece(new King  (row, col++, ChessPieceColor.BLACK));
+        addPiece(new Bishop(row, col++, ChessPieceColor.BLACK));
+        addPiece(new Knight(row, col++, ChessPieceColor.BLACK));
+        addPiece(new Rook  (row, col++, ChessPieceColor.BLACK));
     }
 
     /**
@@ -88,24 +316,133 @@ public class ChessBoard {
     public ChessBoard(ChessBoard sourceBoard)
     {
         if (sourceBoard == null)
-            return; // all elements null by default
-        for (int row = 1; row <= BOARD_SIZE; row++) {
-            for (int col = 1; col <= BOARD_SIZE; col++) {
-                ChessPiece piece = sourceBoard.getPiece(row, col);
-                if (piece != null) {
-                    try {
-                        board[row][col] = piece.clone();
-                    } catch (CloneNotSupportedException e) {
-                        e.printStackTrace();
-                        System.exit(1); // this shouldn't happen
-                    }
-                }
+            return; // all bitboards empty by default
+        System.arraycopy(sourceBoard.pieceBitboards, 0, pieceBitboards, 0, pieceBitboards.length);
+        System.arraycopy(sourceBoard.colorBitboards, 0, colorBitboards, 0, colorBitboards.length);
+        occupiedBitboard = sourceBoard.occupiedBitboard;
+        System.arraycopy(sourceBoard.attacksFrom, 0, attacksFrom, 0, attacksFrom.length);
+        System.arraycopy(sourceBoard.attackedBitboards, 0, attackedBitboards, 0, attackedBitboards.length);
+        changedSquares = sourceBoard.changedSquares;
+        System.arraycopy(sourceBoard.kingSquares, 0, kingSquares, 0, kingSquares.length);
+        pieceKey = sourceBoard.pieceKey;
+        middlegameScore = sourceBoard.middlegameScore;
+        endgameScore = sourceBoard.endgameScore;
+        gamePhase = sourceBoard.gamePhase;
+        sideToMove = sourceBoard.sideToMove;
+        halfmoveClock = sourceBoard.halfmoveClock;
+        fullmoveNumber = sourceBoard.fullmoveNumber;
+        transpositionTable = sourceBoard.transpositionTable;
+        System.arraycopy(sourceBoard.pieceTypes, 0, pieceTypes, 0, pieceTypes.length);
+        movedPieces = sourceBoard.movedPieces;
+        enPassantSquare = sourceBoard.enPassantSquare;
+        doublePushSquare = sourceBoard.doublePushSquare;
+    }
+
+    /**
+     * Build a board from a position in Forsyth-Edwards Notation. Castling
+     * rights are mapped onto whether the Kings and Rooks have moved, and the
+     * en passant target onto the pawn that just moved two spaces. Missing
+     * trailing fields take their defaults: white to move, no castling, no en
+     * passant and clocks of 0 and 1. The string is read in a single pass
+     * without splitting it, so the only allocations are the board and its
+     * pieces.
+     * @param fen of the position, e.g.
+     * "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"
+     * @return a new board in that position
+     * @throws IllegalArgumentException if the position can't be read
+     */
+    public static ChessBoard fromFen(String fen)
+    {
+        final ChessBoard board = new ChessBoard(null);
+        final int length = fen.length();
+        int index = skipSpaces(fen, 0);
+
+        // piece placement, from row 8 down to row 1
+        int row = 8;
+        int column = 1;
+        for (; index < length && fen.charAt(index) > ' '; index++) {
+            final char symbol = fen.charAt(index);
+            if (symbol == '/') {
+                if (column != BOARD_SIZE + 1 || row == 1)
+                    throw badFen(fen, "wrong number of spaces in row " + row);
+                row--;
+                column = 1;
+            } else if ('1' <= symbol && symbol <= '8') {
+                column += symbol - '0';
+            } else {
+                final int type = FEN_PIECE_LETTERS.indexOf(Character.toLowerCase(symbol));
+                if (type < 0)
+                    throw badFen(fen, "unknown piece '" + symbol + "'");
+                if (column > BOARD_SIZE)
+                    throw badFen(fen, "wrong number of spaces in row " + row);
+                final ChessPieceColor color = Character.isUpperCase(symbol) ? ChessPieceColor.WHITE
+                                                                            : ChessPieceColor.BLACK;
+                board.addPiece(createPiece(PIECE_TYPES[type], row, column++, color));
+            }
+        }
+        if (row != 1 || column != BOARD_SIZE + 1)
+            throw badFen(fen, "the pieces don't fill 8 rows of 8 spaces");
+
+        // side to move
+        index = skipSpaces(fen, index);
+        ChessPieceColor side = ChessPieceColor.WHITE;
+        if (index < length) {
+            final char symbol = fen.charAt(index++);
+            if (symbol == 'b')
+                side = ChessPieceColor.BLACK;
+            else if (symbol != 'w')
+                throw badFen(fen, "unknown side to move '" + symbol + "'");
+        }
+
+        // castling rights
+        index = skipSpaces(fen, index);
+        int rights = 0;
+        for (; index < length && fen.charAt(index) > ' '; index++) {
+            switch (fen.charAt(index)) {
+            case 'K': rights |= WHITE_KINGSIDE; break;
+            case 'Q': rights |= WHITE_QUEENSIDE; break;
+            case 'k': rights |= BLACK_KINGSIDE; break;
+            case 'q': rights |= BLACK_QUEENSIDE; break;
+            case '-': break;
+            default:
+                throw badFen(fen, "unknown castling right '" + fen.charAt(index) + "'");
             }
         }
+        board.setCastlingRights(rights);
+
+        // en passant target
+        index = skipSpaces(fen, index);
+        if (index < length && fen.charAt(index) == '-') {
+            index++;
+        } else if (index < length) {
+            final int targetColumn = (index + 1 < length) ? fen.charAt(index) - 'a' + 1 : 0;
+            final int targetRow = (index + 1 < length) ? fen.charAt(index + 1) - '0' : 0;
+            if (!isOnTheBoard(targetRow, targetColumn) || (targetRow != 3 && targetRow != 6))
+                throw badFen(fen, "bad en passant target");
+            board.setEnPassantSquare(Bitboard.square(targetRow, targetColumn));
+            index += 2;
+        }
+
+        // clocks
+        index = skipSpaces(fen, index);
+        int halfmoves = 0;
+        for (; index < length && fen.charAt(index) > ' '; index++)
+            halfmoves = 10 * halfmoves + digit(fen, index);
+        index = skipSpaces(fen, index);
+        int fullmoves = 0;
+        for (; index < length && fen.charAt(index) > ' '; index++)
+            fullmoves = 10 * fullmoves + digit(fen, index);
+
+        board.setSideToMove(side);
+        board.halfmoveClock = halfmoves;
+        board.fullmoveNumber = Math.max(fullmoves, 1);
+        return board;
     }
 
     /**
-     * Get the chess piece at the given location.
+     * Get the chess piece at the given location. The board doesn't keep
+     * ChessPiece objects, so this is a new piece describing what is on the
+     * space; changing it doesn't change the board.
      * @param row of the chess piece (1-8)
      * @param column of the chess piece (1-8)
      * @return the chess piece at the given location
@@ -115,7 +452,67 @@ public class ChessBoard {
         if (!isOnTheBoard(row, column)) {
             throw new OffTheChessBoardException(row, column);
         }
-        return board[row][column];
+        return getPieceAt(Bitboard.square(row, column));
+    }
+
+    /**
+     * Get the chess piece on a space given by its index (see {@link Bitboard}).
+     * Like {@link #getPiece(int, int)} this builds a new piece, so code that
+     * only needs the type or color should use {@link #getPieceType(int)} and
+     * {@link #getPieceColor(int)} instead.
+     * @param square index of the space (0-63)
+     * @return the chess piece on the space, or null if it is empty
+     */
+    public ChessPiece getPieceAt(int square)
+    {
+        final ChessPieceType type = pieceTypes[square];
+        if (type == null)
+            return null;
+        final int row = Bitboard.row(square);
+        final int column = Bitboard.column(square);
+        final ChessPiece piece = createPiece(type, row, column, getPieceColor(square));
+        if (Bitboard.contains(movedPieces, square))
+            piece.markMoved();
+        return piece;
+    }
+
+    /**
+     * Get the type of the chess piece on a space.
+     * @param square index of the space (0-63)
+     * @return the piece's type, or null if the space is empty
+     */
+    public ChessPieceType getPieceType(int square)
+    {
+        return pieceTypes[square];
+    }
+
+    /**
+     * Get the color of the chess piece on a space.
+     * @param square index of the space (0-63)
+     * @return the piece's color, or NONE if the space is empty
+     */
+    public ChessPieceColor getPieceColor(int square)
+    {
+        if (Bitboard.contains(colorBitboards[ChessPieceColor.WHITE.ordinal()], square))
+            return ChessPieceColor.WHITE;
+        if (Bitboard.contains(colorBitboards[ChessPieceColor.BLACK.ordinal()], square))
+            return ChessPieceColor.BLACK;
+        return ChessPieceColor.NONE;
+    }
+
+    /**
+     * Determine if the chess piece on a space hasn't moved from its starting
+     * space, as {@link ChessPiece#inStartingPosition()} would for that piece.
+     * @param square index of the space (0-63)
+     * @return true if an unmoved piece is on one of its starting spaces,
+     * false otherwise
+     */
+    public boolean inStartingPosition(int square)
+    {
+        final ChessPieceType type = pieceTypes[square];
+        if (type == null || Bitboard.contains(movedPieces, square))
+            return false;
+        return Bitboard.contains(STARTING_SPACES[bitboardIndex(type, getPieceColor(square))], square);
     }
 
     /**
@@ -141,9 +538,12 @@ public class ChessBoard {
             return false;
         int row = piece.getRow();
         int column = piece.getColumn();
-        if (!isOnTheBoard(row, column))
+        if (!isOnTheBoard(row, column) || piece.getColor() == ChessPieceColor.NONE)
             return false;
-        board[row][column] = piece;
+        final int square = Bitboard.square(row, column);
+        putPiece(piece.getType(), piece.getColor(), square);
+        if (piece.hasMoved())
+            movedPieces |= Bitboard.bit(square);
         return true;
     }
 
@@ -155,7 +555,10 @@ public class ChessBoard {
      */
     public boolean isEmptySpace(int row, int column)
     {
-        return getPiece(row, column) == null;
+        if (!isOnTheBoard(row, column)) {
+            throw new OffTheChessBoardException(row, column);
+        }
+        return !Bitboard.contains(occupiedBitboard, Bitboard.square(row, column));
     }
 
     /**
@@ -169,6 +572,378 @@ public class ChessBoard {
         return isEmptySpace(rank, file.getColumn());
     }
 
+    /**
+     * Get the spaces occupied by one kind of chess piece. See {@link Bitboard}
+     * for how spaces are numbered.
+     * @param type of chess piece
+     * @param color of the chess pieces (BLACK or WHITE)
+     * @return bitboard of the spaces holding those pieces
+     */
+    public long getBitboard(ChessPieceType type, ChessPieceColor color)
+    {
+        return pieceBitboards[bitboardIndex(type, color)];
+    }
+
+    /**
+     * Get the spaces occupied by all of a player's chess pieces.
+     * @param color of the chess pieces (BLACK or WHITE)
+     * @return bitboard of the spaces holding that player's pieces
+     */
+    public long getOccupied(ChessPieceColor color)
+    {
+        return colorBitboards[color.ordinal()];
+    }
+
+    /**
+     * Share a transposition table with this board. While one is set, the
+     * results of {@link #isValidMove(int, int, int, int)} and of looking for
+     * valid moves in {@link #gameStatus(ChessPieceColor)} are remembered in it
+     * by position, so a position that comes up again (after an undo, or on
+     * another board sharing the table) doesn't repeat the work. Copies of
+     * this board share the same table.
+     * @param table to use, or null to stop caching
+     */
+    public void setTranspositionTable(TranspositionTable table)
+    {
+        transpositionTable = table;
+    }
+
+    /**
+     * Start or stop counting how many times each position comes up, for
+     * {@link #getRepetitionCount()}. Counting costs a Zobrist key for every
+     * move made, which would slow down searches and perft, so it is off
+     * until turned on; a board a game is played on should turn it on before
+     * the first move. Copies of this board don't count repetitions.
+     * @param enabled true to count repetitions from now on, false to stop
+     * and forget the positions counted so far
+     */
+    public void setRepetitionTracking(boolean enabled)
+    {
+        if (!enabled)
+            repetitions = null;
+        else if (repetitions == null)
+            repetitions = new RepetitionTable();
+    }
+
+    /**
+     * @return the transposition table in use, or null if there isn't one
+     */
+    public TranspositionTable getTranspositionTable()
+    {
+        return transpositionTable;
+    }
+
+    /**
+     * Get the number of chess pieces a player has on the board.
+     * @param color of the chess pieces (BLACK or WHITE)
+     * @return number of that player's pieces
+     */
+    public int pieceCount(ChessPieceColor color)
+    {
+        return Bitboard.count(colorBitboards[color.ordinal()]);
+    }
+
+    /**
+     * Get the spaces occupied by any chess piece.
+     * @return bitboard of all occupied spaces
+     */
+    public long getOccupied()
+    {
+        return occupiedBitboard;
+    }
+
+    /**
+     * Get the space a pawn can move to when capturing en passant. This is the
+     * space skipped over by the last move, if that move was a pawn moving two
+     * spaces forward.
+     * @return index of the skipped space, or {@link #NO_SQUARE} if there isn't one
+     */
+    public int getEnPassantSquare()
+    {
+        // the pawn may since have been replaced on a board set up by hand
+        if (enPassantSquare == NO_SQUARE || pieceTypes[doublePushSquare] != ChessPieceType.PAWN)
+            return NO_SQUARE;
+        return enPassantSquare;
+    }
+
+    /**
+     * @return the player whose turn it is (WHITE until the first move)
+     */
+    public ChessPieceColor getSideToMove()
+    {
+        return sideToMove;
+    }
+
+    /**
+     * @return the middlegame score of the pieces on the board, from white's
+     * point of view
+     */
+    int getMiddlegameScore()
+    {
+        return middlegameScore;
+    }
+
+    /**
+     * @return the endgame score of the pieces on the board, from white's
+     * point of view
+     */
+    int getEndgameScore()
+    {
+        return endgameScore;
+    }
+
+    /**
+     * @return how much material is left, {@link Evaluator#OPENING_PHASE} at
+     * the start of the game
+     */
+    int getGamePhase()
+    {
+        return gamePhase;
+    }
+
+    /**
+     * Hand the turn to a player. Used when setting up positions.
+     * @param color of the player to move (BLACK or WHITE)
+     */
+    void setSideToMove(ChessPieceColor color)
+    {
+        positionVersion++;
+        sideToMove = color;
+    }
+
+    /**
+     * Get the castling rights that are still available, i.e. the Kings and
+     * Rooks that haven't moved from their starting spaces. Whether a castle
+     * is possible right now also depends on the spaces in between and on
+     * check; see {@link #canCastle(int, int, int, int)}.
+     * @return a combination of {@link #WHITE_KINGSIDE}, {@link #WHITE_QUEENSIDE},
+     * {@link #BLACK_KINGSIDE} and {@link #BLACK_QUEENSIDE}
+     */
+    public int getCastlingRights()
+    {
+        int rights = 0;
+        if (hasCastlingRight(ChessPieceColor.WHITE, 1, 8))
+            rights |= WHITE_KINGSIDE;
+        if (hasCastlingRight(ChessPieceColor.WHITE, 1, 1))
+            rights |= WHITE_QUEENSIDE;
+        if (hasCastlingRight(ChessPieceColor.BLACK, 8, 8))
+            rights |= BLACK_KINGSIDE;
+        if (hasCastlingRight(ChessPieceColor.BLACK, 8, 1))
+            rights |= BLACK_QUEENSIDE;
+        return rights;
+    }
+
+    /**
+     * Get the Zobrist key of the current position (see {@link Zobrist}). The
+     * key covers the placement of the pieces, the side to move, the castling
+     * rights and the file of an en passant capture, but only when a pawn is
+     * in place to make that capture. Boards in the same position have the
+     * same key, however they got there.
+     * @return the 64 bit key of the position
+     */
+    public long getZobristKey()
+    {
+        long key = pieceKey ^ Zobrist.sideToMoveKey(sideToMove) ^ Zobrist.castlingKey(getCastlingRights());
+        final int enPassantSquare = getEnPassantSquare();
+        if (enPassantSquare != NO_SQUARE) {
+            // the capturing pawns attack the skipped space from the side the
+            // captured pawn moves away from
+            final ChessPieceColor victim = getPieceColor(doublePushSquare);
+            long capturers = pieceBitboards[bitboardIndex(ChessPieceType.PAWN, victim.otherColor())];
+            if ((Attacks.pawnAttacks(enPassantSquare, victim) & capturers) != 0)
+                key ^= Zobrist.enPassantKey(Bitboard.column(enPassantSquare));
+        }
+        return key;
+    }
+
+    /**
+     * Describe the current position in Forsyth-Edwards Notation. The en
+     * passant target is given after every two space pawn move, whether or
+     * not a pawn can capture there.
+     * @return the position, readable by {@link #fromFen(String)}
+     */
+    public String toFen()
+    {
+        final StringBuilder fen = new StringBuilder(90);
+        for (int row = BOARD_SIZE; row >= 1; row--) {
+            int emptySpaces = 0;
+            for (int column = 1; column <= BOARD_SIZE; column++) {
+                final int square = Bitboard.square(row, column);
+                final ChessPieceType type = pieceTypes[square];
+                if (type == null) {
+                    emptySpaces++;
+                    continue;
+                }
+                if (emptySpaces > 0)
+                    fen.append(emptySpaces);
+                emptySpaces = 0;
+                final char letter = FEN_PIECE_LETTERS.charAt(type.ordinal());
+                fen.append(getPieceColor(square) == ChessPieceColor.WHITE ? Character.toUpperCase(letter) : letter);
+            }
+            if (emptySpaces > 0)
+                fen.append(emptySpaces);
+            if (row > 1)
+                fen.append('/');
+        }
+
+        fen.append(sideToMove == ChessPieceColor.BLACK ? " b " : " w ");
+        final int rights = getCastlingRights();
+        if (rights == 0)
+            fen.append('-');
+        if ((rights & WHITE_KINGSIDE) != 0)
+            fen.append('K');
+        if ((rights & WHITE_QUEENSIDE) != 0)
+            fen.append('Q');
+        if ((rights & BLACK_KINGSIDE) != 0)
+            fen.append('k');
+        if ((rights & BLACK_QUEENSIDE) != 0)
+            fen.append('q');
+
+        fen.append(' ');
+        final int enPassantSquare = getEnPassantSquare();
+        if (enPassantSquare == NO_SQUARE)
+            fen.append('-');
+        else
+            fen.append((char) ('a' + Bitboard.column(enPassantSquare) - 1)).append(Bitboard.row(enPassantSquare));
+        return fen.append(' ').append(halfmoveClock).append(' ').append(fullmoveNumber).toString();
+    }
+
+    /**
+     * @return the number of moves since the last capture or pawn move
+     */
+    public int getHalfmoveClock()
+    {
+        return halfmoveClock;
+    }
+
+    /**
+     * Count how many times the current position has come up in the moves
+     * made on this board, counting this time. Positions are the same if the
+     * same pieces are on the same spaces, the same player is to move and
+     * the same castling and en passant captures can be made. Only moves
+     * made while {@link #setRepetitionTracking(boolean) repetition tracking}
+     * is on are counted.
+     * @return the number of times the position has come up, at least 1
+     */
+    public int getRepetitionCount()
+    {
+        if (repetitions == null)
+            return 1;
+        return 1 + repetitions.count(getZobristKey());
+    }
+
+    /**
+     * Determine if the current position has come up three times, which
+     * makes the game a draw.
+     * @return true if the position has been repeated three times, false
+     * otherwise
+     */
+    public boolean isThreefoldRepetition()
+    {
+        return getRepetitionCount() >= 3;
+    }
+
+    /**
+     * Determine if fifty moves by each player have gone by without a capture
+     * or pawn move, which makes the game a draw.
+     * @return true if the fifty-move rule applies, false otherwise
+     */
+    public boolean isFiftyMoveRule()
+    {
+        return halfmoveClock >= 100;
+    }
+
+    /**
+     * Determine if seventy-five moves by each player have gone by without a
+     * capture or pawn move, which ends the game in a draw even if neither
+     * player claims it.
+     * @return true if the seventy-five-move rule applies, false otherwise
+     */
+    public boolean isSeventyFiveMoveRule()
+    {
+        return halfmoveClock >= 150;
+    }
+
+    /**
+     * @return the number of the current full move, starting at 1
+     */
+    public int getFullmoveNumber()
+    {
+        return fullmoveNumber;
+    }
+
+    /**
+     * Take away castling rights by marking the Kings and corner Rooks as
+     * moved. Used when setting up positions; rights can't be given back to
+     * pieces that aren't on their starting spaces.
+     * @param rights the castling rights to keep, a combination of
+     * {@link #WHITE_KINGSIDE}, {@link #WHITE_QUEENSIDE}, {@link #BLACK_KINGSIDE}
+     * and {@link #BLACK_QUEENSIDE}
+     */
+    void setCastlingRights(int rights)
+    {
+        positionVersion++;
+        removeCastlingRight(rights, WHITE_KINGSIDE, 1, 8);
+        removeCastlingRight(rights, WHITE_QUEENSIDE, 1, 1);
+        removeCastlingRight(rights, BLACK_KINGSIDE, 8, 8);
+        removeCastlingRight(rights, BLACK_QUEENSIDE, 8, 1);
+        for (int row = 1; row <= BOARD_SIZE; row += BOARD_SIZE - 1) {
+            // a King with no castling rights left counts as having moved
+            final int kingSquare = Bitboard.square(row, 5);
+            final int kingRights = (row == 1) ? WHITE_KINGSIDE | WHITE_QUEENSIDE
+                                              : BLACK_KINGSIDE | BLACK_QUEENSIDE;
+            if (pieceTypes[kingSquare] == ChessPieceType.KING && (rights & kingRights) == 0)
+                movedPieces |= Bitboard.bit(kingSquare);
+        }
+    }
+
+    /**
+     * Set up the en passant state as if a pawn had just moved two spaces
+     * forward past the given space. Used when setting up positions.
+     * @param square index of the skipped space (row 3 or 6), or
+     * {@link #NO_SQUARE} to clear the en passant state
+     */
+    void setEnPassantSquare(int square)
+    {
+        positionVersion++;
+        enPassantSquare = NO_SQUARE;
+        doublePushSquare = NO_SQUARE;
+        if (square == NO_SQUARE)
+            return;
+        // a white pawn skipped row 3 from row 2, a black pawn row 6 from row 7
+        final int pawnRow = Bitboard.row(square) + ((Bitboard.row(square) == 3) ? 1 : -1);
+        final int pawnSquare = Bitboard.square(pawnRow, Bitboard.column(square));
+        if (pieceTypes[pawnSquare] == ChessPieceType.PAWN) {
+            enPassantSquare = square;
+            doublePushSquare = pawnSquare;
+        }
+    }
+
+    /**
+     * Determine if any of a player's pieces attack a space. Attacks are
+     * counted even if the attacking piece is pinned to its own king.
+     * @param square index of the space (0-63)
+     * @param attackerColor color of the attacking player
+     * @return true if the space is attacked, false otherwise
+     */
+    public boolean isSquareAttacked(int square, ChessPieceColor attackerColor)
+    {
+        return Bitboard.contains(getAttackedSquares(attackerColor), square);
+    }
+
+    /**
+     * Get every space a player's pieces attack. The attack maps are kept up
+     * to date as pieces move, so this is a lookup rather than a search.
+     * @param attackerColor color of the attacking player (BLACK or WHITE)
+     * @return bitboard of the attacked spaces
+     */
+    public long getAttackedSquares(ChessPieceColor attackerColor)
+    {
+        if (changedSquares != 0)
+            refreshAttacks();
+        return attackedBitboards[attackerColor.ordinal()];
+    }
+
     /**
      * Determine if the indicated move is a valid chess move.
      * @param oldRow of the piece to move (1-8)
@@ -182,22 +957,46 @@ public class ChessBoard {
         // There must be a piece to move
         if (isEmptySpace(oldRow, oldColumn))
             return false;
+        if (!isOnTheBoard(newRow, newColumn))
+            throw new OffTheChessBoardException(newRow, newColumn);
+        if (transpositionTable == null)
+            return checkValidMove(oldRow, oldColumn, newRow, newColumn);
+        final int move = Move.create(Bitboard.square(oldRow, oldColumn), Bitboard.square(newRow, newColumn));
+        final long key = getZobristKey() ^ movedPawnsKey() ^ queryKey(VALID_MOVE_QUERY, move);
+        final long cached = transpositionTable.probe(key);
+        if (cached != TranspositionTable.NO_ENTRY)
+            return cached != 0;
+        final boolean valid = checkValidMove(oldRow, oldColumn, newRow, newColumn);
+        transpositionTable.store(key, valid ? 1 : 0, 0);
+        return valid;
+    }
+
+    /**
+     * Work out whether a move is valid, without the transposition table.
+     * The spaces must be on the board and the first must hold a piece.
+     */
+    private boolean checkValidMove(int oldRow, int oldColumn, int newRow, int newColumn)
+    {
         ChessPiece piece = getPiece(oldRow, oldColumn);
         ChessPieceColor playerColor = piece.getColor();
         // moving to an empty space
         if (isEmptySpace(newRow, newColumn)) {
             // castling and en passant are special cases that requires knowledge of
             // ChessBoard's state
-            if ( canCastle(oldRow, oldColumn, newRow, newColumn) ||
-                 canEnPassant(oldRow, oldColumn, newRow, newColumn) )
+            if (canCastle(oldRow, oldColumn, newRow, newColumn))
                 return true;
+            if (canEnPassant(oldRow, oldColumn, newRow, newColumn))
+                return leavesKingSafe(Move.create(Bitboard.square(oldRow, oldColumn),
+                                                  Bitboard.square(newRow, newColumn),
+                                                  Move.EN_PASSANT),
+                                      playerColor);
             if (!piece.isValidMove(newRow, newColumn))
                 return false;
         // the space is occupied
         } else {
             if ( (!piece.canCapture(newRow, newColumn))
                  || // can't capture your own color
-                 (playerColor == getPiece(newRow, newColumn).getColor()) ) {
+                 (playerColor == getPieceColor(Bitboard.square(newRow, newColumn))) ) {
                 return false;
             }
         }
@@ -205,9 +1004,9 @@ public class ChessBoard {
         if (! (piece.isHoppable() || hasClearPath(oldRow, oldColumn, newRow, newColumn)) )
             return false;
         // Will this move put the king in check?
-        ChessBoard potential = new ChessBoard(this);
-        potential.move(oldRow, oldColumn, newRow, newColumn);
-        return potential.hasKing(playerColor) && !potential.inCheck(playerColor);
+        return isLegalMove(Move.create(Bitboard.square(oldRow, oldColumn),
+                                       Bitboard.square(newRow, newColumn)),
+                           playerColor);
     }
 
     /**
@@ -233,14 +1032,11 @@ public class ChessBoard {
      */
     public void move(int oldRow, int oldColumn, int newRow, int newColumn)
     {
-        ChessPiece movingPiece = getPiece(oldRow, oldColumn);
-        if (movingPiece != null) {
-            movingPiece.move(newRow, newColumn);
-            board[newRow][newColumn] = movingPiece;
-            board[oldRow][oldColumn] = null;
-
-            pieceLastMoved = movingPiece;
-            startRowOfPieceLastMoved = oldRow;
+        if (!isEmptySpace(oldRow, oldColumn)) {
+            if (!isOnTheBoard(newRow, newColumn))
+                throw new OffTheChessBoardException(newRow, newColumn);
+            makeMove(Move.create(Bitboard.square(oldRow, oldColumn),
+                                 Bitboard.square(newRow, newColumn)));
         }
     }
 
@@ -257,6 +1053,113 @@ public class ChessBoard {
         move(oldRank, oldFile.getColumn(), newRank, newFile.getColumn());
     }
 
+    /**
+     * Make a move in place without checking whether it's legal. The move can
+     * be taken back with {@link #unmakeMove()}. This doesn't allocate any
+     * memory, so it is the cheap way to try out a move.
+     * @param move encoded as described in {@link Move}; there must be a piece
+     * on the move's starting space
+     */
+    public void makeMove(int move)
+    {
+        final int from = Move.from(move);
+        final int to = Move.to(move);
+        final int flag = Move.flag(move);
+        final ChessPieceType movingType = pieceTypes[from];
+        assert movingType != null : Move.toString(move);
+        final ChessPieceColor color = getPieceColor(from);
+
+        MoveUndo undo = pushUndo();
+        undo.move = move;
+        undo.movedPieces = movedPieces;
+        undo.enPassantSquare = enPassantSquare;
+        undo.doublePushSquare = doublePushSquare;
+        undo.sideToMove = sideToMove;
+        undo.halfmoveClock = halfmoveClock;
+        undo.fullmoveNumber = fullmoveNumber;
+        undo.positionCounted = repetitions != null;
+        if (undo.positionCounted) {
+            undo.positionKey = getZobristKey();
+            repetitions.add(undo.positionKey);
+        }
+
+        // an en passant capture takes the pawn beside the moving pawn
+        undo.capturedSquare = (flag == Move.EN_PASSANT)
+                ? Bitboard.square(Bitboard.row(from), Bitboard.column(to))
+                : to;
+        undo.capturedColor = getPieceColor(undo.capturedSquare);
+        undo.capturedType = removePiece(undo.capturedSquare);
+
+        removePiece(from);
+        if (Move.isPromotion(move)) {
+            // the new piece hasn't moved yet
+            putPiece(Move.promotionType(move), color, to);
+        } else {
+            putPiece(movingType, color, to);
+            movedPieces |= Bitboard.bit(to);
+        }
+
+        if (flag == Move.CASTLE) {
+            final int rookFrom = castlingRookStart(to);
+            final int rookTo = castlingRookEnd(to);
+            final ChessPieceColor rookColor = getPieceColor(rookFrom);
+            putPiece(removePiece(rookFrom), rookColor, rookTo);
+            movedPieces |= Bitboard.bit(rookTo);
+        }
+
+        if (movingType == ChessPieceType.PAWN && Math.abs(Bitboard.row(to) - Bitboard.row(from)) == 2) {
+            enPassantSquare = Bitboard.square((Bitboard.row(from) + Bitboard.row(to)) / 2, Bitboard.column(to));
+            doublePushSquare = to;
+        } else {
+            enPassantSquare = NO_SQUARE;
+            doublePushSquare = NO_SQUARE;
+        }
+        sideToMove = color.otherColor();
+        if (movingType == ChessPieceType.PAWN || undo.capturedType != null)
+            halfmoveClock = 0;
+        else
+            halfmoveClock++;
+        if (color == ChessPieceColor.BLACK)
+            fullmoveNumber++;
+    }
+
+    /**
+     * Take back the last move made with {@link #makeMove(int)} (or with
+     * {@link #move(int, int, int, int)}, {@link #castle(int, int, int, int)}
+     * and {@link #enPassant(int, int, int, int)}, which use it). Captured
+     * pieces, moved flags and en passant state are all restored.
+     * @throws IllegalStateException if there is no move to take back
+     */
+    public void unmakeMove()
+    {
+        if (undoCount == 0)
+            throw new IllegalStateException("There is no move to take back.");
+        final MoveUndo undo = undoStack[--undoCount];
+        final int from = Move.from(undo.move);
+        final int to = Move.to(undo.move);
+
+        if (Move.flag(undo.move) == Move.CASTLE) {
+            final int rookTo = castlingRookEnd(to);
+            final ChessPieceColor rookColor = getPieceColor(rookTo);
+            putPiece(removePiece(rookTo), rookColor, castlingRookStart(to));
+        }
+
+        final ChessPieceColor color = getPieceColor(to);
+        final ChessPieceType movedType = removePiece(to);
+        putPiece(Move.isPromotion(undo.move) ? ChessPieceType.PAWN : movedType, color, from);
+        if (undo.capturedType != null)
+            putPiece(undo.capturedType, undo.capturedColor, undo.capturedSquare);
+
+        movedPieces = undo.movedPieces;
+        enPassantSquare = undo.enPassantSquare;
+        doublePushSquare = undo.doublePushSquare;
+        sideToMove = undo.sideToMove;
+        halfmoveClock = undo.halfmoveClock;
+        fullmoveNumber = undo.fullmoveNumber;
+        if (undo.positionCounted && repetitions != null)
+            repetitions.remove(undo.positionKey);
+    }
+
     /**
      * Determine if a king can castle to the given location.
      * @param kingRow of the king (1-8)
@@ -268,42 +1171,43 @@ public class ChessBoard {
      */
     public boolean canCastle(int kingRow, int kingColumn, int newRow, int newColumn)
     {
-        ChessPiece king = getPiece(kingRow, kingColumn);
+        if (!isOnTheBoard(kingRow, kingColumn))
+            throw new OffTheChessBoardException(kingRow, kingColumn);
+        int kingSquare = Bitboard.square(kingRow, kingColumn);
         // must have a king there
-        if (!(king instanceof King))
+        if (pieceTypes[kingSquare] != ChessPieceType.KING)
             return false;
         // King can't have moved from its starting position
-        if (!king.inStartingPosition())
+        if (!inStartingPosition(kingSquare))
             return false;
         // king and rook must be on same row
         if (kingRow != newRow)
             return false;
-        ChessPiece rook;
+        int rookColumn;
         // have to move to column 3 or 7
         if (newColumn == 3) {
-            rook = getPiece(kingRow, 1); // left (queenside) rook
+            rookColumn = 1; // left (queenside) rook
         } else if (newColumn == 7) {
-            rook = getPiece(kingRow, 8); // right (kingside) rook
+            rookColumn = 8; // right (kingside) rook
         } else { // king isn't moving to the right column for castling
             return false;
         }
         // have to have a rook that hasn't moved from its starting position
-        if (!(rook instanceof Rook) || !rook.inStartingPosition())
+        int rookSquare = Bitboard.square(kingRow, rookColumn);
+        if (pieceTypes[rookSquare] != ChessPieceType.ROOK || !inStartingPosition(rookSquare))
             return false;
         // no other pieces between king and rook
-        if (!hasClearPath(kingRow, kingColumn, rook.getRow(), rook.getColumn()))
+        if (!hasClearPath(kingRow, kingColumn, kingRow, rookColumn))
             return false;
         // King can't be in check
-        if (inCheck(king.getColor()))
+        ChessPieceColor color = getPieceColor(kingSquare);
+        if (inCheck(color))
             return false;
         // King can't move through a square that would put it in check,
         // so look ahead two spaces.
         int stepDirection = (newColumn == 3) ? -1 : 1; // -1 = left, 1 = right
-        ChessBoard oneStep = new ChessBoard(this);
-        oneStep.move(kingRow, kingColumn, newRow, kingColumn + stepDirection);
-        ChessBoard twoSteps = new ChessBoard(oneStep);
-        twoSteps.move(kingRow, kingColumn + stepDirection, newRow, newColumn);
-        return !( oneStep.inCheck(king.getColor()) || twoSteps.inCheck(king.getColor()) );
+        return isLegalMove(Move.create(kingSquare, kingSquare + stepDirection), color) &&
+               isLegalMove(Move.create(kingSquare, Bitboard.square(newRow, newColumn)), color);
     }
 
     /**
@@ -333,12 +1237,10 @@ public class ChessBoard {
     {
         if (!canCastle(kingRow, kingColumn, newRow, newColumn))
             return; // do nothing
-        // forced because castling isn't handled in King.isValidMove()
-        move(kingRow, kingColumn, newRow, newColumn); // move king
-        if (newColumn == 7) // right castle
-            move(newRow, 8, newRow, 6);
-        else // left castle
-            move(newRow, 1, newRow, 4);
+        // moves the rook too, since castling isn't handled in King.isValidMove()
+        makeMove(Move.create(Bitboard.square(kingRow, kingColumn),
+                             Bitboard.square(newRow, newColumn),
+                             Move.CASTLE));
     }
 
     /**
@@ -367,23 +1269,19 @@ public class ChessBoard {
      */
     public boolean canEnPassant(int oldRow, int oldColumn, int newRow, int newColumn)
     {
-        ChessPiece pieceToMove = getPiece(oldRow, oldColumn);
-        // both pieces have to be pawns
-        if (!(pieceLastMoved instanceof Pawn) || !(pieceToMove instanceof Pawn))
-            return false;
-        // positive -> black pawn moved, negative -> white pawn moved
-        final int deltaRow = startRowOfPieceLastMoved - pieceLastMoved.getRow();
-        // pawn must have made a double move
-        if (Math.abs(deltaRow) != 2)
+        if (!isOnTheBoard(oldRow, oldColumn))
+            throw new OffTheChessBoardException(oldRow, oldColumn);
+        // the last move has to be a pawn's double move
+        final int capture = getEnPassantSquare();
+        final int from = Bitboard.square(oldRow, oldColumn);
+        if (capture == NO_SQUARE || pieceTypes[from] != ChessPieceType.PAWN)
             return false;
         // A double move only happens from the Pawn's starting position, so if
         // you can capture the place they skipped in the double move, your Pawn
         // is on its fifth rank.
-        final int captureRow = pieceLastMoved.getRow() + Integer.signum(deltaRow);
-        final int captureColumn = pieceLastMoved.getColumn();
-        return (pieceToMove.canCapture(captureRow, captureColumn) &&
-                newRow == captureRow &&
-                newColumn == captureColumn);
+        return (Bitboard.contains(Attacks.pawnAttacks(from, getPieceColor(from)), capture) &&
+                isOnTheBoard(newRow, newColumn) &&
+                Bitboard.square(newRow, newColumn) == capture);
     }
 
     /**
@@ -412,8 +1310,9 @@ public class ChessBoard {
     public void enPassant(int oldRow, int oldColumn, int newRow, int newColumn)
     {
         if (canEnPassant(oldRow, oldColumn, newRow, newColumn)) {
-            board[oldRow][newColumn] = null;
-            move(oldRow, oldColumn, newRow, newColumn);
+            makeMove(Move.create(Bitboard.square(oldRow, oldColumn),
+                                 Bitboard.square(newRow, newColumn),
+                                 Move.EN_PASSANT));
         }
     }
 
@@ -439,11 +1338,14 @@ public class ChessBoard {
      */
     public boolean canPromotePawn(int row, int column)
     {
-        ChessPiece piece = getPiece(row, column);
-        if (piece instanceof Pawn) {
-            if ( ((piece.getColor() == ChessPieceColor.WHITE) && (piece.getRow() == 8))
+        if (!isOnTheBoard(row, column))
+            throw new OffTheChessBoardException(row, column);
+        final int square = Bitboard.square(row, column);
+        if (pieceTypes[square] == ChessPieceType.PAWN) {
+            final ChessPieceColor color = getPieceColor(square);
+            if ( ((color == ChessPieceColor.WHITE) && (row == 8))
                  ||
-                 ((piece.getColor() == ChessPieceColor.BLACK) && (piece.getRow() == 1)) )
+                 ((color == ChessPieceColor.BLACK) && (row == 1)) )
                 return true;
         }
         return false;
@@ -469,7 +1371,21 @@ public class ChessBoard {
      */
     public boolean hasKing(ChessPieceColor color)
     {
-        return getKing(color) != null;
+        return kingSquare(color) != NO_SQUARE;
+    }
+
+    /**
+     * Get the space of a player's king. This is kept up to date as pieces
+     * move, so it doesn't need to search the board.
+     * @param color of the king
+     * @return index of the king's space (see {@link Bitboard}), or
+     * {@link #NO_SQUARE} if the player has no king on the board
+     */
+    public int kingSquare(ChessPieceColor color)
+    {
+        if (color == ChessPieceColor.NONE)
+            return NO_SQUARE;
+        return kingSquares[color.ordinal()];
     }
 
     /**
@@ -480,21 +1396,10 @@ public class ChessBoard {
      */
     public boolean inCheck(ChessPieceColor currentPlayer)
     {
-        ChessPiece myKing = getKing(currentPlayer);
-        if (myKing == null)
+        if (currentPlayer == ChessPieceColor.NONE)
             return false;
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPiece attackingPiece = getPiece(row, col);
-                // has to be an enemy piece
-                if (attackingPiece != null && attackingPiece.getColor() != currentPlayer) {
-                    // can this peace capture the king?
-                    if (isValidMove(row, col, myKing.getRow(), myKing.getColumn()))
-                        return true;
-                }
-            }
-        }
-        return false;
+        final int king = kingSquares[currentPlayer.ordinal()];
+        return king != NO_SQUARE && Bitboard.contains(getAttackedSquares(currentPlayer.otherColor()), king);
     }
 
     /**
@@ -506,7 +1411,7 @@ public class ChessBoard {
      */
     public boolean checkmate(ChessPieceColor currentPlayer)
     {
-        return hasNoValidMoves(currentPlayer) && inCheck(currentPlayer);
+        return gameStatus(currentPlayer) == GameStatus.CHECKMATE;
     }
 
     /**
@@ -517,7 +1422,34 @@ public class ChessBoard {
      */
     public boolean stalemate(ChessPieceColor currentPlayer)
     {
-        return hasNoValidMoves(currentPlayer) && !inCheck(currentPlayer);
+        return gameStatus(currentPlayer) == GameStatus.STALEMATE;
+    }
+
+    /**
+     * Determine the state of the game for the player whose turn it is. Check
+     * and whether the player has any valid moves are worked out together in
+     * one pass, and the result is remembered until the board changes, so
+     * asking again (or calling {@link #checkmate(ChessPieceColor)} and
+     * {@link #stalemate(ChessPieceColor)}) costs nothing.
+     * @param currentPlayer whose turn it is
+     * @return the state of the game for that player
+     */
+    public GameStatus gameStatus(ChessPieceColor currentPlayer)
+    {
+        final int index = currentPlayer.ordinal();
+        if (cachedStatusVersion[index] == positionVersion)
+            return cachedStatus[index];
+        final boolean check = inCheck(currentPlayer);
+        final GameStatus status;
+        if (hasNoValidMoves(currentPlayer))
+            status = check ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+        else
+            status = check ? GameStatus.CHECK : GameStatus.IN_PROGRESS;
+        // looking for valid moves makes and unmakes moves, which leaves the
+        // board as it was but bumps the version
+        cachedStatus[index] = status;
+        cachedStatusVersion[index] = positionVersion;
+        return status;
     }
 
     /**
@@ -559,156 +1491,479 @@ public class ChessBoard {
      */
     private boolean hasNoValidMoves(ChessPieceColor currentPlayer)
     {
-        // check every space for my pieces
-        for (int row = 1; row <= BOARD_SIZE; row++) {
-            for (int col = 1; col <= BOARD_SIZE; col++) {
-                ChessPiece pieceToCheck = getPiece(row, col);
-                // if it is one of my chess pieces
-                if (pieceToCheck != null && pieceToCheck.getColor() == currentPlayer) {
-                    // see if it has any valid moves
-                    if (hasValidMoves(pieceToCheck))
-                        return false;
-                }
-            }
+        if (currentPlayer == ChessPieceColor.NONE)
+            return true;
+        if (scratchMoves == null)
+            scratchMoves = new MoveList();
+        if (transpositionTable == null)
+            return !MoveGenerator.hasLegalMove(this, currentPlayer, scratchMoves);
+        final long key = getZobristKey() ^ movedPawnsKey() ^ queryKey(NO_VALID_MOVES_QUERY, currentPlayer.ordinal());
+        final long cached = transpositionTable.probe(key);
+        if (cached != TranspositionTable.NO_ENTRY)
+            return cached != 0;
+        final boolean noMoves = !MoveGenerator.hasLegalMove(this, currentPlayer, scratchMoves);
+        transpositionTable.store(key, noMoves ? 1 : 0, 0);
+        return noMoves;
+    }
+
+    /**
+     * Scramble a question about a position into a number to combine with the
+     * position's Zobrist key, so that each question about each position gets
+     * its own entry in the transposition table.
+     * @param query {@link #VALID_MOVE_QUERY} or {@link #NO_VALID_MOVES_QUERY}
+     * @param argument details of the question, e.g. the move (under 2^16)
+     * @return the number for the question
+     */
+    private static long queryKey(int query, int argument)
+    {
+        return mix((long) query << 16 | argument);
+    }
+
+    /**
+     * Get a number to combine with the Zobrist key for the pawns that are
+     * back on their starting spaces after moving, which can't move two
+     * spaces forward. The Zobrist key can't tell them from unmoved pawns
+     * (they can only come up on boards set up with {@link #addPiece(ChessPiece)}
+     * or {@link #move(int, int, int, int)}), so without this the
+     * transposition table would give them an unmoved pawn's answers.
+     * @return 0 if there are no such pawns
+     */
+    private long movedPawnsKey()
+    {
+        final int white = bitboardIndex(ChessPieceType.PAWN, ChessPieceColor.WHITE);
+        final int black = bitboardIndex(ChessPieceType.PAWN, ChessPieceColor.BLACK);
+        final long movedPawns = movedPieces & ((pieceBitboards[white] & STARTING_SPACES[white])
+                                               | (pieceBitboards[black] & STARTING_SPACES[black]));
+        return (movedPawns == Bitboard.EMPTY) ? 0 : mix(movedPawns);
+    }
+
+    /**
+     * Scramble a number with the SplitMix64 finalizer, a cheap mix with no
+     * fixed point but zero.
+     * @param value to scramble
+     * @return the scrambled number
+     */
+    private static long mix(long value)
+    {
+        long z = value * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Determine if a pseudo-legal move leaves the player's king safe, from
+     * the pins and checks in the position rather than by making the move. A
+     * King may go to any space no enemy piece would attack once it has left
+     * its own; any other piece must stay on the line to its king if pinned,
+     * and must capture or block the checking piece if the king is in check
+     * (a double check only lets the King move). The pins and checks are
+     * worked out once per position, so each move is a few bitboard tests.
+     * En passant, which takes two pieces off one line at once, and boards
+     * without exactly one king of the player's color fall back on
+     * {@link #leavesKingSafe(int, ChessPieceColor)}. Castling moves are
+     * only checked as the King's last step; see
+     * {@link #canCastle(int, int, int, int)}.
+     * @param move to test, encoded as described in {@link Move}
+     * @param playerColor of the moving piece
+     * @return true if the player's king isn't in check after the move,
+     * false otherwise
+     */
+    boolean isLegalMove(int move, ChessPieceColor playerColor)
+    {
+        if (playerColor == ChessPieceColor.NONE || Move.flag(move) == Move.EN_PASSANT)
+            return leavesKingSafe(move, playerColor);
+        final long kings = pieceBitboards[bitboardIndex(ChessPieceType.KING, playerColor)];
+        if (Bitboard.count(kings) != 1)
+            return leavesKingSafe(move, playerColor);
+        final int king = Bitboard.lowestSquare(kings);
+        final int from = Move.from(move);
+        final int to = Move.to(move);
+        if (from == king)
+            return attackersOf(to, occupiedBitboard & ~kings, playerColor.otherColor()) == Bitboard.EMPTY;
+        if (pinsVersion != positionVersion || pinsColor != playerColor)
+            findPinsAndChecks(playerColor, king);
+        if (Bitboard.contains(pinnedPieces, from) && !Bitboard.contains(Attacks.line(king, from), to))
+            return false;
+        if (checkingPieces == Bitboard.EMPTY)
+            return true;
+        if (Bitboard.popLowest(checkingPieces) != Bitboard.EMPTY)
+            return false;
+        final int checker = Bitboard.lowestSquare(checkingPieces);
+        return to == checker || Bitboard.contains(Attacks.between(king, checker), to);
+    }
+
+    /**
+     * Work out which of a player's pieces are pinned to its king and which
+     * enemy pieces give check, for {@link #isLegalMove(int, ChessPieceColor)}.
+     * @param color of the player (BLACK or WHITE)
+     * @param king space of the player's only king
+     */
+    private void findPinsAndChecks(ChessPieceColor color, int king)
+    {
+        final ChessPieceColor enemy = color.otherColor();
+        final int first = enemy.ordinal() * ChessPieceType.COUNT;
+        final long queens = pieceBitboards[first + ChessPieceType.QUEEN.ordinal()];
+        final long straight = pieceBitboards[first + ChessPieceType.ROOK.ordinal()] | queens;
+        final long diagonal = pieceBitboards[first + ChessPieceType.BISHOP.ordinal()] | queens;
+        // enemy sliders that would attack the king on an empty board pin
+        // the only piece between them and the king, if it is the player's
+        long snipers = (Attacks.rookAttacks(king, Bitboard.EMPTY) & straight)
+                     | (Attacks.bishopAttacks(king, Bitboard.EMPTY) & diagonal);
+        long pinned = Bitboard.EMPTY;
+        for (; snipers != 0; snipers = Bitboard.popLowest(snipers)) {
+            final long blockers = Attacks.between(king, Bitboard.lowestSquare(snipers)) & occupiedBitboard;
+            if (blockers != Bitboard.EMPTY && Bitboard.popLowest(blockers) == Bitboard.EMPTY)
+                pinned |= blockers & colorBitboards[color.ordinal()];
         }
-        return true;
+        pinnedPieces = pinned;
+        checkingPieces = attackersOf(king, occupiedBitboard, enemy);
+        pinsColor = color;
+        pinsVersion = positionVersion;
     }
 
     /**
-     * Determine if a ChessPiece has any valid moves to make
-     * @param piece to check
-     * @return true if the piece can make any moves, false otherwise
+     * Find a player's pieces that attack a space.
+     * @param square index of the space (0-63)
+     * @param occupied bitboard of the spaces that block sliding pieces
+     * @param attackerColor color of the attacking player (BLACK or WHITE)
+     * @return bitboard of the attacking pieces
      */
-    private boolean hasValidMoves(ChessPiece piece)
+    private long attackersOf(int square, long occupied, ChessPieceColor attackerColor)
     {
-        for (int row = 1; row <= BOARD_SIZE; row++) {
-            for (int col = 1; col <= BOARD_SIZE; col++) {
-                if (isValidMove(piece.getRow(), piece.getColumn(), row, col))
-                    return true;
-            }
+        final int first = attackerColor.ordinal() * ChessPieceType.COUNT;
+        final long queens = pieceBitboards[first + ChessPieceType.QUEEN.ordinal()];
+        // a piece attacks the space exactly when the same piece on the space
+        // would attack it, except that Pawns attack in opposite directions
+        return (Attacks.pawnAttacks(square, attackerColor.otherColor())
+                    & pieceBitboards[first + ChessPieceType.PAWN.ordinal()])
+             | (Attacks.knightAttacks(square) & pieceBitboards[first + ChessPieceType.KNIGHT.ordinal()])
+             | (Attacks.kingAttacks(square) & pieceBitboards[first + ChessPieceType.KING.ordinal()])
+             | (Attacks.rookAttacks(square, occupied)
+                    & (pieceBitboards[first + ChessPieceType.ROOK.ordinal()] | queens))
+             | (Attacks.bishopAttacks(square, occupied)
+                    & (pieceBitboards[first + ChessPieceType.BISHOP.ordinal()] | queens));
+    }
+
+    /**
+     * Try out a move and see if it leaves the player's king safe.
+     * @param move to try, encoded as described in {@link Move}
+     * @param playerColor of the moving piece
+     * @return true if the player still has a king and it isn't in check
+     * after the move, false otherwise
+     */
+    boolean leavesKingSafe(int move, ChessPieceColor playerColor)
+    {
+        makeMove(move);
+        boolean safe = hasKing(playerColor) && !inCheck(playerColor);
+        unmakeMove();
+        return safe;
+    }
+
+    /**
+     * Get the next free record on the undo stack, growing it if necessary.
+     * @return the record for the move being made
+     */
+    private MoveUndo pushUndo()
+    {
+        if (undoCount == undoStack.length) {
+            MoveUndo[] larger = new MoveUndo[Math.max(16, undoStack.length * 2)];
+            System.arraycopy(undoStack, 0, larger, 0, undoStack.length);
+            for (int i = undoStack.length; i < larger.length; i++)
+                larger[i] = new MoveUndo();
+            undoStack = larger;
         }
-        return false;
+        return undoStack[undoCount++];
     }
 
     /**
-     * Return a reference to the king of the given player. Assumes that there is
-     * exactly one king for each player.
-     * @param player the King's color
-     * @return the king of the player
+     * Get the space of the rook that takes part in a castle.
+     * @param kingDestination space the king castles to
+     * @return the rook's space before castling
      */
-    private ChessPiece getKing(ChessPieceColor player)
+    private static int castlingRookStart(int kingDestination)
     {
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPiece piece = getPiece(row, col);
-                if ((piece instanceof King) && (piece.getColor() == player))
-                    return piece;
+        // kingside rooks start in column 8, queenside in column 1
+        return (Bitboard.column(kingDestination) == 7) ? kingDestination + 1 : kingDestination - 2;
+    }
+
+    /**
+     * Get the space a rook ends up on after castling.
+     * @param kingDestination space the king castles to
+     * @return the rook's space after castling
+     */
+    private static int castlingRookEnd(int kingDestination)
+    {
+        // the rook lands on the space the king passed over
+        return (Bitboard.column(kingDestination) == 7) ? kingDestination - 1 : kingDestination + 1;
+    }
+
+    /**
+     * Determine if a player's King and one of their corner Rooks are both
+     * still unmoved on their starting spaces.
+     * @param color of the player
+     * @param row the player's back row (1 or 8)
+     * @param rookColumn column of the Rook (1 or 8)
+     * @return true if that castling right remains, false otherwise
+     */
+    private boolean hasCastlingRight(ChessPieceColor color, int row, int rookColumn)
+    {
+        final int kingSquare = Bitboard.square(row, 5);
+        final int rookSquare = Bitboard.square(row, rookColumn);
+        return pieceTypes[kingSquare] == ChessPieceType.KING && getPieceColor(kingSquare) == color &&
+               inStartingPosition(kingSquare) &&
+               pieceTypes[rookSquare] == ChessPieceType.ROOK && getPieceColor(rookSquare) == color &&
+               inStartingPosition(rookSquare);
+    }
+
+    /**
+     * Mark the Rook in a corner as moved unless its castling right is kept.
+     * @param rights castling rights to keep
+     * @param right the castling right of this Rook
+     * @param row of the Rook (1 or 8)
+     * @param column of the Rook (1 or 8)
+     */
+    private void removeCastlingRight(int rights, int right, int row, int column)
+    {
+        final int square = Bitboard.square(row, column);
+        if (pieceTypes[square] == ChessPieceType.ROOK && (rights & right) == 0)
+            movedPieces |= Bitboard.bit(square);
+    }
+
+    /**
+     * Skip the spaces (or other whitespace) between the fields of a Forsyth-Edwards Notation string.
+     * @param fen the string
+     * @param index to start at
+     * @return index of the next character that isn't a space
+     */
+    private static int skipSpaces(String fen, int index)
+    {
+        while (index < fen.length() && fen.charAt(index) <= ' ')
+            index++;
+        return index;
+    }
+
+    /**
+     * Read one digit of a Forsyth-Edwards Notation move clock.
+     * @param fen the string
+     * @param index of the digit
+     * @return the digit's value (0-9)
+     */
+    private static int digit(String fen, int index)
+    {
+        final char symbol = fen.charAt(index);
+        if (symbol < '0' || symbol > '9')
+            throw badFen(fen, "bad move clock");
+        return symbol - '0';
+    }
+
+    /**
+     * Build the exception for a Forsyth-Edwards Notation string that can't
+     * be read.
+     * @param fen the string
+     * @param problem what is wrong with it
+     * @return the exception to throw
+     */
+    private static IllegalArgumentException badFen(String fen, String problem)
+    {
+        return new IllegalArgumentException("Bad FEN (" + problem + "): " + fen);
+    }
+
+    /**
+     * Work out the starting spaces of every kind of chess piece by asking
+     * an unmoved piece of that kind on every space.
+     * @return the starting spaces, indexed like {@link #pieceBitboards}
+     */
+    private static long[] startingSpaces()
+    {
+        final long[] spaces = new long[PLAYER_COUNT * ChessPieceType.COUNT];
+        final ChessPieceColor[] colors = { ChessPieceColor.WHITE, ChessPieceColor.BLACK };
+        for (ChessPieceColor color : colors) {
+            for (ChessPieceType type : PIECE_TYPES) {
+                for (int square = 0; square < Bitboard.SQUARE_COUNT; square++) {
+                    if (createPiece(type, Bitboard.row(square), Bitboard.column(square), color).inStartingPosition())
+                        spaces[bitboardIndex(type, color)] |= Bitboard.bit(square);
+                }
             }
         }
-        return null;
+        return spaces;
     }
 
     /**
-     * Determine if there is a clear (unobstructed) path between the two positions on the
-     * chess board. Do not use this function on hoppable chess pieces.
-     * @param oldRow of the piece to move
-     * @param oldColumn of the piece to move
-     * @param newRow where the piece will be moved
-     * @param newColumn where the piece will be moved
-     * @return true if there is a clear path between the old position and the
-     * new one, false otherwise
+     * Build a new chess piece of the given type.
+     * @param type of the chess piece
+     * @param row of the chess piece (1-8)
+     * @param column of the chess piece (1-8)
+     * @param color BLACK or WHITE
+     * @return the new chess piece
      */
-    private boolean hasClearPath(int oldRow, int oldColumn, int newRow, int newColumn)
+    private static ChessPiece createPiece(ChessPieceType type, int row, int column, ChessPieceColor color)
     {
-        assert !isEmptySpace(oldRow, oldColumn);
-        assert !(oldRow == newRow && oldColumn == newColumn);
-        assert !getPiece(oldRow, oldColumn).isHoppable();
-        int deltaRow = newRow - oldRow;
-        int deltaColumn = newColumn - oldColumn;
-        // horizontal movement
-        if (deltaRow == 0 && deltaColumn != 0) {
-            return hasClearHorizontal(oldRow, oldColumn, newColumn);
-        // vertical movement
-        } else if (deltaRow != 0 && deltaColumn == 0) {
-            return hasClearVertical(oldColumn, oldRow, newRow);
-        // diagonal movement
-        } else if (Math.abs(deltaRow) == Math.abs(deltaColumn)) {
-            return hasClearDiagonal(oldRow,
-                                    oldColumn,
-                                    Math.abs(deltaRow),
-                                    Integer.signum(deltaRow),
-                                    Integer.signum(deltaColumn));
+        switch (type) {
+        case PAWN:   return new Pawn(row, column, color);
+        case KNIGHT: return new Knight(row, column, color);
+        case BISHOP: return new Bishop(row, column, color);
+        case ROOK:   return new Rook(row, column, color);
+        case QUEEN:  return new Queen(row, column, color);
+        case KING:   return new King(row, column, color);
+        default:
+            throw new IllegalArgumentException("Unknown chess piece type: " + type);
         }
-        // All non-hoppable pieces move either vertically, horizontally, or diagonally.
-        assert false; // This line should never actually execute.
-        return false;
     }
 
     /**
-     * Determine if there are any chess pieces between two columns on the chess
-     * board.
-     * @param row of the chess piece
-     * @param startColumn of the chess piece
-     * @param endColumn of the chess piece
-     * @return true if there are no pieces between the start and end, false
-     * otherwise
+     * Get the index into {@link #pieceBitboards} for a kind of chess piece.
+     * @param type of the chess piece
+     * @param color of the chess piece (BLACK or WHITE)
+     * @return index of the matching bitboard
      */
-    private boolean hasClearHorizontal(int row, int startColumn, int endColumn)
+    private static int bitboardIndex(ChessPieceType type, ChessPieceColor color)
     {
-        assert isOnTheBoard(row, startColumn) : startColumn;
-        assert isOnTheBoard(row, endColumn) : endColumn;
-        int lower = Math.min(startColumn, endColumn);
-        int upper = Math.max(startColumn, endColumn);
-        // check every space between the two columns
-        for (int column = lower + 1; column < upper; ++column) {
-            if (!isEmptySpace(row, column))
-                return false;
+        return color.ordinal() * ChessPieceType.COUNT + type.ordinal();
+    }
+
+    /**
+     * Place a chess piece on a space, replacing whatever was there. This and
+     * {@link #removePiece(int)} are the only places that modify the bitboards.
+     * The piece counts as unmoved until {@link #movedPieces} says otherwise.
+     * @param type of the piece to place
+     * @param color of the piece (BLACK or WHITE)
+     * @param square index of the space (0-63)
+     */
+    private void putPiece(ChessPieceType type, ChessPieceColor color, int square)
+    {
+        if (pieceTypes[square] != null)
+            removePiece(square);
+        long bit = Bitboard.bit(square);
+        pieceBitboards[bitboardIndex(type, color)] |= bit;
+        colorBitboards[color.ordinal()] |= bit;
+        occupiedBitboard |= bit;
+        changedSquares |= bit;
+        positionVersion++;
+        pieceKey ^= Zobrist.pieceKey(type, color, square);
+        middlegameScore += Evaluator.middlegameValue(type, color, square);
+        endgameScore += Evaluator.endgameValue(type, color, square);
+        gamePhase += Evaluator.phaseWeight(type);
+        pieceTypes[square] = type;
+        if (type == ChessPieceType.KING)
+            kingSquares[color.ordinal()] = square;
+    }
+
+    /**
+     * Take the chess piece off a space.
+     * @param square index of the space (0-63)
+     * @return the type of the piece that was removed, or null if the space
+     * was empty
+     */
+    private ChessPieceType removePiece(int square)
+    {
+        final ChessPieceType type = pieceTypes[square];
+        if (type == null)
+            return null;
+        final ChessPieceColor color = getPieceColor(square);
+        long bit = Bitboard.bit(square);
+        pieceBitboards[bitboardIndex(type, color)] &= ~bit;
+        colorBitboards[color.ordinal()] &= ~bit;
+        occupiedBitboard &= ~bit;
+        changedSquares |= bit;
+        positionVersion++;
+        pieceKey ^= Zobrist.pieceKey(type, color, square);
+        middlegameScore -= Evaluator.middlegameValue(type, color, square);
+        endgameScore -= Evaluator.endgameValue(type, color, square);
+        gamePhase -= Evaluator.phaseWeight(type);
+        pieceTypes[square] = null;
+        movedPieces &= ~bit;
+        if (kingSquares[color.ordinal()] == square) {
+            // fall back on any other king of that color (only possible on
+            // boards set up by hand)
+            long kings = pieceBitboards[bitboardIndex(ChessPieceType.KING, color)];
+            kingSquares[color.ordinal()] = (kings == Bitboard.EMPTY) ? NO_SQUARE : Bitboard.lowestSquare(kings);
         }
-        return true;
+        return type;
     }
 
     /**
-     * Determine if there are any chess pieces between two rows on the chess
-     * board.
-     * @param column of the chess piece
-     * @param startRow of the chess piece
-     * @param endRow of the chess piece
-     * @return true if there are no pieces between the start and end, false
-     * otherwise
+     * Bring the attack maps up to date with the spaces that changed since
+     * the last refresh. Only the pieces on changed spaces and the sliding
+     * pieces whose lines of attack reached a changed space can attack
+     * differently, so only those are recomputed.
      */
-    private boolean hasClearVertical(int column, int startRow, int endRow)
+    private void refreshAttacks()
     {
-        assert isOnTheBoard(startRow, column) : startRow;
-        assert isOnTheBoard(endRow, column) : endRow;
-        int lower = Math.min(startRow, endRow);
-        int upper = Math.max(startRow, endRow);
-        // check every space between the two rows
-        for (int row = lower + 1; row < upper; ++row) {
-            if (!isEmptySpace(row, column))
-                return false;
+        final long changed = changedSquares;
+        changedSquares = 0;
+        long recompute = changed & occupiedBitboard;
+        long sliders = Bitboard.EMPTY;
+        for (int color = 0; color < PLAYER_COUNT; color++) {
+            int first = color * ChessPieceType.COUNT;
+            sliders |= pieceBitboards[first + ChessPieceType.BISHOP.ordinal()]
+                     | pieceBitboards[first + ChessPieceType.ROOK.ordinal()]
+                     | pieceBitboards[first + ChessPieceType.QUEEN.ordinal()];
+        }
+        for (sliders &= ~changed; sliders != 0; sliders = Bitboard.popLowest(sliders)) {
+            int square = Bitboard.lowestSquare(sliders);
+            if ((attacksFrom[square] & changed) != 0)
+                recompute |= Bitboard.bit(square);
+        }
+        for (; recompute != 0; recompute = Bitboard.popLowest(recompute)) {
+            int square = Bitboard.lowestSquare(recompute);
+            attacksFrom[square] = computeAttacks(pieceTypes[square], getPieceColor(square), square);
+        }
+        for (int color = 0; color < PLAYER_COUNT; color++) {
+            long attacked = Bitboard.EMPTY;
+            for (long own = colorBitboards[color]; own != 0; own = Bitboard.popLowest(own))
+                attacked |= attacksFrom[Bitboard.lowestSquare(own)];
+            attackedBitboards[color] = attacked;
         }
-        return true;
     }
 
     /**
-     * Determine if any chess pieces block the diagonal movement of a chess piece.
-     * @param row of the piece to move
-     * @param column of the piece to move
-     * @param spacesApart the number of steps between the piece and its destination
-     * @param rowStep the size of a single step between rows (-1 or 1)
-     * @param columnStep the size of a single step between columns (-1 or 1)
-     * @return true if no pieces block the diagonal moving piece, false otherwise
+     * Compute the spaces a piece attacks given the current occupancy.
+     * @param type of the piece on the space
+     * @param color of the piece
+     * @param square index of the piece's space (0-63)
+     * @return bitboard of the attacked spaces
      */
-    private boolean hasClearDiagonal(int row, int column, int spacesApart, int rowStep, int columnStep)
+    private long computeAttacks(ChessPieceType type, ChessPieceColor color, int square)
     {
-        assert isOnTheBoard(row, column);
-        assert isOnTheBoard(row + spacesApart * rowStep, column + spacesApart * columnStep);
-        assert rowStep == 1 || rowStep == -1 : rowStep;
-        assert columnStep == 1 || columnStep == -1 : columnStep;
-        for (int offset = 1; offset < spacesApart; ++offset) {
-            if (!isEmptySpace(row + (offset * rowStep), column + (offset * columnStep)))
-                return false;
+        switch (type) {
+        case PAWN:   return Attacks.pawnAttacks(square, color);
+        case KNIGHT: return Attacks.knightAttacks(square);
+        case BISHOP: return Attacks.bishopAttacks(square, occupiedBitboard);
+        case ROOK:   return Attacks.rookAttacks(square, occupiedBitboard);
+        case QUEEN:  return Attacks.queenAttacks(square, occupiedBitboard);
+        case KING:   return Attacks.kingAttacks(square);
+        default:     return Bitboard.EMPTY;
         }
-        return true;
+    }
+
+    /**
+     * Determine if there is a clear (unobstructed) path between the two positions on the
+     * chess board. Do not use this function on hoppable chess pieces. A Rook
+     * or Bishop on the old position attacks the new one exactly when nothing
+     * is in between, so this is one attack table lookup.
+     * @param oldRow of the piece to move
+     * @param oldColumn of the piece to move
+     * @param newRow where the piece will be moved
+     * @param newColumn where the piece will be moved
+     * @return true if there is a clear path between the old position and the
+     * new one, false otherwise
+     */
+    private boolean hasClearPath(int oldRow, int oldColumn, int newRow, int newColumn)
+    {
+        assert !isEmptySpace(oldRow, oldColumn);
+        assert !(oldRow == newRow && oldColumn == newColumn);
+        assert pieceTypes[Bitboard.square(oldRow, oldColumn)] != ChessPieceType.KNIGHT;
+        final int from = Bitboard.square(oldRow, oldColumn);
+        final int to = Bitboard.square(newRow, newColumn);
+        // horizontal or vertical movement
+        if (oldRow == newRow || oldColumn == newColumn)
+            return Bitboard.contains(Attacks.rookAttacks(from, occupiedBitboard), to);
+        // diagonal movement
+        if (Math.abs(newRow - oldRow) == Math.abs(newColumn - oldColumn))
+            return Bitboard.contains(Attacks.bishopAttacks(from, occupiedBitboard), to);
+        // All non-hoppable pieces move either vertically, horizontally, or diagonally.
+        assert false; // This line should never actually execute.
+        return false;
     }
 }
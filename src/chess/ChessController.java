@@ -2,12 +2,51 @@ package chess;
 
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import javax.swing.SwingUtilities;
+
+import chess.engine.ParallelSearch;
+import chess.engine.SearchHandle;
+import chess.engine.SearchLimits;
+import chess.engine.SearchListener;
+import chess.engine.SearchResult;
+import chess.notation.GameRecord;
+import chess.notation.PgnWriter;
 
 /**
  * Controller Class for the chess game project.
+ * <p>
+ * Everything here runs on the Swing event dispatch thread except the
+ * computer's search, which runs in the background so the window keeps
+ * responding while the computer thinks. The search reports its progress
+ * and its move back to the event dispatch thread, and a search that is no
+ * longer wanted (after a new game, undo or switching to two players) is
+ * stopped and its move ignored.
  */
 public class ChessController implements ActionListener {
 
+    /**
+     * Memory given to the transposition table, in megabytes.
+     */
+    private static final int TRANSPOSITION_TABLE_MEGABYTES = 4;
+
+    /**
+     * Time the computer may take to choose a move, in milliseconds.
+     */
+    private static final long COMPUTER_MOVE_MILLIS = 1000;
+
+    /**
+     * Most moves that can be taken back. Older moves are forgotten.
+     */
+    private static final int HISTORY_SIZE = 1024;
+
     /**
      * The game's View.
      */
@@ -18,6 +57,35 @@ public class ChessController implements ActionListener {
      */
     private ChessBoard modelBoard;
 
+    /**
+     * Every move of the current game, for saving it.
+     */
+    private GameRecord gameRecord;
+
+    /**
+     * Ring buffer of the moves that can be taken back, followed by the moves
+     * taken back that can be played again. Each entry is a move (see
+     * {@link Move}) with one more than the ordinal of the kind of piece it
+     * captured (0 for none) in bits 16 and up, which is all the view needs
+     * to put a move back; the model keeps its own record for unmaking it.
+     */
+    private final int[] history = new int[HISTORY_SIZE];
+
+    /**
+     * Index in {@link #history} of the oldest move that can be taken back.
+     */
+    private int historyStart;
+
+    /**
+     * The number of moves that can be taken back.
+     */
+    private int undoableMoves;
+
+    /**
+     * The number of moves taken back that can be played again.
+     */
+    private int redoableMoves;
+
     /**
      * Color of the player whose turn we are doing.
      */
@@ -39,6 +107,61 @@ public class ChessController implements ActionListener {
      */
     private boolean gameIsOver;
 
+    /**
+     * Reusable list of the selected piece's legal moves, used for highlighting.
+     */
+    private final MoveList selectedPieceMoves = new MoveList();
+
+    /**
+     * Remembers move validity and end of game checks by position, so they
+     * aren't repeated when a position comes back. Kept across games, since
+     * its entries depend only on the position.
+     */
+    private final TranspositionTable transpositionTable = new TranspositionTable(TRANSPOSITION_TABLE_MEGABYTES);
+
+    /**
+     * Color the computer plays, or NONE if two people are playing.
+     */
+    private ChessPieceColor computerColor = ChessPieceColor.NONE;
+
+    /**
+     * Chooses the computer's moves on every processor, sharing the
+     * transposition table.
+     */
+    private final ParallelSearch computerSearch = new ParallelSearch(transpositionTable);
+
+    /**
+     * Runs the computer's searches one at a time, off the event dispatch
+     * thread.
+     */
+    private final ExecutorService computerPlayer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable)
+        {
+            Thread thread = new Thread(runnable, "TeaChess computer player");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * Counts the computer's searches, so that the progress and move of a
+     * search that was cancelled can be told apart from the current one's and
+     * ignored. Changed only on the event dispatch thread.
+     */
+    private volatile int computerSearchNumber;
+
+    /**
+     * The search running on {@link #computerPlayer}, or null.
+     */
+    private volatile SearchHandle runningSearch;
+
+    /**
+     * Flag indicating whether the computer is choosing a move, during which
+     * clicks on the board are ignored.
+     */
+    private boolean computerIsThinking;
+
     /**
      * Create a new game controller.
      */
@@ -57,6 +180,12 @@ public class ChessController implements ActionListener {
         String actionCommand = event.getActionCommand();
         if (actionCommand == ChessGameView.NEW_GAME_MENU_ITEM) {
             setupNewChessGame();
+        } else if (actionCommand == ChessGameView.SAVE_GAME_MENU_ITEM) {
+            saveGame();
+        } else if (actionCommand == ChessGameView.UNDO_MENU_ITEM) {
+            undoTurn();
+        } else if (actionCommand == ChessGameView.REDO_MENU_ITEM) {
+            redoTurn();
         } else if (actionCommand == ChessGameView.CLOSE_MENU_ITEM) {
             System.exit(0);
         } else if (actionCommand == ChessGameView.SHOW_HIGHLIGHTING_MENU_ITEM) {
@@ -67,10 +196,20 @@ public class ChessController implements ActionListener {
             view.hideHighlighting();
             if (pieceIsSelected)
                 currentlySelectedButton.selectSpace();
+        } else if (actionCommand == ChessGameView.PLAY_COMPUTER_MENU_ITEM) {
+            computerColor = ChessPieceColor.BLACK;
+            view.enableComputerOpponent();
+            if (!gameIsOver && !computerIsThinking && currentPlayerColor == computerColor)
+                playComputerMove();
+        } else if (actionCommand == ChessGameView.TWO_PLAYERS_MENU_ITEM) {
+            computerColor = ChessPieceColor.NONE;
+            view.disableComputerOpponent();
+            if (cancelComputerMove())
+                showGameStatus();
         } else if (actionCommand == ChessGameView.PRINT_BOARD_MENU_ITEM) {
             modelBoard.printBoard();
         // Clicked one of the chess spaces
-        } else if (!gameIsOver) {
+        } else if (!gameIsOver && !computerIsThinking) {
             buttonClickedAction((ChessSpaceButton) event.getSource());
         }
     }
@@ -81,13 +220,24 @@ public class ChessController implements ActionListener {
      */
     private void setupNewChessGame()
     {
+        cancelComputerMove();
         view.startNewGame();
         modelBoard = new ChessBoard();
+        modelBoard.setTranspositionTable(transpositionTable);
+        modelBoard.setRepetitionTracking(true);
+        gameRecord = new GameRecord();
+        gameRecord.setTag("Event", "Casual Game");
+        gameRecord.setTag("Site", "TeaChess");
+        gameRecord.setTag("Date", new SimpleDateFormat("yyyy.MM.dd").format(new Date()));
         // White player always goes first in chess.
         currentPlayerColor = ChessPieceColor.WHITE;
         pieceIsSelected = false;
         currentlySelectedButton = null;
         gameIsOver = false;
+        historyStart = 0;
+        undoableMoves = 0;
+        redoableMoves = 0;
+        view.setUndoRedoEnabled(false, false);
     }
 
     /**
@@ -100,6 +250,8 @@ public class ChessController implements ActionListener {
             if (isValidMove(clickedButton)) {
                 moveCurrentlySelectedPiece(clickedButton);
                 endTurn();
+                if (!gameIsOver && currentPlayerColor == computerColor)
+                    playComputerMove();
             // selecting a new piece of the same color
             } else if (clickedButton.getPieceColor() == currentPlayerColor) {
                 view.clearMarkedSpaces();
@@ -140,49 +292,316 @@ public class ChessController implements ActionListener {
     private void moveCurrentlySelectedPiece(ChessSpaceButton clickedButton)
     {
         assert pieceIsSelected;
-        final int selectedRow = currentlySelectedButton.getRow();
-        final int selectedColumn = currentlySelectedButton.getColumn();
-        final int clickedRow = clickedButton.getRow();
-        final int clickedColumn = clickedButton.getColumn();
         // have to translate board positions because the model and view have different layout
-        final int modelOldRow = viewRowToModel(selectedRow);
-        final int modelOldColumn = viewColumnToModel(selectedColumn);
-        final int modelNewRow = viewRowToModel(clickedRow);
-        final int modelNewColumn = viewColumnToModel(clickedColumn);
+        movePiece(viewRowToModel(currentlySelectedButton.getRow()),
+                  viewColumnToModel(currentlySelectedButton.getColumn()),
+                  viewRowToModel(clickedButton.getRow()),
+                  viewColumnToModel(clickedButton.getColumn()),
+                  null);
+    }
 
-        view.moveChessPiece(selectedRow, selectedColumn, clickedRow, clickedColumn);
-        if (modelBoard.canCastle(modelOldRow, modelOldColumn, modelNewRow, modelNewColumn)) {
-            modelBoard.castle(modelOldRow, modelOldColumn, modelNewRow, modelNewColumn);
-            if (modelNewColumn > modelOldColumn)
-                view.moveChessPiece(clickedRow, 7, clickedRow, 5); // castle right
-            else
-                view.moveChessPiece(clickedRow, 0, clickedRow, 3); // castle left
-        } else if (modelBoard.canEnPassant(modelOldRow, modelOldColumn, modelNewRow, modelNewColumn)) {
-            modelBoard.enPassant(modelOldRow, modelOldColumn, modelNewRow, modelNewColumn);
-            view.emptySpace(selectedRow, clickedColumn);
-        } else {
-            modelBoard.move(modelOldRow, modelOldColumn, modelNewRow, modelNewColumn);
+    /**
+     * Let the computer choose a move for the current player in the
+     * background. The move is made by {@link #computerMoveFound(int, SearchResult)}
+     * once the search finishes, and until then the board ignores clicks and
+     * the status bar shows how far the search has got.
+     */
+    private void playComputerMove()
+    {
+        final int searchNumber = ++computerSearchNumber;
+        final ChessBoard board = new ChessBoard(modelBoard);
+        final ChessPieceColor color = currentPlayerColor;
+        computerIsThinking = true;
+        view.setComputerThinking(color, 0, null);
+        computerPlayer.execute(new Runnable() {
+            @Override
+            public void run()
+            {
+                // cancelled before it got going
+                if (searchNumber != computerSearchNumber)
+                    return;
+                computerSearch.setListener(new SearchListener() {
+                    @Override
+                    public void iterationCompleted(final SearchResult progress)
+                    {
+                        SwingUtilities.invokeLater(new Runnable() {
+                            @Override
+                            public void run()
+                            {
+                                if (searchNumber == computerSearchNumber)
+                                    view.setComputerThinking(color, progress.depth,
+                                                             Move.toString(progress.bestMove));
+                            }
+                        });
+                    }
+                });
+                final SearchHandle search = computerSearch.start(board, SearchLimits.time(COMPUTER_MOVE_MILLIS));
+                runningSearch = search;
+                // cancelled while starting, before it could be seen running
+                if (searchNumber != computerSearchNumber)
+                    search.cancel();
+                SearchResult result;
+                try {
+                    result = search.awaitResult();
+                } catch (InterruptedException e) {
+                    search.cancel();
+                    result = null;
+                } finally {
+                    runningSearch = null;
+                }
+                final SearchResult move = result;
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run()
+                    {
+                        computerMoveFound(searchNumber, move);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Make the move the computer chose, unless its search was cancelled.
+     * @param searchNumber of the search, from {@link #computerSearchNumber}
+     * @param result of the search, or null if it failed
+     */
+    private void computerMoveFound(int searchNumber, SearchResult result)
+    {
+        if (searchNumber != computerSearchNumber)
+            return;
+        computerIsThinking = false;
+        if (result == null || result.bestMove == Move.NONE) {
+            showGameStatus();
+            return;
         }
+        final int from = Move.from(result.bestMove);
+        final int to = Move.to(result.bestMove);
+        movePiece(Bitboard.row(from), Bitboard.column(from), Bitboard.row(to), Bitboard.column(to),
+                  Move.isPromotion(result.bestMove) ? Move.promotionType(result.bestMove) : null);
+        endTurn();
+    }
 
-        if (modelBoard.canPromotePawn(modelNewRow, modelNewColumn)) {
-            String choice = view.chooseChessPieceToReplacePawn(clickedRow, clickedColumn);
-            ChessPiece replacement;
+    /**
+     * Stop the computer choosing a move and forget the search, so its move
+     * is never made.
+     * @return true if the computer was thinking, false otherwise
+     */
+    private boolean cancelComputerMove()
+    {
+        if (!computerIsThinking)
+            return false;
+        computerIsThinking = false;
+        computerSearchNumber++;
+        final SearchHandle search = runningSearch;
+        if (search != null)
+            search.cancel();
+        return true;
+    }
+
+    /**
+     * Move a chess piece in both the model and the view, including the rook
+     * of a castle, the pawn taken en passant and promotions.
+     * @param modelOldRow of the piece to move (1-8)
+     * @param modelOldColumn of the piece to move (1-8)
+     * @param modelNewRow to move to (1-8)
+     * @param modelNewColumn to move to (1-8)
+     * @param promotion what a pawn reaching the far side becomes, or null to
+     * ask the player
+     */
+    private void movePiece(int modelOldRow, int modelOldColumn, int modelNewRow, int modelNewColumn,
+                           ChessPieceType promotion)
+    {
+        // the move's flags (castle, en passant, promotion) come from the
+        // piece's legal moves; the list is refilled when highlighting
+        final int from = Bitboard.square(modelOldRow, modelOldColumn);
+        final int to = Bitboard.square(modelNewRow, modelNewColumn);
+        selectedPieceMoves.clear();
+        MoveGenerator.generateLegalMoves(modelBoard, from, selectedPieceMoves);
+        int move = Move.create(from, to);
+        for (int i = 0; i < selectedPieceMoves.size(); i++) {
+            if (Move.to(selectedPieceMoves.get(i)) == to) {
+                move = selectedPieceMoves.get(i);
+                break;
+            }
+        }
+
+        if (Move.isPromotion(move)) {
+            String choice;
+            if (promotion == null) {
+                choice = view.chooseChessPieceToReplacePawn(modelRowToView(modelOldRow),
+                                                            modelColumnToView(modelOldColumn));
+            } else {
+                // same names the promotion dialog uses, e.g. "Queen"
+                String name = promotion.name();
+                choice = name.charAt(0) + name.substring(1).toLowerCase();
+            }
+            ChessPieceType replacement;
             switch (choice) {
             case "Knight":
-                replacement = new Knight(modelNewRow, modelNewColumn, currentPlayerColor);
+                replacement = ChessPieceType.KNIGHT;
                 break;
             case "Rook":
-                replacement = new Rook(modelNewRow, modelNewColumn, currentPlayerColor);
+                replacement = ChessPieceType.ROOK;
                 break;
             case "Bishop":
-                replacement = new Bishop(modelNewRow, modelNewColumn, currentPlayerColor);
+                replacement = ChessPieceType.BISHOP;
                 break;
             case "Queen":
             default:
-                replacement = new Queen(modelNewRow, modelNewColumn, currentPlayerColor);
+                replacement = ChessPieceType.QUEEN;
                 break;
             }
-            modelBoard.addPiece(replacement);
+            move = Move.create(from, to, Move.promotionFlag(replacement));
+        }
+
+        ChessPieceType capturedType = (Move.flag(move) == Move.EN_PASSANT) ? ChessPieceType.PAWN
+                                    : modelBoard.getPieceType(to);
+        int entry = move | ((capturedType != null) ? capturedType.ordinal() + 1 : 0) << 16;
+        if (undoableMoves == HISTORY_SIZE) {
+            historyStart = (historyStart + 1) % HISTORY_SIZE; // forget the oldest move
+            undoableMoves--;
+        }
+        history[(historyStart + undoableMoves) % HISTORY_SIZE] = entry;
+        undoableMoves++;
+        redoableMoves = 0; // a new move replaces the ones taken back
+        playMove(move);
+    }
+
+    /**
+     * Play a legal move in the model, the view and the game record.
+     * @param move to play (see {@link Move})
+     */
+    private void playMove(int move)
+    {
+        final int from = Move.from(move);
+        final int to = Move.to(move);
+        final int selectedRow = modelRowToView(Bitboard.row(from));
+        final int selectedColumn = modelColumnToView(Bitboard.column(from));
+        final int clickedRow = modelRowToView(Bitboard.row(to));
+        final int clickedColumn = modelColumnToView(Bitboard.column(to));
+
+        view.moveChessPiece(selectedRow, selectedColumn, clickedRow, clickedColumn);
+        if (Move.flag(move) == Move.CASTLE) {
+            if (clickedColumn > selectedColumn)
+                view.moveChessPiece(clickedRow, 7, clickedRow, 5); // castle right
+            else
+                view.moveChessPiece(clickedRow, 0, clickedRow, 3); // castle left
+        } else if (Move.flag(move) == Move.EN_PASSANT) {
+            view.emptySpace(selectedRow, clickedColumn);
+        } else if (Move.isPromotion(move)) {
+            view.placePiece(clickedRow, clickedColumn, modelBoard.getSideToMove(), Move.promotionType(move));
+        }
+
+        gameRecord.addMove(modelBoard, move);
+        modelBoard.makeMove(move);
+    }
+
+    /**
+     * Take back the last move in the model, the view and the game record.
+     * The model unmakes it from its own undo record, and the view is put
+     * back from the move's history entry, so no board is copied or redrawn.
+     */
+    private void undoMove()
+    {
+        undoableMoves--;
+        redoableMoves++;
+        final int entry = history[(historyStart + undoableMoves) % HISTORY_SIZE];
+        final int move = entry & 0xFFFF;
+        final int captured = entry >>> 16;
+
+        modelBoard.unmakeMove();
+        gameRecord.removeLastMove();
+        gameRecord.setResult(GameRecord.UNFINISHED);
+
+        final ChessPieceColor mover = modelBoard.getSideToMove();
+        final int from = Move.from(move);
+        final int to = Move.to(move);
+        final int oldRow = modelRowToView(Bitboard.row(from));
+        final int oldColumn = modelColumnToView(Bitboard.column(from));
+        final int newRow = modelRowToView(Bitboard.row(to));
+        final int newColumn = modelColumnToView(Bitboard.column(to));
+
+        view.moveChessPiece(newRow, newColumn, oldRow, oldColumn);
+        if (Move.isPromotion(move)) {
+            view.placePiece(oldRow, oldColumn, mover, ChessPieceType.PAWN);
+        } else if (Move.flag(move) == Move.CASTLE) {
+            if (newColumn > oldColumn)
+                view.moveChessPiece(newRow, 5, newRow, 7); // castle right
+            else
+                view.moveChessPiece(newRow, 3, newRow, 0); // castle left
+        }
+        if (captured != 0) {
+            final ChessPieceType type = ChessPieceType.values()[captured - 1];
+            if (Move.flag(move) == Move.EN_PASSANT)
+                view.placePiece(oldRow, newColumn, mover.otherColor(), type);
+            else
+                view.placePiece(newRow, newColumn, mover.otherColor(), type);
+        }
+    }
+
+    /**
+     * Play the next move taken back again.
+     */
+    private void redoMove()
+    {
+        final int entry = history[(historyStart + undoableMoves) % HISTORY_SIZE];
+        undoableMoves++;
+        redoableMoves--;
+        playMove(entry & 0xFFFF);
+    }
+
+    /**
+     * Take back the last move, and when playing the computer, its move too,
+     * so it is a person's turn again. If the computer is thinking, it stops
+     * and the person's move it was answering is taken back.
+     */
+    private void undoTurn()
+    {
+        cancelComputerMove();
+        if (undoableMoves == 0) {
+            showGameStatus();
+            return;
+        }
+        undoMove();
+        if (undoableMoves > 0 && modelBoard.getSideToMove() == computerColor)
+            undoMove();
+        showGameStatus();
+    }
+
+    /**
+     * Play the next move taken back again, and when playing the computer,
+     * its reply too. If the computer is thinking, it stops first.
+     */
+    private void redoTurn()
+    {
+        cancelComputerMove();
+        if (redoableMoves == 0) {
+            showGameStatus();
+            return;
+        }
+        redoMove();
+        if (redoableMoves > 0 && modelBoard.getSideToMove() == computerColor)
+            redoMove();
+        showGameStatus();
+        if (!gameIsOver && currentPlayerColor == computerColor)
+            playComputerMove();
+    }
+
+    /**
+     * Ask where to save the game and write it there in PGN.
+     */
+    private void saveGame()
+    {
+        final Path file = view.chooseSaveFile();
+        if (file == null)
+            return; // the user cancelled
+        gameRecord.setTag("White", (computerColor == ChessPieceColor.WHITE) ? "TeaChess" : "?");
+        gameRecord.setTag("Black", (computerColor == ChessPieceColor.BLACK) ? "TeaChess" : "?");
+        try (PgnWriter writer = PgnWriter.open(file)) {
+            writer.write(gameRecord);
+        } catch (IOException e) {
+            view.showError("Couldn't save the game: " + e.getMessage());
         }
     }
 
@@ -191,23 +610,50 @@ public class ChessController implements ActionListener {
      */
     private void endTurn()
     {
-        final ChessPieceColor otherPlayer = currentPlayerColor.otherColor();
+        showGameStatus();
+    }
+
+    /**
+     * Update the status bar, the player whose turn it is and the undo and
+     * redo menu items for the position on the board, and clear any
+     * selection.
+     */
+    private void showGameStatus()
+    {
+        final ChessPieceColor lastPlayer = modelBoard.getSideToMove().otherColor();
+        currentPlayerColor = modelBoard.getSideToMove();
+        gameIsOver = false;
         // do this first, so setWinner can override it if necessary
-        view.setCurrentPlayer(otherPlayer);
-        if (modelBoard.checkmate(otherPlayer)) {
-            view.setWinner(currentPlayerColor);
+        view.setCurrentPlayer(currentPlayerColor);
+        switch (modelBoard.gameStatus(currentPlayerColor)) {
+        case CHECKMATE:
+            view.setWinner(lastPlayer);
+            gameRecord.setResult((lastPlayer == ChessPieceColor.WHITE) ? GameRecord.WHITE_WINS
+                                                                       : GameRecord.BLACK_WINS);
             gameIsOver = true;
-        } else if (modelBoard.stalemate(otherPlayer)) {
+            break;
+        case STALEMATE:
             view.setWinner(ChessPieceColor.NONE);
+            gameRecord.setResult(GameRecord.DRAW);
             gameIsOver = true;
-        } else if (modelBoard.inCheck(otherPlayer)) {
-            view.setCheckCondition(otherPlayer);
-        } else {
+            break;
+        case CHECK:
+            view.setCheckCondition(currentPlayerColor);
+            break;
+        default:
             view.setCheckCondition(ChessPieceColor.NONE);
+            break;
+        }
+        // nobody can claim a draw, so the rules that let a player claim
+        // one end the game straight away
+        if (!gameIsOver && (modelBoard.isThreefoldRepetition() || modelBoard.isFiftyMoveRule())) {
+            view.setDraw(modelBoard.isThreefoldRepetition() ? "Threefold repetition!" : "Fifty-move rule!");
+            gameRecord.setResult(GameRecord.DRAW);
+            gameIsOver = true;
         }
         pieceIsSelected = false;
         view.clearMarkedSpaces();
-        currentPlayerColor = otherPlayer;
+        view.setUndoRedoEnabled(undoableMoves > 0, redoableMoves > 0);
     }
 
     /**
@@ -230,6 +676,26 @@ public class ChessController implements ActionListener {
         return 1 + viewColumn;
     }
 
+    /**
+     * Translate a row in the model to its row in the chess board's view.
+     * @param modelRow the row in the model
+     * @return the corresponding row in the view
+     */
+    private int modelRowToView(int modelRow)
+    {
+        return ChessBoard.BOARD_SIZE - modelRow;
+    }
+
+    /**
+     * Translate a column in the model to its column in the chess board's view.
+     * @param modelColumn the column in the model
+     * @return the corresponding column in the view
+     */
+    private int modelColumnToView(int modelColumn)
+    {
+        return modelColumn - 1;
+    }
+
     /**
      * Highlight all valid moves for the currently selected piece.
      */
@@ -237,13 +703,15 @@ public class ChessController implements ActionListener {
     {
         int selectedRow = currentlySelectedButton.getRow();
         int selectedColumn = currentlySelectedButton.getColumn();
-        for (int row = 0; row < ChessBoard.BOARD_SIZE; row++) {
-            for (int col = 0; col < ChessBoard.BOARD_SIZE; col++) {
-                if (modelBoard.isValidMove(viewRowToModel(selectedRow), viewColumnToModel(selectedColumn),
-                                           viewRowToModel(row),         viewColumnToModel(col))) {
-                    view.highlightSpace(row, col);
-                }
-            }
+        selectedPieceMoves.clear();
+        MoveGenerator.generateLegalMoves(modelBoard,
+                                         Bitboard.square(viewRowToModel(selectedRow),
+                                                         viewColumnToModel(selectedColumn)),
+                                         selectedPieceMoves);
+        for (int i = 0; i < selectedPieceMoves.size(); i++) {
+            int destination = Move.to(selectedPieceMoves.get(i));
+            view.highlightSpace(modelRowToView(Bitboard.row(destination)),
+                                modelColumnToView(Bitboard.column(destination)));
         }
     }
 }
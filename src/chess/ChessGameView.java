@@ -3,10 +3,14 @@ package chess;
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.GridLayout;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.nio.file.Path;
 
 import javax.swing.BorderFactory;
 import javax.swing.Box;
 import javax.swing.BoxLayout;
+import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JMenu;
@@ -14,7 +18,9 @@ import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.KeyStroke;
 import javax.swing.border.EtchedBorder;
+import javax.swing.filechooser.FileNameExtensionFilter;
 
 /**
  * View Class for the chess board.
@@ -26,11 +32,26 @@ public class ChessGameView {
      */
     public static final String NEW_GAME_MENU_ITEM = "New Game";
 
+    /**
+     * The text for the menu item that saves the game to a PGN file.
+     */
+    public static final String SAVE_GAME_MENU_ITEM = "Save Game...";
+
     /**
      * The text for the menu item that closes the app.
      */
     public static final String CLOSE_MENU_ITEM = "Close";
 
+    /**
+     * The text for the menu item that takes back the last move.
+     */
+    public static final String UNDO_MENU_ITEM = "Undo Move";
+
+    /**
+     * The text for the menu item that plays a taken back move again.
+     */
+    public static final String REDO_MENU_ITEM = "Redo Move";
+
     /**
      * The text for the menu item that prints the current board state to the
      * console.
@@ -47,6 +68,16 @@ public class ChessGameView {
      */
     public static final String HIDE_HIGHLIGHTING_MENU_ITEM = "Hide Highlighting";
 
+    /**
+     * The text for the menu item that has the computer play black.
+     */
+    public static final String PLAY_COMPUTER_MENU_ITEM = "Computer Plays Black";
+
+    /**
+     * The text for the menu item that goes back to two human players.
+     */
+    public static final String TWO_PLAYERS_MENU_ITEM = "Two Players";
+
     /**
      * Default height of the game window.
      */
@@ -113,6 +144,21 @@ public class ChessGameView {
      */
     private JMenuItem highlightingMenuItem;
 
+    /**
+     * Menu item that switches between playing the computer and two players.
+     */
+    private JMenuItem opponentMenuItem;
+
+    /**
+     * Menu item that takes back the last move.
+     */
+    private JMenuItem undoMenuItem;
+
+    /**
+     * Menu item that plays a taken back move again.
+     */
+    private JMenuItem redoMenuItem;
+
     /**
      * Create a new frame (top-level container) for the chess program.
      */
@@ -152,6 +198,20 @@ public class ChessGameView {
         buttonCollection[oldRow][oldColumn].movePiece(buttonCollection[newRow][newColumn]);
     }
 
+    /**
+     * Show a chess piece on a space, replacing whatever was there.
+     * @param row of the chess space (0-7)
+     * @param column of the chess space (0-7)
+     * @param color of the chess piece
+     * @param type of the chess piece
+     */
+    public void placePiece(int row, int column, ChessPieceColor color, ChessPieceType type)
+    {
+        String name = type.name();
+        getSpace(row, column).setPiece(color.toString().toLowerCase() + name.charAt(0)
+                                       + name.substring(1).toLowerCase() + ".png");
+    }
+
     /**
      * Get the chess space at the given row and column in the view.
      * @param row of the chess space (0-7)
@@ -239,6 +299,35 @@ public class ChessGameView {
         clearMarkedSpaces();
     }
 
+    /**
+     * Toggle the opponent menu item to give the option to go back to two
+     * players, once the computer is playing.
+     */
+    public void enableComputerOpponent()
+    {
+        opponentMenuItem.setText(TWO_PLAYERS_MENU_ITEM);
+    }
+
+    /**
+     * Toggle the opponent menu item to give the option to play the computer,
+     * once two people are playing.
+     */
+    public void disableComputerOpponent()
+    {
+        opponentMenuItem.setText(PLAY_COMPUTER_MENU_ITEM);
+    }
+
+    /**
+     * Enable or disable the undo and redo menu items.
+     * @param canUndo whether there is a move to take back
+     * @param canRedo whether there is a taken back move to play again
+     */
+    public void setUndoRedoEnabled(boolean canUndo, boolean canRedo)
+    {
+        undoMenuItem.setEnabled(canUndo);
+        redoMenuItem.setEnabled(canRedo);
+    }
+
     /**
      * Set the current player label to the appropriate text and color.
      * @param playerColor of the current player
@@ -257,6 +346,23 @@ public class ChessGameView {
         }
     }
 
+    /**
+     * Show in the current player label that the computer is choosing a move
+     * for a player, and how far it has got.
+     * @param playerColor the computer is playing
+     * @param depth of the deepest search completed so far in plies, or 0 if
+     * none has been
+     * @param bestMove the best move found so far in coordinate notation,
+     * e.g. "e7e5"; ignored if depth is 0
+     */
+    public void setComputerThinking(ChessPieceColor playerColor, int depth, String bestMove)
+    {
+        String text = ((playerColor == ChessPieceColor.WHITE) ? "White" : "Black") + " is thinking...";
+        if (depth > 0)
+            text += " depth " + depth + ", " + bestMove;
+        setCurrentPlayerLabel(playerColor, text);
+    }
+
     /**
      * Set the label that shows if a player's king is in check.
      * @param playerColor of the player in check
@@ -264,6 +370,7 @@ public class ChessGameView {
     public void setCheckCondition(ChessPieceColor playerColor)
     {
         checkConditionLabel.setOpaque(true);
+        checkConditionLabel.setBackground(Color.PINK); // setWinner may have changed it
         switch (playerColor) {
         case WHITE:
             checkConditionLabel.setText("White King in check.");
@@ -302,6 +409,17 @@ public class ChessGameView {
         }
     }
 
+    /**
+     * Set the status bar labels to show the game was drawn by a rule other
+     * than stalemate.
+     * @param reason to show, e.g. "Threefold repetition!"
+     */
+    public void setDraw(String reason)
+    {
+        setWinner(ChessPieceColor.NONE);
+        checkConditionLabel.setText(reason);
+    }
+
     /**
      * Display a dialog box asking the user which chess piece they will replace
      * their pawn with.
@@ -325,9 +443,44 @@ public class ChessGameView {
                                                           choices,
                                                           "Queen");
         } while (choice == null); // user hit cancel, have to promote pawn to something
+        replacePawn(row, column, choice);
+        return choice;
+    }
+
+    /**
+     * Show the chess piece a pawn was promoted to.
+     * @param row of the pawn (0-7)
+     * @param column of the pawn (0-7)
+     * @param choice the new chess piece: "Queen", "Knight", "Rook" or "Bishop"
+     */
+    public void replacePawn(int row, int column, String choice)
+    {
+        ChessSpaceButton space = getSpace(row, column);
         String color = space.getPieceColor().toString().toLowerCase();
         space.setPiece(color  + choice + ".png");
-        return choice;
+    }
+
+    /**
+     * Ask the user where to save a game.
+     * @return the file chosen, or null if the user cancelled
+     */
+    public Path chooseSaveFile()
+    {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("PGN files", "pgn"));
+        chooser.setSelectedFile(new java.io.File("game.pgn"));
+        if (chooser.showSaveDialog(gameWindow) != JFileChooser.APPROVE_OPTION)
+            return null;
+        return chooser.getSelectedFile().toPath();
+    }
+
+    /**
+     * Tell the user something went wrong.
+     * @param message to show
+     */
+    public void showError(String message)
+    {
+        JOptionPane.showMessageDialog(gameWindow, message, "TeaChess", JOptionPane.ERROR_MESSAGE);
     }
 
     /**
@@ -340,10 +493,12 @@ public class ChessGameView {
         currentPlayerLabel.setText(text);
         switch (playerColor) {
         case WHITE:
+            currentPlayerLabel.setOpaque(true); // a draw may have hidden it
             currentPlayerLabel.setForeground(Color.BLACK);
             currentPlayerLabel.setBackground(Color.WHITE);
             break;
         case BLACK:
+            currentPlayerLabel.setOpaque(true);
             currentPlayerLabel.setForeground(Color.WHITE);
             currentPlayerLabel.setBackground(Color.BLACK);
             break;
@@ -366,15 +521,34 @@ public class ChessGameView {
         JMenuItem newGameMenuItem = new JMenuItem(NEW_GAME_MENU_ITEM);
         newGameMenuItem.addActionListener(myController);
         fileMenu.add(newGameMenuItem);
+        JMenuItem saveGameMenuItem = new JMenuItem(SAVE_GAME_MENU_ITEM);
+        saveGameMenuItem.addActionListener(myController);
+        fileMenu.add(saveGameMenuItem);
         JMenuItem closeMenuItem = new JMenuItem(CLOSE_MENU_ITEM);
         closeMenuItem.addActionListener(myController);
         fileMenu.add(closeMenuItem);
         menuBar.add(fileMenu);
 
+        JMenu editMenu = new JMenu("Edit");
+        undoMenuItem = new JMenuItem(UNDO_MENU_ITEM);
+        undoMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK));
+        undoMenuItem.addActionListener(myController);
+        undoMenuItem.setEnabled(false);
+        editMenu.add(undoMenuItem);
+        redoMenuItem = new JMenuItem(REDO_MENU_ITEM);
+        redoMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Y, InputEvent.CTRL_DOWN_MASK));
+        redoMenuItem.addActionListener(myController);
+        redoMenuItem.setEnabled(false);
+        editMenu.add(redoMenuItem);
+        menuBar.add(editMenu);
+
         JMenu optionsMenu = new JMenu("Options");
         highlightingMenuItem = new JMenuItem(HIDE_HIGHLIGHTING_MENU_ITEM);
         highlightingMenuItem.addActionListener(myController);
         optionsMenu.add(highlightingMenuItem);
+        opponentMenuItem = new JMenuItem(PLAY_COMPUTER_MENU_ITEM);
+        opponentMenuItem.addActionListener(myController);
+        optionsMenu.add(opponentMenuItem);
         menuBar.add(optionsMenu);
 
         JMenu printMenu = new JMenu("Debug");
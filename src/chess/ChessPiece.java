@@ -3,7 +3,7 @@ package chess;
 /**
  * Represents a generic chess piece.
  */
-public abstract class ChessPiece implements Cloneable {
+public abstract class ChessPiece {
 
     /**
      * Equivalent to chess term 'rank'. Valid values are 1-8.
@@ -56,15 +56,40 @@ public abstract class ChessPiece implements Cloneable {
     }
 
     /**
-     * Chess pieces only have primitives for fields, so shallow copies via clone
-     * work fine.
+     * Chess pieces are equal if they are the same kind and color of piece on
+     * the same space and have both moved or both not moved. The board hands
+     * out a new piece every time it's asked, so pieces are compared by value.
      */
     @Override
-    public ChessPiece clone() throws CloneNotSupportedException
+    public boolean equals(Object other)
     {
-        return (ChessPiece) super.clone();
+        if (this == other)
+            return true;
+        if (!(other instanceof ChessPiece))
+            return false;
+        ChessPiece piece = (ChessPiece) other;
+        return getType() == piece.getType() && color == piece.color &&
+               row == piece.row && column == piece.column && hasMoved == piece.hasMoved;
     }
 
+    /**
+     * Hash the same fields that {@link #equals(Object)} compares.
+     */
+    @Override
+    public int hashCode()
+    {
+        int hash = getType().hashCode();
+        hash = 31 * hash + color.hashCode();
+        hash = 31 * hash + 8 * row + column;
+        return 2 * hash + (hasMoved ? 1 : 0);
+    }
+
+    /**
+     * Get the kind of chess piece this is, independent of color and position.
+     * @return the chess piece's type
+     */
+    public abstract ChessPieceType getType();
+
     /**
      * Determine if the chess piece can move to the given position. Does not
      * take into account the placement of other pieces.
@@ -102,6 +127,16 @@ public abstract class ChessPiece implements Cloneable {
         this.column = newColumn;
     }
 
+    /**
+     * Record that the chess piece has moved without moving it. Used by
+     * {@link ChessBoard} when it builds a piece for a space whose piece has
+     * moved earlier in the game.
+     */
+    void markMoved()
+    {
+        this.hasMoved = true;
+    }
+
     /**
      * Move the chess piece to a new place on the board given in algebraic chess
      * notation. Moves without considering chess piece type or the positions of
@@ -169,6 +204,14 @@ public abstract class ChessPiece implements Cloneable {
         return column;
     }
 
+    /**
+     * @return index of the chess piece's space (see {@link Bitboard})
+     */
+    protected int getSquare()
+    {
+        return Bitboard.square(row, column);
+    }
+
     /**
      * @return the chess piece's rank, a number from 1-8
      */
@@ -0,0 +1,20 @@
+package chess;
+
+/**
+ * Simple enum to represent the kind of a chess piece independent of its
+ * color or position. The ordinal values are used to index the bitboards
+ * in {@link ChessBoard}.
+ */
+public enum ChessPieceType {
+    PAWN,
+    KNIGHT,
+    BISHOP,
+    ROOK,
+    QUEEN,
+    KING;
+
+    /**
+     * The number of different kinds of chess pieces.
+     */
+    public static final int COUNT = values().length;
+}
@@ -0,0 +1,260 @@
+package chess;
+
+/**
+ * Scores chess positions by material and piece-square tables: each kind of
+ * piece is worth its material value plus a bonus or penalty for the space it
+ * stands on, e.g. knights in the center or pawns close to promoting.
+ * <p>
+ * The King has one table for the middlegame, where it should hide behind
+ * its pawns, and one for the endgame, where it should come to the center.
+ * The two are blended by how much material is left. Every term is a sum over
+ * the pieces, so {@link ChessBoard} keeps the sums up to date as pieces are
+ * placed and removed and a position is scored without looking at the board.
+ * <p>
+ * The tables are the "Simplified Evaluation Function" by Tomasz Michniewski.
+ * @see <a href="https://www.chessprogramming.org/Simplified_Evaluation_Function">Simplified Evaluation Function</a> (Chess Programming Wiki)
+ */
+public final class Evaluator {
+
+    /**
+     * Game phase with every piece on the board; the phase falls toward zero
+     * as pieces are traded.
+     */
+    public static final int OPENING_PHASE = 24;
+
+    /**
+     * Material value of each piece type in centipawns, indexed by ordinal.
+     * The King is beyond price, so it counts for nothing.
+     */
+    private static final int[] PIECE_VALUES = { 100, 320, 330, 500, 900, 0 };
+
+    /**
+     * How much each piece type counts toward the game phase, indexed by
+     * ordinal.
+     */
+    private static final int[] PHASE_WEIGHTS = { 0, 1, 1, 2, 4, 0 };
+
+    /**
+     * Bonus for a Pawn on each space. Like every table here, it is laid out
+     * as the board looks from white's side: row 8 first, row 1 last.
+     */
+    private static final int[] PAWN_TABLE = {
+          0,   0,   0,   0,   0,   0,   0,   0,
+         50,  50,  50,  50,  50,  50,  50,  50,
+         10,  10,  20,  30,  30,  20,  10,  10,
+          5,   5,  10,  25,  25,  10,   5,   5,
+          0,   0,   0,  20,  20,   0,   0,   0,
+          5,  -5, -10,   0,   0, -10,  -5,   5,
+          5,  10,  10, -20, -20,  10,  10,   5,
+          0,   0,   0,   0,   0,   0,   0,   0
+    };
+
+    /**
+     * Bonus for a Knight on each space.
+     */
+    private static final int[] KNIGHT_TABLE = {
+        -50, -40, -30, -30, -30, -30, -40, -50,
+        -40, -20,   0,   0,   0,   0, -20, -40,
+        -30,   0,  10,  15,  15,  10,   0, -30,
+        -30,   5,  15,  20,  20,  15,   5, -30,
+        -30,   0,  15,  20,  20,  15,   0, -30,
+        -30,   5,  10,  15,  15,  10,   5, -30,
+        -40, -20,   0,   5,   5,   0, -20, -40,
+        -50, -40, -30, -30, -30, -30, -40, -50
+    };
+
+    /**
+     * Bonus for a Bishop on each space.
+     */
+    private static final int[] BISHOP_TABLE = {
+        -20, -10, -10, -10, -10, -10, -10, -20,
+        -10,   0,   0,   0,   0,   0,   0, -10,
+        -10,   0,   5,  10,  10,   5,   0, -10,
+        -10,   5,   5,  10,  10,   5,   5, -10,
+        -10,   0,  10,  10,  10,  10,   0, -10,
+        -10,  10,  10,  10,  10,  10,  10, -10,
+        -10,   5,   0,   0,   0,   0,   5, -10,
+        -20, -10, -10, -10, -10, -10, -10, -20
+    };
+
+    /**
+     * Bonus for a Rook on each space.
+     */
+    private static final int[] ROOK_TABLE = {
+          0,   0,   0,   0,   0,   0,   0,   0,
+          5,  10,  10,  10,  10,  10,  10,   5,
+         -5,   0,   0,   0,   0,   0,   0,  -5,
+         -5,   0,   0,   0,   0,   0,   0,  -5,
+         -5,   0,   0,   0,   0,   0,   0,  -5,
+         -5,   0,   0,   0,   0,   0,   0,  -5,
+         -5,   0,   0,   0,   0,   0,   0,  -5,
+          0,   0,   0,   5,   5,   0,   0,   0
+    };
+
+    /**
+     * Bonus for a Queen on each space.
+     */
+    private static final int[] QUEEN_TABLE = {
+        -20, -10, -10,  -5,  -5, -10, -10, -20,
+        -10,   0,   0,   0,   0,   0,   0, -10,
+        -10,   0,   5,   5,   5,   5,   0, -10,
+         -5,   0,   5,   5,   5,   5,   0,  -5,
+          0,   0,   5,   5,   5,   5,   0,  -5,
+        -10,   5,   5,   5,   5,   5,   0, -10,
+        -10,   0,   5,   0,   0,   0,   0, -10,
+        -20, -10, -10,  -5,  -5, -10, -10, -20
+    };
+
+    /**
+     * Bonus for the King on each space while there is plenty of material left.
+     */
+    private static final int[] KING_MIDDLEGAME_TABLE = {
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -20, -30, -30, -40, -40, -30, -30, -20,
+        -10, -20, -20, -20, -20, -20, -20, -10,
+         20,  20,   0,   0,   0,   0,  20,  20,
+         20,  30,  10,   0,   0,  10,  30,  20
+    };
+
+    /**
+     * Bonus for the King on each space once most of the material is gone.
+     */
+    private static final int[] KING_ENDGAME_TABLE = {
+        -50, -40, -30, -20, -20, -30, -40, -50,
+        -30, -20, -10,   0,   0, -10, -20, -30,
+        -30, -10,  20,  30,  30,  20, -10, -30,
+        -30, -10,  30,  40,  40,  30, -10, -30,
+        -30, -10,  30,  40,  40,  30, -10, -30,
+        -30, -10,  20,  30,  30,  20, -10, -30,
+        -30, -30,   0,   0,   0,   0, -30, -30,
+        -50, -30, -30, -30, -30, -30, -30, -50
+    };
+
+    /**
+     * Middlegame table for each piece type, indexed by ordinal.
+     */
+    private static final int[][] MIDDLEGAME_TABLES = {
+        PAWN_TABLE, KNIGHT_TABLE, BISHOP_TABLE, ROOK_TABLE, QUEEN_TABLE, KING_MIDDLEGAME_TABLE
+    };
+
+    /**
+     * Endgame table for each piece type, indexed by ordinal.
+     */
+    private static final int[][] ENDGAME_TABLES = {
+        PAWN_TABLE, KNIGHT_TABLE, BISHOP_TABLE, ROOK_TABLE, QUEEN_TABLE, KING_ENDGAME_TABLE
+    };
+
+    /**
+     * This class only holds static helpers.
+     */
+    private Evaluator()
+    {
+    }
+
+    /**
+     * @param type of chess piece
+     * @return the material value of the piece in centipawns (0 for the King)
+     */
+    public static int pieceValue(ChessPieceType type)
+    {
+        return PIECE_VALUES[type.ordinal()];
+    }
+
+    /**
+     * Score the position for a player. Takes constant time, since the board
+     * keeps the sums of every piece's value up to date.
+     * @param board to score
+     * @param color of the player (BLACK or WHITE)
+     * @return score in centipawns, positive if the player is ahead
+     */
+    public static int evaluate(ChessBoard board, ChessPieceColor color)
+    {
+        final int whiteScore = blend(board.getMiddlegameScore(), board.getEndgameScore(), board.getGamePhase());
+        return (color == ChessPieceColor.WHITE) ? whiteScore : -whiteScore;
+    }
+
+    /**
+     * Score the position for a player by adding up every piece on the board.
+     * Gives the same answer as {@link #evaluate(ChessBoard, ChessPieceColor)},
+     * only slower; useful for checking the incremental sums.
+     * @param board to score
+     * @param color of the player (BLACK or WHITE)
+     * @return score in centipawns, positive if the player is ahead
+     */
+    public static int evaluateFromScratch(ChessBoard board, ChessPieceColor color)
+    {
+        int middlegame = 0;
+        int endgame = 0;
+        int phase = 0;
+        for (long occupied = board.getOccupied(); occupied != 0; occupied = Bitboard.popLowest(occupied)) {
+            final int square = Bitboard.lowestSquare(occupied);
+            final ChessPieceType type = board.getPieceType(square);
+            final ChessPieceColor pieceColor = board.getPieceColor(square);
+            middlegame += middlegameValue(type, pieceColor, square);
+            endgame += endgameValue(type, pieceColor, square);
+            phase += phaseWeight(type);
+        }
+        final int whiteScore = blend(middlegame, endgame, phase);
+        return (color == ChessPieceColor.WHITE) ? whiteScore : -whiteScore;
+    }
+
+    /**
+     * Get what a piece on a space adds to the middlegame score, which is
+     * kept from white's point of view.
+     * @param type of the chess piece
+     * @param color of the chess piece (BLACK or WHITE)
+     * @param square of the chess piece (0-63)
+     * @return the piece's value; negative for black pieces
+     */
+    static int middlegameValue(ChessPieceType type, ChessPieceColor color, int square)
+    {
+        return tableValue(MIDDLEGAME_TABLES, type, color, square);
+    }
+
+    /**
+     * Get what a piece on a space adds to the endgame score, which is kept
+     * from white's point of view.
+     * @param type of the chess piece
+     * @param color of the chess piece (BLACK or WHITE)
+     * @param square of the chess piece (0-63)
+     * @return the piece's value; negative for black pieces
+     */
+    static int endgameValue(ChessPieceType type, ChessPieceColor color, int square)
+    {
+        return tableValue(ENDGAME_TABLES, type, color, square);
+    }
+
+    /**
+     * @param type of chess piece
+     * @return how much the piece counts toward the game phase
+     */
+    static int phaseWeight(ChessPieceType type)
+    {
+        return PHASE_WEIGHTS[type.ordinal()];
+    }
+
+    /**
+     * Look up a piece's material plus table value.
+     */
+    private static int tableValue(int[][] tables, ChessPieceType type, ChessPieceColor color, int square)
+    {
+        final int value = PIECE_VALUES[type.ordinal()];
+        if (color == ChessPieceColor.WHITE)
+            // the tables start at row 8, so flip white's rows
+            return value + tables[type.ordinal()][square ^ 56];
+        return -(value + tables[type.ordinal()][square]);
+    }
+
+    /**
+     * Blend the middlegame and endgame scores by the game phase.
+     */
+    private static int blend(int middlegame, int endgame, int phase)
+    {
+        // promotions can push the phase past the opening's
+        final int weight = Math.min(phase, OPENING_PHASE);
+        return (middlegame * weight + endgame * (OPENING_PHASE - weight)) / OPENING_PHASE;
+    }
+}
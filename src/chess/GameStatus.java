@@ -0,0 +1,35 @@
+package chess;
+
+/**
+ * The state of a game from the point of view of the player whose turn it is.
+ * See {@link ChessBoard#gameStatus(ChessPieceColor)}.
+ */
+public enum GameStatus {
+    /**
+     * The player can move and isn't in check.
+     */
+    IN_PROGRESS,
+
+    /**
+     * The player is in check but has a move that gets out of it.
+     */
+    CHECK,
+
+    /**
+     * The player is in check and has no valid moves; they lose.
+     */
+    CHECKMATE,
+
+    /**
+     * The player isn't in check but has no valid moves; the game is a draw.
+     */
+    STALEMATE;
+
+    /**
+     * @return true if the game can't continue, false otherwise
+     */
+    public boolean isGameOver()
+    {
+        return this == CHECKMATE || this == STALEMATE;
+    }
+}
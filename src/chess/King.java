@@ -27,6 +27,15 @@ public class King extends ChessPiece {
         super(file, rank, color);
     }
 
+    /**
+     * @return {@link ChessPieceType#KING}
+     */
+    @Override
+    public ChessPieceType getType()
+    {
+        return ChessPieceType.KING;
+    }
+
     /**
      * Determine if the King is in its starting position.
      */
@@ -53,8 +62,6 @@ public class King extends ChessPiece {
     {
         if (isOffTheBoardOrToSelf(row, column))
             return false;
-        int deltaRow = Math.abs(row - getRow());
-        int deltaColumn = Math.abs(column - getColumn());
-        return (deltaRow <= 1) && (deltaColumn <= 1);
+        return Bitboard.contains(Attacks.kingAttacks(getSquare()), Bitboard.square(row, column));
     }
 }
@@ -26,6 +26,15 @@ public class Knight extends ChessPiece {
         super(file, rank, color);
     }
 
+    /**
+     * @return {@link ChessPieceType#KNIGHT}
+     */
+    @Override
+    public ChessPieceType getType()
+    {
+        return ChessPieceType.KNIGHT;
+    }
+
     /**
      * Determine if the Knight is in its starting position.
      */
@@ -53,13 +62,7 @@ public class Knight extends ChessPiece {
     {
         if (isOffTheBoardOrToSelf(row, column))
             return false;
-        int deltaRow = Math.abs(getRow() - row);
-        int deltaColumn = Math.abs(getColumn() - column);
-        if ((deltaRow == 2) && (deltaColumn == 1))
-            return true;
-        if ((deltaRow == 1) && (deltaColumn == 2))
-            return true;
-        return false;
+        return Bitboard.contains(Attacks.knightAttacks(getSquare()), Bitboard.square(row, column));
     }
 
     /**
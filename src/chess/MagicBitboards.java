@@ -0,0 +1,309 @@
+package chess;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Lookup tables for the attacks of sliding pieces, indexed with "magic"
+ * multipliers. The pieces that can block a Rook or Bishop on a space are
+ * masked out of the occupancy bitboard, multiplied by the space's magic
+ * number and shifted down to an index into a table of precomputed attacks,
+ * so an attack costs a multiply, a shift and a load however many pieces
+ * are in the way.
+ * <p>
+ * The magic numbers are found at startup by trying random candidates until
+ * one maps every blocker arrangement without a harmful collision, which
+ * takes a moment. Setting the system property {@value #CACHE_PROPERTY} to a
+ * file path keeps the numbers in that file: they are read from it when it
+ * holds a valid set, and written to it after they are found otherwise.
+ * @see <a href="https://www.chessprogramming.org/Magic_Bitboards">Magic Bitboards</a> (Chess Programming Wiki)
+ */
+final class MagicBitboards {
+
+    /**
+     * System property naming the file the magic numbers are cached in.
+     */
+    static final String CACHE_PROPERTY = "chess.magicCache";
+
+    /**
+     * First four bytes of a cache file: "TCMB".
+     */
+    private static final int CACHE_MAGIC = 0x54434D42;
+
+    /**
+     * Seed for the candidate magic numbers, so every run finds the same
+     * ones.
+     */
+    private static final long SEED = 0x7EAC4E55L;
+
+    /**
+     * The spaces whose pieces can block a Rook on each space. The last
+     * space of each line is left out, since a piece there can't block
+     * anything beyond it.
+     */
+    private static final long[] ROOK_MASKS = new long[Bitboard.SQUARE_COUNT];
+
+    /**
+     * The spaces whose pieces can block a Bishop on each space.
+     */
+    private static final long[] BISHOP_MASKS = new long[Bitboard.SQUARE_COUNT];
+
+    /**
+     * Magic multiplier for a Rook on each space.
+     */
+    private static final long[] ROOK_MAGICS = new long[Bitboard.SQUARE_COUNT];
+
+    /**
+     * Magic multiplier for a Bishop on each space.
+     */
+    private static final long[] BISHOP_MAGICS = new long[Bitboard.SQUARE_COUNT];
+
+    /**
+     * How far the product is shifted for a Rook on each space: 64 less the
+     * number of spaces in its mask.
+     */
+    private static final int[] ROOK_SHIFTS = new int[Bitboard.SQUARE_COUNT];
+
+    /**
+     * How far the product is shifted for a Bishop on each space.
+     */
+    private static final int[] BISHOP_SHIFTS = new int[Bitboard.SQUARE_COUNT];
+
+    /**
+     * Rook attacks for each space, indexed by the magic index.
+     */
+    private static final long[][] ROOK_TABLES = new long[Bitboard.SQUARE_COUNT][];
+
+    /**
+     * Bishop attacks for each space, indexed by the magic index.
+     */
+    private static final long[][] BISHOP_TABLES = new long[Bitboard.SQUARE_COUNT][];
+
+    static {
+        final long edges = edgeSpaces();
+        for (int square = 0; square < Bitboard.SQUARE_COUNT; square++) {
+            ROOK_MASKS[square] = rookMask(square);
+            BISHOP_MASKS[square] = Attacks.slidingBishopAttacks(square, Bitboard.EMPTY) & ~edges;
+            ROOK_SHIFTS[square] = 64 - Bitboard.count(ROOK_MASKS[square]);
+            BISHOP_SHIFTS[square] = 64 - Bitboard.count(BISHOP_MASKS[square]);
+        }
+        final String cacheFile = System.getProperty(CACHE_PROPERTY);
+        if (cacheFile == null || !readCache(Paths.get(cacheFile))) {
+            findMagics();
+            if (cacheFile != null)
+                writeCache(Paths.get(cacheFile));
+        }
+    }
+
+    /**
+     * This class only holds static helpers.
+     */
+    private MagicBitboards()
+    {
+    }
+
+    /**
+     * @param square of the Rook (0-63)
+     * @param occupied bitboard of every occupied space
+     * @return bitboard of the spaces the Rook attacks
+     */
+    static long rookAttacks(int square, long occupied)
+    {
+        return ROOK_TABLES[square][(int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square])
+                                          >>> ROOK_SHIFTS[square])];
+    }
+
+    /**
+     * @param square of the Bishop (0-63)
+     * @param occupied bitboard of every occupied space
+     * @return bitboard of the spaces the Bishop attacks
+     */
+    static long bishopAttacks(int square, long occupied)
+    {
+        return BISHOP_TABLES[square][(int) (((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square])
+                                            >>> BISHOP_SHIFTS[square])];
+    }
+
+    /**
+     * Find a magic number for every space and fill in the tables with them.
+     */
+    private static void findMagics()
+    {
+        final long[] random = { SEED };
+        for (int square = 0; square < Bitboard.SQUARE_COUNT; square++) {
+            ROOK_MAGICS[square] = findMagic(square, true, random);
+            ROOK_TABLES[square] = buildTable(square, true, ROOK_MAGICS[square]);
+            BISHOP_MAGICS[square] = findMagic(square, false, random);
+            BISHOP_TABLES[square] = buildTable(square, false, BISHOP_MAGICS[square]);
+        }
+    }
+
+    /**
+     * Try random numbers until one indexes every arrangement of blockers
+     * for a piece on a space without two arrangements with different attacks
+     * landing on the same entry.
+     * @param rook true for a Rook, false for a Bishop
+     * @return the magic number
+     */
+    private static long findMagic(int square, boolean rook, long[] random)
+    {
+        final long mask = rook ? ROOK_MASKS[square] : BISHOP_MASKS[square];
+        final int shift = rook ? ROOK_SHIFTS[square] : BISHOP_SHIFTS[square];
+        final int size = 1 << (64 - shift);
+        final long[] blockers = new long[size];
+        final long[] attacks = new long[size];
+        // visit every subset of the mask
+        long subset = Bitboard.EMPTY;
+        for (int i = 0; i < size; i++) {
+            blockers[i] = subset;
+            attacks[i] = rook ? Attacks.slidingRookAttacks(square, subset)
+                              : Attacks.slidingBishopAttacks(square, subset);
+            subset = (subset - mask) & mask;
+        }
+
+        final long[] table = new long[size];
+        final int[] tries = new int[size]; // which try wrote each entry
+        for (int attempt = 1; ; attempt++) {
+            // candidates with few bits set work best
+            final long magic = nextRandom(random) & nextRandom(random) & nextRandom(random);
+            if (Bitboard.count((mask * magic) >>> 56) < 6)
+                continue;
+            boolean works = true;
+            for (int i = 0; works && i < size; i++) {
+                final int index = (int) ((blockers[i] * magic) >>> shift);
+                if (tries[index] != attempt) {
+                    tries[index] = attempt;
+                    table[index] = attacks[i];
+                } else {
+                    works = table[index] == attacks[i];
+                }
+            }
+            if (works)
+                return magic;
+        }
+    }
+
+    /**
+     * Get the next number from a xorshift64* generator, which is quick and
+     * random enough in every bit for finding magic numbers.
+     * @param state the generator's state, updated in place; never zero
+     * @return the next number
+     */
+    private static long nextRandom(long[] state)
+    {
+        long x = state[0];
+        x ^= x >>> 12;
+        x ^= x << 25;
+        x ^= x >>> 27;
+        state[0] = x;
+        return x * 0x2545F4914F6CDD1DL;
+    }
+
+    /**
+     * Fill in the attack table of a piece on a space.
+     * @param rook true for a Rook, false for a Bishop
+     * @return the table, or null if the magic number doesn't work
+     */
+    private static long[] buildTable(int square, boolean rook, long magic)
+    {
+        final long mask = rook ? ROOK_MASKS[square] : BISHOP_MASKS[square];
+        final int shift = rook ? ROOK_SHIFTS[square] : BISHOP_SHIFTS[square];
+        final long[] table = new long[1 << (64 - shift)];
+        final boolean[] filled = new boolean[table.length];
+        long subset = Bitboard.EMPTY;
+        do {
+            final long attacks = rook ? Attacks.slidingRookAttacks(square, subset)
+                                      : Attacks.slidingBishopAttacks(square, subset);
+            final int index = (int) ((subset * magic) >>> shift);
+            if (filled[index] && table[index] != attacks)
+                return null;
+            filled[index] = true;
+            table[index] = attacks;
+            subset = (subset - mask) & mask;
+        } while (subset != Bitboard.EMPTY);
+        return table;
+    }
+
+    /**
+     * Load the magic numbers from a cache file and fill in the tables with
+     * them.
+     * @return true if the file held a working set of magic numbers, false
+     * if it is missing or anything about it is wrong
+     */
+    private static boolean readCache(Path file)
+    {
+        if (!Files.isRegularFile(file))
+            return false;
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            if (in.readInt() != CACHE_MAGIC)
+                return false;
+            for (int square = 0; square < Bitboard.SQUARE_COUNT; square++)
+                ROOK_MAGICS[square] = in.readLong();
+            for (int square = 0; square < Bitboard.SQUARE_COUNT; square++)
+                BISHOP_MAGICS[square] = in.readLong();
+        } catch (IOException e) {
+            return false;
+        }
+        for (int square = 0; square < Bitboard.SQUARE_COUNT; square++) {
+            ROOK_TABLES[square] = buildTable(square, true, ROOK_MAGICS[square]);
+            BISHOP_TABLES[square] = buildTable(square, false, BISHOP_MAGICS[square]);
+            if (ROOK_TABLES[square] == null || BISHOP_TABLES[square] == null)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Save the magic numbers to a cache file. Failing to is only reported,
+     * since the numbers can always be found again.
+     */
+    private static void writeCache(Path file)
+    {
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            out.writeInt(CACHE_MAGIC);
+            for (long magic : ROOK_MAGICS)
+                out.writeLong(magic);
+            for (long magic : BISHOP_MAGICS)
+                out.writeLong(magic);
+        } catch (IOException e) {
+            System.err.println("Couldn't write the magic number cache " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Get the spaces a Rook on a space can be blocked on: its row and
+     * column, less the space itself and the edges of the board at the ends.
+     */
+    private static long rookMask(int square)
+    {
+        final int row = Bitboard.row(square);
+        final int column = Bitboard.column(square);
+        long mask = Bitboard.EMPTY;
+        for (int r = 2; r < ChessBoard.BOARD_SIZE; r++) {
+            if (r != row)
+                mask |= Bitboard.bit(Bitboard.square(r, column));
+        }
+        for (int c = 2; c < ChessBoard.BOARD_SIZE; c++) {
+            if (c != column)
+                mask |= Bitboard.bit(Bitboard.square(row, c));
+        }
+        return mask;
+    }
+
+    /**
+     * @return bitboard of every space on the edge of the board
+     */
+    private static long edgeSpaces()
+    {
+        long edges = Bitboard.EMPTY;
+        for (int i = 1; i <= ChessBoard.BOARD_SIZE; i++) {
+            edges |= Bitboard.bit(Bitboard.square(1, i)) | Bitboard.bit(Bitboard.square(ChessBoard.BOARD_SIZE, i));
+            edges |= Bitboard.bit(Bitboard.square(i, 1)) | Bitboard.bit(Bitboard.square(i, ChessBoard.BOARD_SIZE));
+        }
+        return edges;
+    }
+}
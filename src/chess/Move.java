@@ -0,0 +1,188 @@
+package chess;
+
+/**
+ * Helpers for chess moves encoded as ints. Moves are passed around as plain
+ * ints so that they can be stored in arrays without allocating objects.
+ * Only the low 16 bits are used:
+ * <pre>
+ *  bits  0-5   space the piece moves from (see {@link Bitboard})
+ *  bits  6-11  space the piece moves to
+ *  bits 12-15  flag describing special moves
+ * </pre>
+ */
+public final class Move {
+
+    /**
+     * Value used to indicate "no move". It can never be a real move since a
+     * piece can't move from a1 to a1.
+     */
+    public static final int NONE = 0;
+
+    /**
+     * An ordinary move or capture.
+     */
+    public static final int NORMAL = 0;
+
+    /**
+     * A pawn moving two spaces forward from its starting position.
+     */
+    public static final int DOUBLE_PAWN_PUSH = 1;
+
+    /**
+     * A king castling; the move's spaces are the king's.
+     */
+    public static final int CASTLE = 2;
+
+    /**
+     * A pawn making an en passant capture.
+     */
+    public static final int EN_PASSANT = 3;
+
+    /**
+     * A pawn promoting to a Knight.
+     */
+    public static final int PROMOTE_KNIGHT = 4;
+
+    /**
+     * A pawn promoting to a Bishop.
+     */
+    public static final int PROMOTE_BISHOP = 5;
+
+    /**
+     * A pawn promoting to a Rook.
+     */
+    public static final int PROMOTE_ROOK = 6;
+
+    /**
+     * A pawn promoting to a Queen.
+     */
+    public static final int PROMOTE_QUEEN = 7;
+
+    /**
+     * This class only holds static helpers.
+     */
+    private Move()
+    {
+    }
+
+    /**
+     * Create an ordinary move.
+     * @param from space index of the piece to move (0-63)
+     * @param to space index to move to (0-63)
+     * @return the encoded move
+     */
+    public static int create(int from, int to)
+    {
+        return create(from, to, NORMAL);
+    }
+
+    /**
+     * Create a move with a special move flag.
+     * @param from space index of the piece to move (0-63)
+     * @param to space index to move to (0-63)
+     * @param flag one of the flag constants in this class
+     * @return the encoded move
+     */
+    public static int create(int from, int to, int flag)
+    {
+        return from | (to << 6) | (flag << 12);
+    }
+
+    /**
+     * @param move encoded move
+     * @return space index the piece moves from
+     */
+    public static int from(int move)
+    {
+        return move & 0x3F;
+    }
+
+    /**
+     * @param move encoded move
+     * @return space index the piece moves to
+     */
+    public static int to(int move)
+    {
+        return (move >>> 6) & 0x3F;
+    }
+
+    /**
+     * @param move encoded move
+     * @return the move's flag
+     */
+    public static int flag(int move)
+    {
+        return (move >>> 12) & 0xF;
+    }
+
+    /**
+     * @param move encoded move
+     * @return true if the move promotes a pawn, false otherwise
+     */
+    public static boolean isPromotion(int move)
+    {
+        return flag(move) >= PROMOTE_KNIGHT;
+    }
+
+    /**
+     * Get the kind of piece a pawn is promoted to.
+     * @param move encoded move
+     * @return the promotion piece, or null if the move isn't a promotion
+     */
+    public static ChessPieceType promotionType(int move)
+    {
+        switch (flag(move)) {
+        case PROMOTE_KNIGHT: return ChessPieceType.KNIGHT;
+        case PROMOTE_BISHOP: return ChessPieceType.BISHOP;
+        case PROMOTE_ROOK:   return ChessPieceType.ROOK;
+        case PROMOTE_QUEEN:  return ChessPieceType.QUEEN;
+        default:             return null;
+        }
+    }
+
+    /**
+     * Get the flag for promoting a pawn to the given kind of piece.
+     * @param type Knight, Bishop, Rook or Queen
+     * @return the matching promotion flag
+     */
+    public static int promotionFlag(ChessPieceType type)
+    {
+        switch (type) {
+        case KNIGHT: return PROMOTE_KNIGHT;
+        case BISHOP: return PROMOTE_BISHOP;
+        case ROOK:   return PROMOTE_ROOK;
+        case QUEEN:  return PROMOTE_QUEEN;
+        default:
+            throw new IllegalArgumentException("Pawns can't promote to: " + type);
+        }
+    }
+
+    /**
+     * Write a move in coordinate notation, e.g. "e2e4" or "a7a8q".
+     * @param move encoded move
+     * @return the move as text
+     */
+    public static String toString(int move)
+    {
+        StringBuilder text = new StringBuilder(5);
+        appendSquare(text, from(move));
+        appendSquare(text, to(move));
+        switch (flag(move)) {
+        case PROMOTE_KNIGHT: text.append('n'); break;
+        case PROMOTE_BISHOP: text.append('b'); break;
+        case PROMOTE_ROOK:   text.append('r'); break;
+        case PROMOTE_QUEEN:  text.append('q'); break;
+        default: break;
+        }
+        return text.toString();
+    }
+
+    /**
+     * Append a space in algebraic chess notation, e.g. "e4".
+     */
+    private static void appendSquare(StringBuilder text, int square)
+    {
+        text.append(File.getFile(Bitboard.column(square)).name());
+        text.append(Bitboard.row(square));
+    }
+}
@@ -0,0 +1,232 @@
+package chess;
+
+/**
+ * Generates the moves chess pieces can make on a {@link ChessBoard}. Moves
+ * are added to a {@link MoveList} encoded as described in {@link Move}.
+ * <p>
+ * Pseudo-legal moves follow the movement rules of each piece, including
+ * castling, en passant and promotions, but may leave the moving player's
+ * king in check. Legal moves are the pseudo-legal moves that don't. Only
+ * the moves a piece can actually make are visited, rather than probing
+ * every space on the board.
+ */
+public final class MoveGenerator {
+
+    /**
+     * This class only holds static helpers.
+     */
+    private MoveGenerator()
+    {
+    }
+
+    /**
+     * Add every pseudo-legal move of a player to the list.
+     * @param board to generate moves on
+     * @param color of the player to move (BLACK or WHITE)
+     * @param moves list the moves are added to
+     */
+    public static void generatePseudoLegalMoves(ChessBoard board, ChessPieceColor color, MoveList moves)
+    {
+        for (long own = board.getOccupied(color); own != 0; own = Bitboard.popLowest(own))
+            generatePseudoLegalMoves(board, Bitboard.lowestSquare(own), moves);
+    }
+
+    /**
+     * Add every pseudo-legal move of the piece on a space to the list.
+     * @param board to generate moves on
+     * @param square of the piece to move (0-63)
+     * @param moves list the moves are added to
+     */
+    public static void generatePseudoLegalMoves(ChessBoard board, int square, MoveList moves)
+    {
+        final ChessPieceType type = board.getPieceType(square);
+        if (type == null)
+            return;
+        final ChessPieceColor color = board.getPieceColor(square);
+        final long occupied = board.getOccupied();
+        long targets;
+        switch (type) {
+        case PAWN:
+            addPawnMoves(board, color, square, moves);
+            return;
+        case KNIGHT:
+            targets = Attacks.knightAttacks(square);
+            break;
+        case BISHOP:
+            targets = Attacks.bishopAttacks(square, occupied);
+            break;
+        case ROOK:
+            targets = Attacks.rookAttacks(square, occupied);
+            break;
+        case QUEEN:
+            targets = Attacks.queenAttacks(square, occupied);
+            break;
+        case KING:
+            targets = Attacks.kingAttacks(square);
+            addCastlingMoves(board, square, moves);
+            break;
+        default:
+            return;
+        }
+        // can't capture your own color
+        targets &= ~board.getOccupied(color);
+        for (; targets != 0; targets = Bitboard.popLowest(targets))
+            moves.add(Move.create(square, Bitboard.lowestSquare(targets)));
+    }
+
+    /**
+     * Add every legal move of a player to the list.
+     * @param board to generate moves on
+     * @param color of the player to move (BLACK or WHITE)
+     * @param moves list the moves are added to
+     */
+    public static void generateLegalMoves(ChessBoard board, ChessPieceColor color, MoveList moves)
+    {
+        final int start = moves.size();
+        generatePseudoLegalMoves(board, color, moves);
+        removeIllegalMoves(board, color, moves, start);
+    }
+
+    /**
+     * Add every legal move of the piece on a space to the list.
+     * @param board to generate moves on
+     * @param square of the piece to move (0-63)
+     * @param moves list the moves are added to
+     */
+    public static void generateLegalMoves(ChessBoard board, int square, MoveList moves)
+    {
+        if (board.getPieceType(square) == null)
+            return;
+        final int start = moves.size();
+        generatePseudoLegalMoves(board, square, moves);
+        removeIllegalMoves(board, board.getPieceColor(square), moves, start);
+    }
+
+    /**
+     * Determine if a player has at least one legal move. Stops at the first
+     * legal move found.
+     * @param board to generate moves on
+     * @param color of the player to move (BLACK or WHITE)
+     * @param scratch list used while generating; its contents are replaced
+     * @return true if the player can move, false otherwise
+     */
+    public static boolean hasLegalMove(ChessBoard board, ChessPieceColor color, MoveList scratch)
+    {
+        for (long own = board.getOccupied(color); own != 0; own = Bitboard.popLowest(own)) {
+            scratch.clear();
+            generatePseudoLegalMoves(board, Bitboard.lowestSquare(own), scratch);
+            for (int i = 0; i < scratch.size(); i++) {
+                if (isLegal(board, scratch.get(i), color))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Determine if a pseudo-legal move is legal. Apart from en passant, this
+     * is worked out from the pins and checks in the position without making
+     * the move (see {@link ChessBoard#isLegalMove(int, ChessPieceColor)}).
+     * @param board the move is made on
+     * @param move to test
+     * @param color of the moving player
+     * @return true if the move doesn't leave the player's king in check
+     */
+    public static boolean isLegal(ChessBoard board, int move, ChessPieceColor color)
+    {
+        if (Move.flag(move) == Move.CASTLE) {
+            final int from = Move.from(move);
+            final int to = Move.to(move);
+            return board.canCastle(Bitboard.row(from), Bitboard.column(from),
+                                   Bitboard.row(to), Bitboard.column(to));
+        }
+        return board.isLegalMove(move, color);
+    }
+
+    /**
+     * Remove the moves that leave the king in check from the end of a list.
+     * @param start index of the first move to filter
+     */
+    private static void removeIllegalMoves(ChessBoard board, ChessPieceColor color, MoveList moves, int start)
+    {
+        int kept = start;
+        for (int i = start; i < moves.size(); i++) {
+            final int move = moves.get(i);
+            if (isLegal(board, move, color))
+                moves.set(kept++, move);
+        }
+        moves.truncate(kept);
+    }
+
+    /**
+     * Add the moves of a single Pawn: forward steps, captures, en passant and
+     * promotions.
+     */
+    private static void addPawnMoves(ChessBoard board, ChessPieceColor color, int square, MoveList moves)
+    {
+        final int forward = (color == ChessPieceColor.WHITE) ? 8 : -8;
+        final long empty = ~board.getOccupied();
+
+        final int oneStep = square + forward;
+        if (0 <= oneStep && oneStep < Bitboard.SQUARE_COUNT && Bitboard.contains(empty, oneStep)) {
+            addPawnMove(square, oneStep, color, moves);
+            final int twoSteps = oneStep + forward;
+            if (board.inStartingPosition(square) && Bitboard.contains(empty, twoSteps))
+                moves.add(Move.create(square, twoSteps, Move.DOUBLE_PAWN_PUSH));
+        }
+
+        final long attacks = Attacks.pawnAttacks(square, color);
+        for (long captures = attacks & board.getOccupied(color.otherColor());
+             captures != 0; captures = Bitboard.popLowest(captures)) {
+            addPawnMove(square, Bitboard.lowestSquare(captures), color, moves);
+        }
+
+        // en passant captures the enemy pawn that just skipped over this space
+        final int enPassantSquare = board.getEnPassantSquare();
+        final int enemySkippedRow = (color == ChessPieceColor.WHITE) ? 6 : 3;
+        if (enPassantSquare != ChessBoard.NO_SQUARE &&
+            Bitboard.row(enPassantSquare) == enemySkippedRow &&
+            Bitboard.contains(attacks, enPassantSquare)) {
+            moves.add(Move.create(square, enPassantSquare, Move.EN_PASSANT));
+        }
+    }
+
+    /**
+     * Add a Pawn move, expanding it into every promotion if the Pawn reaches
+     * the far side of the board.
+     */
+    private static void addPawnMove(int from, int to, ChessPieceColor color, MoveList moves)
+    {
+        final int lastRow = (color == ChessPieceColor.WHITE) ? 8 : 1;
+        if (Bitboard.row(to) == lastRow) {
+            moves.add(Move.create(from, to, Move.PROMOTE_QUEEN));
+            moves.add(Move.create(from, to, Move.PROMOTE_KNIGHT));
+            moves.add(Move.create(from, to, Move.PROMOTE_ROOK));
+            moves.add(Move.create(from, to, Move.PROMOTE_BISHOP));
+        } else {
+            moves.add(Move.create(from, to));
+        }
+    }
+
+    /**
+     * Add castling moves for a King that hasn't moved and has an unmoved Rook
+     * with no pieces in between. Whether the King passes through check is
+     * left to the legality test.
+     */
+    private static void addCastlingMoves(ChessBoard board, int square, MoveList moves)
+    {
+        if (!board.inStartingPosition(square))
+            return;
+        final long occupied = board.getOccupied();
+        // kingside: rook three spaces right, f and g empty
+        if (board.getPieceType(square + 3) == ChessPieceType.ROOK && board.inStartingPosition(square + 3) &&
+            (occupied & (Bitboard.bit(square + 1) | Bitboard.bit(square + 2))) == 0) {
+            moves.add(Move.create(square, square + 2, Move.CASTLE));
+        }
+        // queenside: rook four spaces left, b, c and d empty
+        if (board.getPieceType(square - 4) == ChessPieceType.ROOK && board.inStartingPosition(square - 4) &&
+            (occupied & (Bitboard.bit(square - 1) | Bitboard.bit(square - 2) | Bitboard.bit(square - 3))) == 0) {
+            moves.add(Move.create(square, square - 2, Move.CASTLE));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package chess;
+
+/**
+ * A reusable list of moves encoded as described in {@link Move}. The buffer
+ * is allocated once, so a MoveList can be cleared and refilled by
+ * {@link MoveGenerator} any number of times without allocating.
+ */
+public final class MoveList {
+
+    /**
+     * More moves than any chess position can have (the record is 218).
+     */
+    public static final int CAPACITY = 256;
+
+    /**
+     * The moves in the list.
+     */
+    private final int[] moves = new int[CAPACITY];
+
+    /**
+     * The number of moves in the list.
+     */
+    private int size;
+
+    /**
+     * Remove all of the moves from the list.
+     */
+    public void clear()
+    {
+        size = 0;
+    }
+
+    /**
+     * Add a move to the end of the list.
+     * @param move to add
+     */
+    public void add(int move)
+    {
+        moves[size++] = move;
+    }
+
+    /**
+     * Get the move at a position in the list.
+     * @param index of the move (0 to size - 1)
+     * @return the move
+     */
+    public int get(int index)
+    {
+        if (index >= size)
+            throw new IndexOutOfBoundsException("index: " + index + " size: " + size);
+        return moves[index];
+    }
+
+    /**
+     * @return the number of moves in the list
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * @return true if the list holds no moves, false otherwise
+     */
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * Determine if the list holds a move.
+     * @param move to look for
+     * @return true if the move is in the list, false otherwise
+     */
+    public boolean contains(int move)
+    {
+        for (int i = 0; i < size; i++) {
+            if (moves[i] == move)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Drop every move after the given number of moves.
+     */
+    void truncate(int newSize)
+    {
+        size = newSize;
+    }
+
+    /**
+     * Overwrite the move at a position in the list.
+     */
+    void set(int index, int move)
+    {
+        moves[index] = move;
+    }
+}
@@ -0,0 +1,71 @@
+package chess;
+
+/**
+ * Everything {@link ChessBoard#unmakeMove()} needs to take back a move made
+ * with {@link ChessBoard#makeMove(int)}. ChessBoard keeps a stack of these
+ * and reuses them, so making and unmaking moves doesn't allocate.
+ */
+final class MoveUndo {
+
+    /**
+     * The move that was made.
+     */
+    int move;
+
+    /**
+     * The board's moved pieces before this move.
+     */
+    long movedPieces;
+
+    /**
+     * The type of the piece that was captured, or null if nothing was captured.
+     */
+    ChessPieceType capturedType;
+
+    /**
+     * The color of the piece that was captured.
+     */
+    ChessPieceColor capturedColor;
+
+    /**
+     * Space the captured piece was on. Only differs from the move's
+     * destination for en passant captures.
+     */
+    int capturedSquare;
+
+    /**
+     * The space skipped by the board's last double pawn move before this move.
+     */
+    int enPassantSquare;
+
+    /**
+     * The space the pawn that made that double move landed on.
+     */
+    int doublePushSquare;
+
+    /**
+     * The player whose turn it was before this move.
+     */
+    ChessPieceColor sideToMove;
+
+    /**
+     * The board's halfmove clock before this move.
+     */
+    int halfmoveClock;
+
+    /**
+     * The board's fullmove number before this move.
+     */
+    int fullmoveNumber;
+
+    /**
+     * Whether the position before this move was counted for the threefold
+     * repetition rule.
+     */
+    boolean positionCounted;
+
+    /**
+     * The Zobrist key of the position before this move, if it was counted.
+     */
+    long positionKey;
+}
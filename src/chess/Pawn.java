@@ -27,6 +27,15 @@ public class Pawn extends ChessPiece {
         super(file, rank, color);
     }
 
+    /**
+     * @return {@link ChessPieceType#PAWN}
+     */
+    @Override
+    public ChessPieceType getType()
+    {
+        return ChessPieceType.PAWN;
+    }
+
     /**
      * Determine if the Pawn is in its starting position.
      */
@@ -85,15 +94,7 @@ public class Pawn extends ChessPiece {
     {
         if (isOffTheBoardOrToSelf(enemyRow, enemyColumn))
             return false;
-        boolean isMovingForward = false;
-        if (getColor() == ChessPieceColor.WHITE)
-            isMovingForward = getRow() < enemyRow;
-        if (getColor() == ChessPieceColor.BLACK)
-            isMovingForward = getRow() > enemyRow;
-        if (!isMovingForward)
-            return false;
-        int deltaRow = Math.abs(getRow() - enemyRow);
-        int deltaColumn = Math.abs(getColumn() - enemyColumn);
-        return (deltaRow == 1) && (deltaColumn == 1);
+        return Bitboard.contains(Attacks.pawnAttacks(getSquare(), getColor()),
+                                 Bitboard.square(enemyRow, enemyColumn));
     }
 }
@@ -0,0 +1,245 @@
+package chess;
+
+/**
+ * Counts the leaf nodes of the legal move tree to a given depth ("perft").
+ * The counts for well known positions are published, so comparing against
+ * them is a strong check on move generation, and the time taken gives a
+ * throughput number to track.
+ * <p>
+ * Usage: {@code java chess.Perft [depth [FEN]]} counts the nodes of one
+ * position (the starting position if no FEN is given), and
+ * {@code java chess.Perft suite [maxDepth]} checks every position in
+ * {@link #REFERENCE_POSITIONS}.
+ */
+public final class Perft {
+
+    /**
+     * A test position along with its published node counts.
+     */
+    public static final class Position {
+        /**
+         * Short description of the position.
+         */
+        public final String name;
+
+        /**
+         * The position in Forsyth-Edwards Notation.
+         */
+        public final String fen;
+
+        /**
+         * Expected node counts; the count for depth d is at index d - 1.
+         */
+        private final long[] nodeCounts;
+
+        /**
+         * Create a new reference position.
+         */
+        private Position(String name, String fen, long... nodeCounts)
+        {
+            this.name = name;
+            this.fen = fen;
+            this.nodeCounts = nodeCounts;
+        }
+
+        /**
+         * @return the deepest depth with a known node count
+         */
+        public int maxDepth()
+        {
+            return nodeCounts.length;
+        }
+
+        /**
+         * @param depth (1 to maxDepth)
+         * @return the published node count at that depth
+         */
+        public long nodeCount(int depth)
+        {
+            return nodeCounts[depth - 1];
+        }
+    }
+
+    /**
+     * The standard perft test positions and their published node counts.
+     * @see <a href="https://www.chessprogramming.org/Perft_Results">Perft Results</a> (Chess Programming Wiki)
+     */
+    public static final Position[] REFERENCE_POSITIONS = {
+        new Position("initial",
+                     "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                     20L, 400L, 8902L, 197281L, 4865609L, 119060324L),
+        new Position("Kiwipete",
+                     "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                     48L, 2039L, 97862L, 4085603L, 193690690L),
+        new Position("en passant and rook endgame",
+                     "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                     14L, 191L, 2812L, 43238L, 674624L, 11030083L),
+        new Position("promotions and castling",
+                     "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                     6L, 264L, 9467L, 422333L, 15833292L),
+        new Position("promotion with check",
+                     "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                     44L, 1486L, 62379L, 2103487L, 89941194L),
+        new Position("middlegame",
+                     "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+                     46L, 2079L, 89890L, 3894594L),
+        new Position("en passant out of check",
+                     "8/8/1k6/2b5/2pP4/8/5K2/8 b - d3 0 1",
+                     15L, 126L, 1928L, 13931L, 206379L, 1440467L),
+        new Position("en passant exposes king",
+                     "3k4/3p4/8/K1P4r/8/8/8/8 b - - 0 1",
+                     18L, 92L, 1670L, 10138L, 185429L, 1134888L),
+        new Position("underpromotion gives check",
+                     "8/P1k5/K7/8/8/8/8/8 w - - 0 1",
+                     6L, 27L, 273L, 1329L, 18135L, 92683L),
+        new Position("promotion out of check",
+                     "2K2r2/4P3/8/8/8/8/8/3k4 w - - 0 1",
+                     11L, 133L, 1442L, 19174L, 266199L, 3821001L),
+    };
+
+    /**
+     * The board the moves are counted on. It is returned to its starting
+     * position after every count.
+     */
+    private final ChessBoard board;
+
+    /**
+     * The player to move at the root of the tree.
+     */
+    private final ChessPieceColor sideToMove;
+
+    /**
+     * One reusable move list per ply, so counting doesn't allocate.
+     */
+    private MoveList[] movesAtPly = new MoveList[0];
+
+    /**
+     * Prepare to count moves on a board.
+     * @param board to count moves on
+     * @param sideToMove player to move first (BLACK or WHITE)
+     */
+    public Perft(ChessBoard board, ChessPieceColor sideToMove)
+    {
+        this.board = board;
+        this.sideToMove = sideToMove;
+    }
+
+    /**
+     * Prepare to count moves on a board, starting with the player whose turn
+     * it is.
+     * @param board to count moves on
+     */
+    public Perft(ChessBoard board)
+    {
+        this(board, board.getSideToMove());
+    }
+
+    /**
+     * Prepare to count moves on a position given in Forsyth-Edwards Notation.
+     * @param fen of the position
+     */
+    public Perft(String fen)
+    {
+        this(ChessBoard.fromFen(fen));
+    }
+
+    /**
+     * Count the leaf nodes of the legal move tree.
+     * @param depth number of plies to search (at least 1)
+     * @return number of positions reached after exactly depth plies
+     */
+    public long perft(int depth)
+    {
+        if (depth < 1)
+            throw new IllegalArgumentException("Perft depth must be at least 1: " + depth);
+        if (movesAtPly.length < depth) {
+            movesAtPly = new MoveList[depth];
+            for (int i = 0; i < depth; i++)
+                movesAtPly[i] = new MoveList();
+        }
+        return countNodes(sideToMove, depth);
+    }
+
+    /**
+     * Count nodes below the current position.
+     */
+    private long countNodes(ChessPieceColor color, int depth)
+    {
+        final MoveList moves = movesAtPly[depth - 1];
+        moves.clear();
+        MoveGenerator.generateLegalMoves(board, color, moves);
+        // every legal move is exactly one leaf, no need to make them
+        if (depth == 1)
+            return moves.size();
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            board.makeMove(moves.get(i));
+            nodes += countNodes(color.otherColor(), depth - 1);
+            board.unmakeMove();
+        }
+        return nodes;
+    }
+
+    /**
+     * Run perft from the command line.
+     */
+    public static void main(String[] args)
+    {
+        if (args.length > 0 && args[0].equals("suite")) {
+            int maxDepth = (args.length > 1) ? Integer.parseInt(args[1]) : 4;
+            System.exit(runSuite(maxDepth) ? 0 : 1);
+        }
+        int depth = (args.length > 0) ? Integer.parseInt(args[0]) : 5;
+        String fen = REFERENCE_POSITIONS[0].fen;
+        if (args.length > 1) {
+            StringBuilder joined = new StringBuilder();
+            for (int i = 1; i < args.length; i++)
+                joined.append(args[i]).append(' ');
+            fen = joined.toString();
+        }
+        Perft perft = new Perft(fen);
+        for (int d = 1; d <= depth; d++) {
+            long start = System.nanoTime();
+            long nodes = perft.perft(d);
+            System.out.println("depth " + d + ": " + describe(nodes, System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Check every reference position up to a maximum depth, printing each
+     * result.
+     * @param maxDepth deepest depth to count
+     * @return true if every count matched, false otherwise
+     */
+    private static boolean runSuite(int maxDepth)
+    {
+        boolean allPassed = true;
+        long totalNodes = 0;
+        long totalNanos = 0;
+        for (Position position : REFERENCE_POSITIONS) {
+            Perft perft = new Perft(position.fen);
+            int depth = Math.min(maxDepth, position.maxDepth());
+            long start = System.nanoTime();
+            long nodes = perft.perft(depth);
+            long elapsed = System.nanoTime() - start;
+            boolean passed = (nodes == position.nodeCount(depth));
+            allPassed &= passed;
+            totalNodes += nodes;
+            totalNanos += elapsed;
+            System.out.println((passed ? "ok   " : "FAIL ") + position.name + " depth " + depth
+                               + ": " + describe(nodes, elapsed)
+                               + (passed ? "" : " expected " + position.nodeCount(depth)));
+        }
+        System.out.println("total: " + describe(totalNodes, totalNanos));
+        return allPassed;
+    }
+
+    /**
+     * Describe a node count along with its throughput.
+     */
+    private static String describe(long nodes, long nanos)
+    {
+        long millis = Math.max(1, nanos / 1000000);
+        return String.format("%,d nodes in %,d ms (%,d nodes/second)", nodes, millis, nodes * 1000 / millis);
+    }
+}
@@ -26,6 +26,15 @@ public class Queen extends ChessPiece {
         super(file, rank, color);
     }
 
+    /**
+     * @return {@link ChessPieceType#QUEEN}
+     */
+    @Override
+    public ChessPieceType getType()
+    {
+        return ChessPieceType.QUEEN;
+    }
+
     /**
      * Determine if the Queen is in its starting position.
      */
@@ -0,0 +1,125 @@
+package chess;
+
+/**
+ * Counts how many times each position has come up in a game, keyed by the
+ * position's Zobrist key (see {@link Zobrist}), for the threefold
+ * repetition rule. ChessBoard adds the position before every move it makes
+ * and removes it again when the move is taken back, so counting a position
+ * is a single lookup however long the game is.
+ * <p>
+ * The table uses open addressing. A key whose count drops to zero keeps its
+ * slot, since the same position usually comes straight back when the move
+ * is made again; unused keys are dropped whenever the table fills up.
+ */
+final class RepetitionTable {
+
+    /**
+     * Number of slots a new table starts with; always a power of two.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * The key in each slot.
+     */
+    private long[] keys = new long[INITIAL_CAPACITY];
+
+    /**
+     * How many times the key in each slot has been added and not removed.
+     */
+    private int[] counts = new int[INITIAL_CAPACITY];
+
+    /**
+     * Whether each slot holds a key, even one with a count of zero.
+     */
+    private boolean[] used = new boolean[INITIAL_CAPACITY];
+
+    /**
+     * The number of slots holding a key.
+     */
+    private int usedSlots;
+
+    /**
+     * Count one more time a position has come up.
+     * @param key of the position
+     */
+    void add(long key)
+    {
+        if (2 * (usedSlots + 1) > keys.length)
+            rebuild();
+        final int slot = find(key);
+        if (!used[slot]) {
+            used[slot] = true;
+            keys[slot] = key;
+            usedSlots++;
+        }
+        counts[slot]++;
+    }
+
+    /**
+     * Take back one time a position came up. Nothing happens if the
+     * position isn't counted.
+     * @param key of the position
+     */
+    void remove(long key)
+    {
+        final int slot = find(key);
+        if (used[slot] && counts[slot] > 0)
+            counts[slot]--;
+    }
+
+    /**
+     * @param key of the position
+     * @return the number of times the position has been added and not
+     * removed
+     */
+    int count(long key)
+    {
+        final int slot = find(key);
+        return used[slot] ? counts[slot] : 0;
+    }
+
+    /**
+     * Find the slot holding a key, or the empty slot where it would go.
+     */
+    private int find(long key)
+    {
+        final int mask = keys.length - 1;
+        int slot = (int) (key ^ (key >>> 32)) & mask;
+        while (used[slot] && keys[slot] != key)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    /**
+     * Move the keys still counted to a new table with at least four slots
+     * for each of them, dropping the rest. Making and taking back moves in a
+     * search leaves many unused keys, so this usually keeps the same size.
+     */
+    private void rebuild()
+    {
+        final long[] oldKeys = keys;
+        final int[] oldCounts = counts;
+        final boolean[] oldUsed = used;
+        int counted = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i] && oldCounts[i] > 0)
+                counted++;
+        }
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < 4 * (counted + 1))
+            capacity *= 2;
+        keys = new long[capacity];
+        counts = new int[keys.length];
+        used = new boolean[keys.length];
+        usedSlots = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i] && oldCounts[i] > 0) {
+                final int slot = find(oldKeys[i]);
+                used[slot] = true;
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+                usedSlots++;
+            }
+        }
+    }
+}
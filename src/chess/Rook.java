@@ -27,6 +27,15 @@ public class Rook extends ChessPiece {
         super(file, rank, color);
     }
 
+    /**
+     * @return {@link ChessPieceType#ROOK}
+     */
+    @Override
+    public ChessPieceType getType()
+    {
+        return ChessPieceType.ROOK;
+    }
+
     /**
      * Determine if the Rook is in its starting position.
      */
@@ -0,0 +1,195 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size hash table of results keyed by the Zobrist key of a position
+ * (see {@link Zobrist}), so work done for a position can be reused the next
+ * time the same position comes up.
+ * <p>
+ * Each entry is a 64 bit key and 64 bit data value. The table holds no
+ * locks: an entry is stored as the pair (key XOR data, data), so a reader
+ * that sees half of one write and half of another gets a pair that doesn't
+ * match its key and simply treats it as a miss. That makes it safe to share
+ * one table between boards searched on different threads.
+ * <p>
+ * When two keys land on the same slot, the {@link ReplacementPolicy} decides
+ * which one is kept.
+ */
+public final class TranspositionTable {
+
+    /**
+     * How to choose between the entry already in a slot and a new one.
+     */
+    public enum ReplacementPolicy {
+        /**
+         * The newest entry always wins.
+         */
+        ALWAYS_REPLACE,
+
+        /**
+         * Keep the entry with the greater depth (the one that took more work
+         * to compute), unless it is left over from an earlier search.
+         */
+        DEPTH_PREFERRED
+    }
+
+    /**
+     * Returned by {@link #probe(long)} when the table holds nothing for a key.
+     * This value can't be stored.
+     */
+    public static final long NO_ENTRY = Long.MIN_VALUE;
+
+    /**
+     * Bytes used by each entry: the checked key and data, depth and
+     * generation.
+     */
+    private static final int BYTES_PER_ENTRY = 2 * 8 + 1 + 1;
+
+    /**
+     * Most entries the table can hold, limited by the size of Java arrays.
+     */
+    private static final int MAX_ENTRIES = 1 << 29;
+
+    /**
+     * Key XOR data at even indexes, data at the following odd index.
+     */
+    private final long[] entries;
+
+    /**
+     * Depth of the entry in each slot.
+     */
+    private final byte[] depths;
+
+    /**
+     * The {@link #generation} each slot was last written in. Zero means the
+     * slot has never been written.
+     */
+    private final byte[] generations;
+
+    /**
+     * Mask that turns a key into a slot index; the number of slots is a
+     * power of two.
+     */
+    private final int indexMask;
+
+    /**
+     * How entries are replaced.
+     */
+    private final ReplacementPolicy policy;
+
+    /**
+     * Incremented by {@link #newSearch()} so entries from earlier searches can
+     * be told apart. Never zero.
+     */
+    private byte generation = 1;
+
+    /**
+     * Create a table that prefers to keep deeper entries.
+     * @param megabytes of memory the table may use (at least 1)
+     */
+    public TranspositionTable(int megabytes)
+    {
+        this(megabytes, ReplacementPolicy.DEPTH_PREFERRED);
+    }
+
+    /**
+     * Create a table.
+     * @param megabytes of memory the table may use (at least 1)
+     * @param policy for replacing entries
+     */
+    public TranspositionTable(int megabytes, ReplacementPolicy policy)
+    {
+        if (megabytes < 1)
+            throw new IllegalArgumentException("Transposition table needs at least 1 megabyte: " + megabytes);
+        if (policy == null)
+            throw new IllegalArgumentException("Replacement policy can't be null");
+        long budget = (long) megabytes * 1024 * 1024 / BYTES_PER_ENTRY;
+        int capacity = (int) Math.min(MAX_ENTRIES, Long.highestOneBit(budget));
+        entries = new long[2 * capacity];
+        depths = new byte[capacity];
+        generations = new byte[capacity];
+        indexMask = capacity - 1;
+        this.policy = policy;
+    }
+
+    /**
+     * @return the number of entries the table can hold
+     */
+    public int capacity()
+    {
+        return indexMask + 1;
+    }
+
+    /**
+     * @return how the table replaces entries
+     */
+    public ReplacementPolicy getReplacementPolicy()
+    {
+        return policy;
+    }
+
+    /**
+     * Look up the data stored for a key.
+     * @param key of the position
+     * @return the stored data, or {@link #NO_ENTRY} if there isn't any
+     */
+    public long probe(long key)
+    {
+        final int slot = (int) key & indexMask;
+        final long data = entries[2 * slot + 1];
+        final long checked = entries[2 * slot];
+        if (key == 0 || (checked ^ data) != key)
+            return NO_ENTRY;
+        return data;
+    }
+
+    /**
+     * Store data for a key, if the replacement policy allows it.
+     * @param key of the position (zero is never stored)
+     * @param data to store (anything but {@link #NO_ENTRY})
+     * @param depth how much work the data took; only used for replacement
+     * @return true if the data was stored, false if it was rejected
+     */
+    public boolean store(long key, long data, int depth)
+    {
+        if (data == NO_ENTRY)
+            throw new IllegalArgumentException("NO_ENTRY can't be stored");
+        if (key == 0)
+            return false;
+        final int slot = (int) key & indexMask;
+        if (policy == ReplacementPolicy.DEPTH_PREFERRED) {
+            final long oldData = entries[2 * slot + 1];
+            final boolean sameKey = (entries[2 * slot] ^ oldData) == key;
+            if (!sameKey && generations[slot] == generation && depth < depths[slot])
+                return false;
+        }
+        entries[2 * slot + 1] = data;
+        entries[2 * slot] = key ^ data;
+        depths[slot] = (byte) Math.max(0, Math.min(Byte.MAX_VALUE, depth));
+        generations[slot] = generation;
+        return true;
+    }
+
+    /**
+     * Mark the start of a new search. Entries stored before this can still
+     * be found, but any new entry may replace them.
+     */
+    public void newSearch()
+    {
+        generation++;
+        if (generation == 0)
+            generation = 1;
+    }
+
+    /**
+     * Remove every entry.
+     */
+    public void clear()
+    {
+        Arrays.fill(entries, 0);
+        Arrays.fill(depths, (byte) 0);
+        Arrays.fill(generations, (byte) 0);
+        generation = 1;
+    }
+}
@@ -0,0 +1,102 @@
+package chess;
+
+import java.util.Random;
+
+/**
+ * Random numbers for Zobrist hashing of chess positions. A position's key is
+ * the exclusive or of the numbers for every piece on its space, the side to
+ * move, the castling rights still available and the file of a possible en
+ * passant capture. Since exclusive or undoes itself, moving a piece only
+ * needs the numbers of the spaces it leaves and enters, so
+ * {@link ChessBoard} keeps its key up to date as pieces move.
+ * <p>
+ * The numbers come from a fixed seed, so keys are the same from run to run
+ * and can be stored or compared across machines.
+ */
+public final class Zobrist {
+
+    /**
+     * Seed for the random numbers. Changing it changes every key.
+     */
+    private static final long SEED = 0x5EAC4E55L;
+
+    /**
+     * One number per piece type and color (ordered like the board's
+     * bitboards) for each space, flattened into one array.
+     */
+    private static final long[] PIECE_KEYS = new long[2 * ChessPieceType.COUNT * Bitboard.SQUARE_COUNT];
+
+    /**
+     * One number for each combination of castling rights.
+     */
+    private static final long[] CASTLING_KEYS = new long[16];
+
+    /**
+     * One number for each file an en passant capture can be made on.
+     */
+    private static final long[] EN_PASSANT_KEYS = new long[ChessBoard.BOARD_SIZE];
+
+    /**
+     * Number included when black is to move.
+     */
+    private static final long BLACK_TO_MOVE_KEY;
+
+    static {
+        Random random = new Random(SEED);
+        for (int i = 0; i < PIECE_KEYS.length; i++)
+            PIECE_KEYS[i] = random.nextLong();
+        // the empty set of rights contributes nothing
+        for (int rights = 1; rights < CASTLING_KEYS.length; rights++)
+            CASTLING_KEYS[rights] = random.nextLong();
+        for (int file = 0; file < EN_PASSANT_KEYS.length; file++)
+            EN_PASSANT_KEYS[file] = random.nextLong();
+        BLACK_TO_MOVE_KEY = random.nextLong();
+    }
+
+    /**
+     * This class only holds static helpers.
+     */
+    private Zobrist()
+    {
+    }
+
+    /**
+     * @param type of the chess piece
+     * @param color of the chess piece (BLACK or WHITE)
+     * @param square of the chess piece (0-63)
+     * @return the number for that piece standing on that space
+     */
+    public static long pieceKey(ChessPieceType type, ChessPieceColor color, int square)
+    {
+        final int index = color.ordinal() * ChessPieceType.COUNT + type.ordinal();
+        return PIECE_KEYS[index * Bitboard.SQUARE_COUNT + square];
+    }
+
+    /**
+     * @param rights castling rights, a combination of {@link ChessBoard#WHITE_KINGSIDE}
+     * and the other castling right bits
+     * @return the number for that set of castling rights
+     */
+    public static long castlingKey(int rights)
+    {
+        return CASTLING_KEYS[rights];
+    }
+
+    /**
+     * @param column of the en passant capture (1-8)
+     * @return the number for an en passant capture on that file
+     */
+    public static long enPassantKey(int column)
+    {
+        return EN_PASSANT_KEYS[column - 1];
+    }
+
+    /**
+     * @param color of the player to move
+     * @return the number for that player being the one to move
+     */
+    public static long sideToMoveKey(ChessPieceColor color)
+    {
+        return (color == ChessPieceColor.BLACK) ? BLACK_TO_MOVE_KEY : 0;
+    }
+}
@@ -0,0 +1,245 @@
+package chess.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import chess.Bitboard;
+import chess.ChessBoard;
+import chess.ChessPieceColor;
+import chess.ChessPieceType;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.MoveList;
+
+/**
+ * JMH benchmarks for the {@link ChessBoard} methods the game calls on every
+ * click and every turn. Each benchmark runs against an opening, a crowded
+ * middlegame and a sparse endgame position.
+ * <p>
+ * Run {@link #main(String[])} (or the JMH runner with {@code -prof gc}) to
+ * get the time per call along with the allocation rate per call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChessBoardBenchmark {
+
+    /**
+     * Italian game after 3...Nf6; white can castle kingside.
+     */
+    private static final String OPENING =
+            "r1bqkb1r/pppp1ppp/2n2n2/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4";
+
+    /**
+     * Kiwipete: both sides can castle and most pieces are still on the board.
+     */
+    private static final String MIDDLEGAME =
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+    /**
+     * Rook and pawn endgame with an en passant capture available.
+     */
+    private static final String ENDGAME =
+            "8/8/3p3r/KPp5/1R3p1k/8/4P1P1/8 w - c6 0 2";
+
+    /**
+     * Which position to benchmark.
+     */
+    @Param({ "opening", "middlegame", "endgame" })
+    public String position;
+
+    /**
+     * The board being benchmarked.
+     */
+    private ChessBoard board;
+
+    /**
+     * The player to move.
+     */
+    private ChessPieceColor sideToMove;
+
+    /**
+     * Every legal move of the player to move, as row/column quadruples.
+     */
+    private int[][] legalMoves;
+
+    /**
+     * Row and column of the player to move's king.
+     */
+    private int kingRow;
+    private int kingColumn;
+
+    /**
+     * Row and column of a pawn that may be able to capture en passant, and
+     * the space it would capture on.
+     */
+    private int[] enPassantProbe;
+
+    /**
+     * A legal move of the player to move, made and taken back to make the
+     * board forget results it cached for the position.
+     */
+    private int cacheBreakingMove;
+
+    /**
+     * Build the board for the current position.
+     */
+    @Setup
+    public void setUp()
+    {
+        String fen;
+        switch (position) {
+        case "opening":    fen = OPENING; break;
+        case "middlegame": fen = MIDDLEGAME; break;
+        default:           fen = ENDGAME; break;
+        }
+        board = ChessBoard.fromFen(fen);
+        sideToMove = board.getSideToMove();
+
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegalMoves(board, sideToMove, moves);
+        cacheBreakingMove = moves.get(0);
+        legalMoves = new int[moves.size()][];
+        for (int i = 0; i < moves.size(); i++)
+            legalMoves[i] = toRowsAndColumns(moves.get(i));
+
+        int kingSquare = Bitboard.lowestSquare(board.getBitboard(ChessPieceType.KING, sideToMove));
+        kingRow = Bitboard.row(kingSquare);
+        kingColumn = Bitboard.column(kingSquare);
+
+        // probe the first pawn move, which is the en passant capture if there is one
+        long pawns = board.getBitboard(ChessPieceType.PAWN, sideToMove);
+        enPassantProbe = new int[] { 1, 1, 2, 2 };
+        for (int i = 0; i < moves.size(); i++) {
+            if (Bitboard.contains(pawns, Move.from(moves.get(i)))) {
+                enPassantProbe = toRowsAndColumns(moves.get(i));
+                if (Move.flag(moves.get(i)) == Move.EN_PASSANT)
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Validate every legal move of the player to move.
+     */
+    @Benchmark
+    public void isValidMove(Blackhole blackhole)
+    {
+        for (int[] move : legalMoves)
+            blackhole.consume(board.isValidMove(move[0], move[1], move[2], move[3]));
+    }
+
+    @Benchmark
+    public boolean inCheck()
+    {
+        return board.inCheck(sideToMove);
+    }
+
+    /**
+     * Work out the game status from scratch. The board caches it until the
+     * position changes, so the cache is cleared first.
+     */
+    @Benchmark
+    public boolean checkmate()
+    {
+        forgetCachedResults();
+        return board.checkmate(sideToMove);
+    }
+
+    /**
+     * Work out the game status from scratch, like {@link #checkmate()}.
+     */
+    @Benchmark
+    public boolean stalemate()
+    {
+        forgetCachedResults();
+        return board.stalemate(sideToMove);
+    }
+
+    /**
+     * Ask whether the king can castle kingside. The pins behind the answer
+     * are cached until the position changes, so the cache is cleared first.
+     */
+    @Benchmark
+    public boolean canCastle()
+    {
+        forgetCachedResults();
+        return board.canCastle(kingRow, kingColumn, kingRow, kingColumn + 2);
+    }
+
+    /**
+     * The cost {@link #forgetCachedResults()} adds to the benchmarks that
+     * use it.
+     */
+    @Benchmark
+    public void makeAndUnmakeMove()
+    {
+        forgetCachedResults();
+    }
+
+    @Benchmark
+    public boolean canEnPassant()
+    {
+        return board.canEnPassant(enPassantProbe[0], enPassantProbe[1],
+                                  enPassantProbe[2], enPassantProbe[3]);
+    }
+
+    @Benchmark
+    public ChessBoard copyConstructor()
+    {
+        return new ChessBoard(board);
+    }
+
+    /**
+     * Make and take back a move. The board ends up in the same position,
+     * but it counts as changed, so results cached for the position are
+     * worked out again.
+     */
+    private void forgetCachedResults()
+    {
+        board.makeMove(cacheBreakingMove);
+        board.unmakeMove();
+    }
+
+    /**
+     * Split a move into the row/column arguments ChessBoard's methods take.
+     */
+    private static int[] toRowsAndColumns(int move)
+    {
+        return new int[] { Bitboard.row(Move.from(move)), Bitboard.column(Move.from(move)),
+                           Bitboard.row(Move.to(move)),   Bitboard.column(Move.to(move)) };
+    }
+
+    /**
+     * Run the benchmarks with the GC profiler, which reports the bytes
+     * allocated per call alongside the timings.
+     */
+    public static void main(String[] args) throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .include(ChessBoardBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
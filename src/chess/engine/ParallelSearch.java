@@ -0,0 +1,237 @@
+package chess.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import chess.ChessBoard;
+import chess.Move;
+import chess.TranspositionTable;
+
+/**
+ * Searches with several threads at once ("Lazy SMP"). Every thread runs its
+ * own {@link Search} of the same position on its own copy of the board, with
+ * its own killer and history tables, and they all share one
+ * {@link TranspositionTable}. Results one thread stores cut short the work of
+ * the others, and helper threads start some iterations deeper so the
+ * threads spread out over the tree instead of repeating each other.
+ * <p>
+ * The calling thread runs the main search. Its limits decide when every
+ * thread stops, and the deepest completed result of any thread is returned.
+ */
+public final class ParallelSearch {
+
+    /**
+     * One search per thread; the first is run by the calling thread.
+     */
+    private final Search[] searches;
+
+    /**
+     * Runs the helper searches, or null with a single thread.
+     */
+    private final ExecutorService helpers;
+
+    /**
+     * The table shared by every thread.
+     */
+    private final TranspositionTable table;
+
+    /**
+     * Each thread's result from the last search, main thread first.
+     */
+    private volatile SearchResult[] threadResults = new SearchResult[0];
+
+    /**
+     * Create a search that uses every available processor.
+     * @param table transposition table to share, or null to create a small one
+     */
+    public ParallelSearch(TranspositionTable table)
+    {
+        this(table, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a search with a given number of threads.
+     * @param table transposition table to share, or null to create a small one
+     * @param threadCount threads to search with, including the calling thread
+     * (at least 1)
+     */
+    public ParallelSearch(TranspositionTable table, int threadCount)
+    {
+        if (threadCount < 1)
+            throw new IllegalArgumentException("Search needs at least one thread: " + threadCount);
+        this.table = (table != null) ? table : new TranspositionTable(1);
+        searches = new Search[threadCount];
+        for (int i = 0; i < threadCount; i++)
+            searches[i] = new Search(this.table);
+        helpers = (threadCount == 1) ? null : Executors.newFixedThreadPool(threadCount - 1, new ThreadFactory() {
+            private int created;
+
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "TeaChess search helper " + ++created);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * @return the number of threads searching, including the calling thread
+     */
+    public int getThreadCount()
+    {
+        return searches.length;
+    }
+
+    /**
+     * @return the transposition table the threads share
+     */
+    public TranspositionTable getTranspositionTable()
+    {
+        return table;
+    }
+
+    /**
+     * Search for the best move of the player whose turn it is. The board is
+     * back in its original position when this returns.
+     * @param board to search
+     * @param limits of the main search; helpers stop when it does
+     * @return the deepest result found by any thread, with the nodes of
+     * every thread added up
+     */
+    public SearchResult search(ChessBoard board, SearchLimits limits)
+    {
+        for (Search search : searches)
+            search.clearStopRequest();
+        return run(board, limits);
+    }
+
+    /**
+     * Start a search on its own thread (plus the helpers). The search works
+     * on a copy of the board, so the board can still be used while it runs.
+     * @param board to search
+     * @param limits of the search
+     * @return handle for cancelling the search and collecting its result
+     */
+    public SearchHandle start(ChessBoard board, final SearchLimits limits)
+    {
+        for (Search search : searches)
+            search.clearStopRequest();
+        final ChessBoard copy = new ChessBoard(board);
+        return new SearchHandle(new Callable<SearchResult>() {
+            @Override
+            public SearchResult call()
+            {
+                return run(copy, limits);
+            }
+        }, new Runnable() {
+            @Override
+            public void run()
+            {
+                stop();
+            }
+        });
+    }
+
+    /**
+     * Have a listener told about every iteration the main search completes,
+     * on the thread running it. The helpers' iterations aren't reported, and
+     * the node counts reported are the main search's alone.
+     * @param listener to tell, or null to stop telling anyone
+     */
+    public void setListener(SearchListener listener)
+    {
+        searches[0].setListener(listener);
+    }
+
+    /**
+     * Make every thread return as soon as possible. Safe to call from any
+     * thread.
+     */
+    public void stop()
+    {
+        for (Search search : searches)
+            search.stop();
+    }
+
+    /**
+     * Get what each thread did in the last search, e.g. to report the nodes
+     * per second of each thread.
+     * @return one result per thread, main thread first
+     */
+    public SearchResult[] getThreadResults()
+    {
+        return threadResults.clone();
+    }
+
+    /**
+     * Stop the helper threads for good. The search can't be used afterwards.
+     */
+    public void shutdown()
+    {
+        stop();
+        if (helpers != null)
+            helpers.shutdownNow();
+    }
+
+    /**
+     * Run the main search on this thread and the helpers on theirs.
+     */
+    private SearchResult run(ChessBoard board, final SearchLimits limits)
+    {
+        table.newSearch();
+        List<Future<SearchResult>> helperResults = new ArrayList<>(searches.length - 1);
+        for (int i = 1; i < searches.length; i++) {
+            final Search helper = searches[i];
+            final ChessBoard helperBoard = new ChessBoard(board);
+            // half the helpers start a ply deeper than the main search
+            final int firstDepth = 1 + (i & 1);
+            helperResults.add(helpers.submit(new Callable<SearchResult>() {
+                @Override
+                public SearchResult call()
+                {
+                    return helper.run(helperBoard, limits, firstDepth);
+                }
+            }));
+        }
+
+        final SearchResult[] results = new SearchResult[searches.length];
+        try {
+            results[0] = searches[0].run(board, limits, 1);
+        } finally {
+            for (int i = 1; i < searches.length; i++)
+                searches[i].stop();
+        }
+        boolean interrupted = false;
+        for (int i = 1; i < searches.length; i++) {
+            try {
+                results[i] = helperResults.get(i - 1).get();
+            } catch (InterruptedException e) {
+                interrupted = true;
+                i--; // the helper was told to stop, so keep waiting for it
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Search helper failed", e.getCause());
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        threadResults = results;
+
+        SearchResult best = results[0];
+        long totalNodes = 0;
+        for (SearchResult result : results) {
+            totalNodes += result.nodes;
+            if (result.depth > best.depth && result.bestMove != Move.NONE)
+                best = result;
+        }
+        return new SearchResult(best.bestMove, best.score, best.depth, totalNodes,
+                                results[0].elapsedNanos, best.getPrincipalVariation());
+    }
+}
@@ -0,0 +1,662 @@
+package chess.engine;
+
+import java.util.concurrent.Callable;
+
+import chess.Bitboard;
+import chess.ChessBoard;
+import chess.ChessPieceColor;
+import chess.ChessPieceType;
+import chess.Evaluator;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.MoveList;
+import chess.TranspositionTable;
+
+/**
+ * Finds the best move on a {@link ChessBoard} with a negamax alpha-beta
+ * search. Iterative deepening searches one ply deeper at a time until the
+ * {@link SearchLimits} run out, and each iteration starts from the moves the
+ * last one found best, so the result of the last complete iteration is
+ * always ready to return.
+ * <p>
+ * Moves are made and taken back on the board itself, and every buffer is
+ * allocated up front, so the search doesn't allocate while it runs. A Search
+ * is not thread safe, but any number of them can share one
+ * {@link TranspositionTable}.
+ */
+public final class Search {
+
+    /**
+     * Deepest the search can go, in plies, including captures searched past
+     * the nominal depth.
+     */
+    public static final int MAX_PLY = 128;
+
+    /**
+     * Deepest iteration a search can be limited to.
+     */
+    public static final int MAX_DEPTH = 64;
+
+    /**
+     * Score for being checkmated right now. Being checkmated n plies from now
+     * scores -(MATE - n).
+     */
+    public static final int MATE = 32000;
+
+    /**
+     * Scores at least this far from zero are forced checkmates.
+     */
+    public static final int MATE_BOUND = MATE - MAX_PLY;
+
+    /**
+     * Larger than any score.
+     */
+    private static final int INFINITY = MATE + 1;
+
+    /**
+     * Transposition table entry bound: the score is exact.
+     */
+    private static final int EXACT = 1;
+
+    /**
+     * Transposition table entry bound: the score is at least this.
+     */
+    private static final int LOWER_BOUND = 2;
+
+    /**
+     * Transposition table entry bound: the score is at most this.
+     */
+    private static final int UPPER_BOUND = 3;
+
+    /**
+     * Ordering score of the transposition table's move, which is searched
+     * first. Moves are searched from highest to lowest ordering score.
+     */
+    private static final int TABLE_MOVE_ORDER = 1 << 30;
+
+    /**
+     * Base ordering score of captures and promotions.
+     */
+    private static final int CAPTURE_ORDER = 1 << 24;
+
+    /**
+     * Ordering scores of the two killer moves, just below captures.
+     */
+    private static final int FIRST_KILLER_ORDER = CAPTURE_ORDER - 1;
+    private static final int SECOND_KILLER_ORDER = CAPTURE_ORDER - 2;
+
+    /**
+     * Cap on history scores, keeping them below the killers.
+     */
+    private static final int MAX_HISTORY = 1 << 20;
+
+    /**
+     * Check the clock after this many nodes (must be one less than a power
+     * of two).
+     */
+    private static final long CLOCK_CHECK_MASK = 1023;
+
+    /**
+     * Results shared between searches, keyed by position.
+     */
+    private final TranspositionTable table;
+
+    /**
+     * Scratch list for move generation.
+     */
+    private final MoveList generated = new MoveList();
+
+    /**
+     * The moves being searched at each ply.
+     */
+    private final int[][] movesAtPly = new int[MAX_PLY][MoveList.CAPACITY];
+
+    /**
+     * Ordering score of each move in {@link #movesAtPly}.
+     */
+    private final int[][] orderAtPly = new int[MAX_PLY][MoveList.CAPACITY];
+
+    /**
+     * Best line found from each ply on. Only the part from the ply on is
+     * used, so this is a triangular table.
+     */
+    private final int[][] pvTable = new int[MAX_PLY][MAX_PLY];
+
+    /**
+     * Length of the line in {@link #pvTable} for each ply.
+     */
+    private final int[] pvLength = new int[MAX_PLY];
+
+    /**
+     * Two quiet moves per ply that recently caused a cutoff.
+     */
+    private final int[][] killers = new int[MAX_PLY][2];
+
+    /**
+     * How often each quiet move caused a cutoff, indexed by color and then
+     * from and to space.
+     */
+    private final int[] history = new int[2 * Bitboard.SQUARE_COUNT * Bitboard.SQUARE_COUNT];
+
+    /**
+     * Set from any thread to make the search return early.
+     */
+    private volatile boolean stopRequested;
+
+    /**
+     * Told about every completed iteration, or null.
+     */
+    private volatile SearchListener listener;
+
+    /**
+     * Set once the current search has run out of its limits.
+     */
+    private boolean aborted;
+
+    /**
+     * Positions visited by the current search.
+     */
+    private long nodes;
+
+    /**
+     * Node limit of the current search.
+     */
+    private long maxNodes;
+
+    /**
+     * When the current search has to stop, by {@link System#nanoTime()}.
+     */
+    private long deadline;
+
+    /**
+     * Best move at the root in the iteration being searched.
+     */
+    private int rootBestMove;
+
+    /**
+     * Create a search.
+     * @param table transposition table to share, or null to create a small
+     * one of its own
+     */
+    public Search(TranspositionTable table)
+    {
+        this.table = (table != null) ? table : new TranspositionTable(1);
+    }
+
+    /**
+     * @return the transposition table the search uses
+     */
+    public TranspositionTable getTranspositionTable()
+    {
+        return table;
+    }
+
+    /**
+     * Search for the best move of the player whose turn it is. The board is
+     * used for making and taking back moves while searching, and is back in
+     * its original position when this returns.
+     * @param board to search
+     * @param limits of the search
+     * @return what the search found
+     */
+    public SearchResult search(ChessBoard board, SearchLimits limits)
+    {
+        stopRequested = false;
+        table.newSearch();
+        return run(board, limits, 1);
+    }
+
+    /**
+     * Run a search without clearing an earlier stop request, so a search
+     * started on another thread can be cancelled before it gets going.
+     * @param firstDepth depth of the first iteration; helper threads of a
+     * {@link ParallelSearch} start deeper to spread out their work
+     */
+    SearchResult run(ChessBoard board, SearchLimits limits, int firstDepth)
+    {
+        final long start = System.nanoTime();
+        aborted = false;
+        nodes = 0;
+        maxNodes = limits.maxNodes;
+        deadline = (limits.maxMillis == SearchLimits.UNLIMITED)
+                ? Long.MAX_VALUE : start + limits.maxMillis * 1000000L;
+        prepareMoveOrdering();
+
+        final ChessPieceColor color = board.getSideToMove();
+        int bestMove = Move.NONE;
+        int bestScore = 0;
+        int completedDepth = 0;
+        int[] principalVariation = new int[0];
+        for (int depth = Math.min(firstDepth, limits.maxDepth); depth <= limits.maxDepth; depth++) {
+            rootBestMove = Move.NONE;
+            final int score = negamax(board, color, depth, -INFINITY, INFINITY, 0);
+            if (aborted) {
+                // the previous best move is searched first, so anything that
+                // beat it in the unfinished iteration is still an improvement
+                if (rootBestMove != Move.NONE && rootBestMove != bestMove) {
+                    bestMove = rootBestMove;
+                    principalVariation = new int[] { bestMove };
+                }
+                break;
+            }
+            completedDepth = depth;
+            bestScore = score;
+            principalVariation = new int[pvLength[0]];
+            System.arraycopy(pvTable[0], 0, principalVariation, 0, pvLength[0]);
+            bestMove = (principalVariation.length > 0) ? principalVariation[0] : Move.NONE;
+            final SearchListener currentListener = listener;
+            if (currentListener != null) {
+                currentListener.iterationCompleted(new SearchResult(bestMove, bestScore, depth, nodes,
+                                                                    System.nanoTime() - start,
+                                                                    principalVariation));
+            }
+            // nothing more to learn once a forced checkmate is found
+            if (bestMove == Move.NONE || Math.abs(score) >= MATE_BOUND)
+                break;
+        }
+        // stopped before any move was searched; any legal move beats none
+        if (bestMove == Move.NONE && aborted)
+            bestMove = firstLegalMove(board, color);
+        return new SearchResult(bestMove, bestScore, completedDepth, nodes,
+                                System.nanoTime() - start, principalVariation);
+    }
+
+    /**
+     * Start a search on its own thread. The search works on a copy of the
+     * board, so the board can still be used while the search runs.
+     * @param board to search
+     * @param limits of the search
+     * @return handle for cancelling the search and collecting its result
+     */
+    public SearchHandle start(ChessBoard board, SearchLimits limits)
+    {
+        stopRequested = false;
+        table.newSearch();
+        final ChessBoard copy = new ChessBoard(board);
+        final SearchLimits searchLimits = limits;
+        return new SearchHandle(new Callable<SearchResult>() {
+            @Override
+            public SearchResult call()
+            {
+                return run(copy, searchLimits, 1);
+            }
+        }, new Runnable() {
+            @Override
+            public void run()
+            {
+                stop();
+            }
+        });
+    }
+
+    /**
+     * Have a listener told about every iteration the search completes, on
+     * the searching thread.
+     * @param listener to tell, or null to stop telling anyone
+     */
+    public void setListener(SearchListener listener)
+    {
+        this.listener = listener;
+    }
+
+    /**
+     * Make the current search return its best move as soon as possible.
+     * Safe to call from any thread.
+     */
+    public void stop()
+    {
+        stopRequested = true;
+    }
+
+    /**
+     * Forget an earlier stop request before a new search starts.
+     */
+    void clearStopRequest()
+    {
+        stopRequested = false;
+    }
+
+    /**
+     * @return positions visited by the current (or last) search
+     */
+    public long getNodes()
+    {
+        return nodes;
+    }
+
+    /**
+     * Search a position to a depth.
+     * @return the score for the player to move, or 0 if the search aborted
+     */
+    private int negamax(ChessBoard board, ChessPieceColor color, int depth, int alpha, int beta, int ply)
+    {
+        pvLength[ply] = 0;
+        if (outOfLimits())
+            return 0;
+        if (depth <= 0) {
+            // don't stop in check, where standing pat isn't an option
+            if (!board.inCheck(color))
+                return quiesce(board, color, alpha, beta, ply);
+            depth = 1;
+        }
+        nodes++;
+        if (ply >= MAX_PLY - 1)
+            return Evaluator.evaluate(board, color);
+
+        final long key = board.getZobristKey();
+        int tableMove = Move.NONE;
+        final long entry = table.probe(key);
+        if (entry != TranspositionTable.NO_ENTRY) {
+            tableMove = entryMove(entry);
+            if (ply > 0 && entryDepth(entry) >= depth) {
+                final int score = scoreFromTable(entryScore(entry), ply);
+                final int bound = entryBound(entry);
+                if (bound == EXACT ||
+                    bound == LOWER_BOUND && score >= beta ||
+                    bound == UPPER_BOUND && score <= alpha)
+                    return score;
+            }
+        }
+
+        final int count = orderMoves(board, color, ply, tableMove, false);
+        final int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int bestMove = Move.NONE;
+        int legalMoves = 0;
+        for (int i = 0; i < count; i++) {
+            final int move = nextMove(ply, i, count);
+            if (!makeLegalMove(board, move, color))
+                continue;
+            legalMoves++;
+            final int score = -negamax(board, color.otherColor(), depth - 1, -beta, -alpha, ply + 1);
+            board.unmakeMove();
+            if (aborted)
+                return 0;
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+            }
+            if (score > alpha) {
+                alpha = score;
+                updatePrincipalVariation(move, ply);
+                if (ply == 0)
+                    rootBestMove = move;
+                if (alpha >= beta) {
+                    if (isQuiet(board, move))
+                        rememberCutoff(move, color, depth, ply);
+                    break;
+                }
+            }
+        }
+        if (legalMoves == 0)
+            return board.inCheck(color) ? -MATE + ply : 0;
+
+        final int bound = (bestScore <= originalAlpha) ? UPPER_BOUND
+                        : (bestScore >= beta) ? LOWER_BOUND : EXACT;
+        table.store(key, packEntry(bestMove, scoreToTable(bestScore, ply), depth, bound), depth);
+        return bestScore;
+    }
+
+    /**
+     * Search only captures and promotions until the position is quiet, so a
+     * position isn't judged in the middle of an exchange. A player in check
+     * can't stand pat, so then every move out of check is searched instead.
+     * @return the score for the player to move, or 0 if the search aborted
+     */
+    private int quiesce(ChessBoard board, ChessPieceColor color, int alpha, int beta, int ply)
+    {
+        nodes++;
+        if (ply >= MAX_PLY - 1)
+            return Evaluator.evaluate(board, color);
+        final boolean inCheck = board.inCheck(color);
+        if (!inCheck) {
+            final int standPat = Evaluator.evaluate(board, color);
+            if (standPat >= beta)
+                return standPat;
+            if (standPat > alpha)
+                alpha = standPat;
+        }
+
+        final int count = orderMoves(board, color, ply, Move.NONE, !inCheck);
+        int legalMoves = 0;
+        for (int i = 0; i < count; i++) {
+            final int move = nextMove(ply, i, count);
+            if (!makeLegalMove(board, move, color))
+                continue;
+            legalMoves++;
+            final int score = -quiesce(board, color.otherColor(), -beta, -alpha, ply + 1);
+            board.unmakeMove();
+            if (outOfLimits())
+                return 0;
+            if (score > alpha) {
+                alpha = score;
+                if (alpha >= beta)
+                    break;
+            }
+        }
+        if (inCheck && legalMoves == 0)
+            return -MATE + ply;
+        return alpha;
+    }
+
+    /**
+     * @return the first legal move found, or {@link Move#NONE} if there isn't one
+     */
+    private int firstLegalMove(ChessBoard board, ChessPieceColor color)
+    {
+        generated.clear();
+        MoveGenerator.generateLegalMoves(board, color, generated);
+        return generated.isEmpty() ? Move.NONE : generated.get(0);
+    }
+
+    /**
+     * Make a pseudo-legal move if it is legal.
+     * @return true if the move was made, false if it was illegal and the
+     * board is unchanged
+     */
+    private static boolean makeLegalMove(ChessBoard board, int move, ChessPieceColor color)
+    {
+        if (Move.flag(move) == Move.CASTLE) {
+            final int from = Move.from(move);
+            final int to = Move.to(move);
+            if (!board.canCastle(Bitboard.row(from), Bitboard.column(from),
+                                 Bitboard.row(to), Bitboard.column(to)))
+                return false;
+        }
+        board.makeMove(move);
+        if (board.inCheck(color)) {
+            board.unmakeMove();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Generate the moves for a ply and give each an ordering score: the
+     * transposition table's move first, then captures by most valuable
+     * victim and least valuable attacker, then killers, then by history.
+     * @param capturesOnly true to keep only captures and promotions
+     * @return the number of moves
+     */
+    private int orderMoves(ChessBoard board, ChessPieceColor color, int ply, int tableMove, boolean capturesOnly)
+    {
+        generated.clear();
+        MoveGenerator.generatePseudoLegalMoves(board, color, generated);
+        final int[] moves = movesAtPly[ply];
+        final int[] order = orderAtPly[ply];
+        final int historyBase = color.ordinal() * Bitboard.SQUARE_COUNT * Bitboard.SQUARE_COUNT;
+        int count = 0;
+        for (int i = 0; i < generated.size(); i++) {
+            final int move = generated.get(i);
+            final int flag = Move.flag(move);
+            final ChessPieceType victim = board.getPieceType(Move.to(move));
+            final boolean capture = victim != null || flag == Move.EN_PASSANT;
+            final boolean promotion = Move.isPromotion(move);
+            if (capturesOnly && !capture && flag != Move.PROMOTE_QUEEN)
+                continue;
+            int score;
+            if (move == tableMove) {
+                score = TABLE_MOVE_ORDER;
+            } else if (capture || promotion) {
+                final int victimValue = (victim != null) ? Evaluator.pieceValue(victim)
+                                      : promotion ? 0 : Evaluator.pieceValue(ChessPieceType.PAWN);
+                final ChessPieceType attacker = board.getPieceType(Move.from(move));
+                score = CAPTURE_ORDER + 16 * victimValue - Evaluator.pieceValue(attacker) / 16;
+                if (promotion)
+                    score += Evaluator.pieceValue(Move.promotionType(move));
+            } else if (move == killers[ply][0]) {
+                score = FIRST_KILLER_ORDER;
+            } else if (move == killers[ply][1]) {
+                score = SECOND_KILLER_ORDER;
+            } else {
+                score = history[historyBase + (move & 0xFFF)];
+            }
+            moves[count] = move;
+            order[count] = score;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Bring the best remaining move of a ply to position i (selection sort,
+     * so moves after a cutoff are never sorted).
+     * @return the move at position i
+     */
+    private int nextMove(int ply, int i, int count)
+    {
+        final int[] moves = movesAtPly[ply];
+        final int[] order = orderAtPly[ply];
+        int best = i;
+        for (int j = i + 1; j < count; j++) {
+            if (order[j] > order[best])
+                best = j;
+        }
+        final int move = moves[best];
+        moves[best] = moves[i];
+        moves[i] = move;
+        final int score = order[best];
+        order[best] = order[i];
+        order[i] = score;
+        return move;
+    }
+
+    /**
+     * @return true if a move neither captures nor promotes
+     */
+    private static boolean isQuiet(ChessBoard board, int move)
+    {
+        // the move has been taken back, so the destination holds the victim
+        return board.getPieceType(Move.to(move)) == null
+               && Move.flag(move) != Move.EN_PASSANT && !Move.isPromotion(move);
+    }
+
+    /**
+     * Remember a quiet move that caused a cutoff, so it is tried early in
+     * sibling positions.
+     */
+    private void rememberCutoff(int move, ChessPieceColor color, int depth, int ply)
+    {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        final int index = color.ordinal() * Bitboard.SQUARE_COUNT * Bitboard.SQUARE_COUNT + (move & 0xFFF);
+        history[index] = Math.min(MAX_HISTORY, history[index] + depth * depth);
+    }
+
+    /**
+     * Reset the killers and age the history before a new search.
+     */
+    private void prepareMoveOrdering()
+    {
+        for (int[] plyKillers : killers) {
+            plyKillers[0] = Move.NONE;
+            plyKillers[1] = Move.NONE;
+        }
+        for (int i = 0; i < history.length; i++)
+            history[i] /= 2;
+    }
+
+    /**
+     * Make a move the head of the best line at a ply, followed by the best
+     * line of the ply below.
+     */
+    private void updatePrincipalVariation(int move, int ply)
+    {
+        final int[] line = pvTable[ply];
+        line[0] = move;
+        final int childLength = (ply + 1 < MAX_PLY) ? pvLength[ply + 1] : 0;
+        if (childLength > 0)
+            System.arraycopy(pvTable[ply + 1], 0, line, 1, Math.min(childLength, MAX_PLY - 1));
+        pvLength[ply] = Math.min(childLength + 1, MAX_PLY);
+    }
+
+    /**
+     * Determine if the search has to stop, checking the clock only every so
+     * often since it is slow.
+     */
+    private boolean outOfLimits()
+    {
+        if (aborted)
+            return true;
+        if (stopRequested || nodes >= maxNodes ||
+            (nodes & CLOCK_CHECK_MASK) == 0 && System.nanoTime() >= deadline)
+            aborted = true;
+        return aborted;
+    }
+
+    /**
+     * Mate scores are stored relative to the position rather than the root,
+     * so they stay right when the position is reached by another path.
+     */
+    private static int scoreToTable(int score, int ply)
+    {
+        if (score >= MATE_BOUND)
+            return score + ply;
+        if (score <= -MATE_BOUND)
+            return score - ply;
+        return score;
+    }
+
+    /**
+     * Undo {@link #scoreToTable(int, int)}.
+     */
+    private static int scoreFromTable(int score, int ply)
+    {
+        if (score >= MATE_BOUND)
+            return score - ply;
+        if (score <= -MATE_BOUND)
+            return score + ply;
+        return score;
+    }
+
+    /**
+     * Pack a transposition table entry: move in bits 0-15, depth in bits
+     * 16-23, bound in bits 24-25 and the score in the top 32 bits.
+     */
+    private static long packEntry(int move, int score, int depth, int bound)
+    {
+        return (move & 0xFFFFL) | (long) depth << 16 | (long) bound << 24 | (long) score << 32;
+    }
+
+    private static int entryMove(long entry)
+    {
+        return (int) entry & 0xFFFF;
+    }
+
+    private static int entryDepth(long entry)
+    {
+        return (int) (entry >>> 16) & 0xFF;
+    }
+
+    private static int entryBound(long entry)
+    {
+        return (int) (entry >>> 24) & 0x3;
+    }
+
+    private static int entryScore(long entry)
+    {
+        return (int) (entry >> 32);
+    }
+}
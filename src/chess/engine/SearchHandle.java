@@ -0,0 +1,86 @@
+package chess.engine;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A search running on its own thread. The search can be cancelled at any
+ * time, in which case it finishes with the best move found so far.
+ */
+public final class SearchHandle {
+
+    /**
+     * Asks the search to stop.
+     */
+    private final Runnable canceller;
+
+    /**
+     * Released once the result is available.
+     */
+    private final CountDownLatch finished = new CountDownLatch(1);
+
+    /**
+     * The result, once the search finishes.
+     */
+    private volatile SearchResult result;
+
+    /**
+     * Start a search thread.
+     * @param search runs the search and returns its result
+     * @param canceller asks the search to stop
+     */
+    SearchHandle(final Callable<SearchResult> search, Runnable canceller)
+    {
+        this.canceller = canceller;
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run()
+            {
+                try {
+                    result = search.call();
+                } catch (Exception e) {
+                    throw new IllegalStateException("Search failed", e);
+                } finally {
+                    finished.countDown();
+                }
+            }
+        }, "TeaChess search");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Ask the search to stop as soon as possible. It still produces a result.
+     */
+    public void cancel()
+    {
+        canceller.run();
+    }
+
+    /**
+     * @return true if the search has finished, false otherwise
+     */
+    public boolean isDone()
+    {
+        return finished.getCount() == 0;
+    }
+
+    /**
+     * Wait for the search to finish.
+     * @return the result of the search, or null if it failed
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public SearchResult awaitResult() throws InterruptedException
+    {
+        finished.await();
+        return result;
+    }
+
+    /**
+     * @return the result of the search, or null if it hasn't finished
+     */
+    public SearchResult getResult()
+    {
+        return result;
+    }
+}
@@ -0,0 +1,65 @@
+package chess.engine;
+
+/**
+ * How far a {@link Search} may go before it has to return its best move.
+ * The search stops at whichever limit it reaches first.
+ */
+public final class SearchLimits {
+
+    /**
+     * Value for a time or node limit that should never be reached.
+     */
+    public static final long UNLIMITED = Long.MAX_VALUE;
+
+    /**
+     * Deepest iteration the search will start, in plies.
+     */
+    public final int maxDepth;
+
+    /**
+     * Time the search may take, in milliseconds.
+     */
+    public final long maxMillis;
+
+    /**
+     * Positions the search may visit.
+     */
+    public final long maxNodes;
+
+    /**
+     * Create search limits.
+     * @param maxDepth deepest iteration in plies (1 to {@link Search#MAX_DEPTH})
+     * @param maxMillis time the search may take in milliseconds, or {@link #UNLIMITED}
+     * @param maxNodes positions the search may visit, or {@link #UNLIMITED}
+     */
+    public SearchLimits(int maxDepth, long maxMillis, long maxNodes)
+    {
+        if (maxDepth < 1 || maxDepth > Search.MAX_DEPTH)
+            throw new IllegalArgumentException("Search depth must be 1 to " + Search.MAX_DEPTH + ": " + maxDepth);
+        if (maxMillis < 0 || maxNodes < 0)
+            throw new IllegalArgumentException("Search limits can't be negative");
+        this.maxDepth = maxDepth;
+        this.maxMillis = maxMillis;
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * Limit a search to a fixed depth.
+     * @param maxDepth deepest iteration in plies
+     * @return the limits
+     */
+    public static SearchLimits depth(int maxDepth)
+    {
+        return new SearchLimits(maxDepth, UNLIMITED, UNLIMITED);
+    }
+
+    /**
+     * Limit a search to an amount of time.
+     * @param maxMillis time the search may take in milliseconds
+     * @return the limits
+     */
+    public static SearchLimits time(long maxMillis)
+    {
+        return new SearchLimits(Search.MAX_DEPTH, maxMillis, UNLIMITED);
+    }
+}
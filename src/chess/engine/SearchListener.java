@@ -0,0 +1,17 @@
+package chess.engine;
+
+/**
+ * Told how a {@link Search} is getting on as it deepens, e.g. to show what
+ * the computer is thinking while it chooses a move. The listener is called
+ * on the searching thread, so one that updates a user interface has to
+ * hand the update over to that interface's thread.
+ */
+public interface SearchListener {
+
+    /**
+     * Called each time the search completes an iteration.
+     * @param progress the best move, score and line of play found so far,
+     * with the depth just completed and the time taken until now
+     */
+    void iterationCompleted(SearchResult progress);
+}
@@ -0,0 +1,93 @@
+package chess.engine;
+
+import chess.Move;
+
+/**
+ * What a {@link Search} found: the best move, its score and the line of play
+ * the search expects to follow from it.
+ */
+public final class SearchResult {
+
+    /**
+     * The best move found (see {@link Move}), or {@link Move#NONE} if the
+     * player to move has no legal moves.
+     */
+    public final int bestMove;
+
+    /**
+     * Score of the position for the player to move, in centipawns. Scores
+     * beyond {@link Search#MATE_BOUND} announce a forced checkmate.
+     */
+    public final int score;
+
+    /**
+     * The deepest iteration the search completed, in plies.
+     */
+    public final int depth;
+
+    /**
+     * The positions the search visited.
+     */
+    public final long nodes;
+
+    /**
+     * How long the search took, in nanoseconds.
+     */
+    public final long elapsedNanos;
+
+    /**
+     * The expected line of play, starting with the best move.
+     */
+    private final int[] principalVariation;
+
+    /**
+     * Create a search result.
+     */
+    SearchResult(int bestMove, int score, int depth, long nodes, long elapsedNanos, int[] principalVariation)
+    {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.elapsedNanos = elapsedNanos;
+        this.principalVariation = principalVariation;
+    }
+
+    /**
+     * @return the expected line of play, starting with the best move
+     */
+    public int[] getPrincipalVariation()
+    {
+        return principalVariation.clone();
+    }
+
+    /**
+     * @return true if the score announces a forced checkmate for either side
+     */
+    public boolean isMateScore()
+    {
+        return Math.abs(score) >= Search.MATE_BOUND;
+    }
+
+    /**
+     * @return positions visited per second
+     */
+    public long nodesPerSecond()
+    {
+        return nodes * 1000000000L / Math.max(1, elapsedNanos);
+    }
+
+    /**
+     * Describe the result, with the principal variation in coordinate
+     * notation.
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder line = new StringBuilder();
+        for (int move : principalVariation)
+            line.append(' ').append(Move.toString(move));
+        return "depth " + depth + " score " + score + " nodes " + nodes
+               + " nps " + nodesPerSecond() + " pv" + line;
+    }
+}
@@ -0,0 +1,270 @@
+package chess.notation;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import chess.ChessBoard;
+
+/**
+ * Reads games from a binary archive written by {@link GameArchiveWriter}
+ * (see there for the format). Both files are memory-mapped, and the index
+ * gives the offset of every game, so any game can be read directly without
+ * looking at the games before it. The files are closed once mapped, and
+ * the mappings go away when the archive is garbage collected. Reading is
+ * safe from several threads at once.
+ */
+public final class GameArchive {
+
+    /**
+     * First four bytes of a data file: "TCGD".
+     */
+    static final int DATA_MAGIC = 0x54434744;
+
+    /**
+     * First four bytes of an index file: "TCGI".
+     */
+    static final int INDEX_MAGIC = 0x54434749;
+
+    /**
+     * Format version, the second four bytes of both files.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Size of the header at the start of both files, in bytes.
+     */
+    static final int HEADER_SIZE = 8;
+
+    /**
+     * Game record flag: the record includes the game's starting position.
+     */
+    static final byte HAS_START_POSITION = 1;
+
+    /**
+     * Most moves a game can have, since the count is an unsigned short.
+     */
+    static final int MAX_MOVES = 0xFFFF;
+
+    /**
+     * Longest starting position a game can have, in UTF-8 bytes. The record
+     * has room for more, but a real FEN is under 100 bytes, and this keeps
+     * a record's header well inside the writer's buffer.
+     */
+    static final int MAX_FEN_BYTES = 0xFF;
+
+    /**
+     * Results in the order of their codes in a game record.
+     */
+    private static final String[] RESULTS = {
+        GameRecord.UNFINISHED, GameRecord.WHITE_WINS, GameRecord.BLACK_WINS, GameRecord.DRAW
+    };
+
+    /**
+     * Bytes each mapped segment of a file starts after the one before. A
+     * single mapping can't cover more than 2 GB.
+     */
+    private static final long SEGMENT_SIZE = 1L << 30;
+
+    /**
+     * How far each segment reaches past the start of the next, so that a
+     * game record starting in a segment always ends in it too.
+     */
+    private static final int SEGMENT_OVERLAP = 4 + 2 + MAX_FEN_BYTES + 2 * MAX_MOVES;
+
+    /**
+     * The data file, mapped in segments.
+     */
+    private final MappedByteBuffer[] data;
+
+    /**
+     * The index file, mapped in segments.
+     */
+    private final MappedByteBuffer[] index;
+
+    /**
+     * The number of games in the archive.
+     */
+    private final int gameCount;
+
+    /**
+     * Open an archive for reading.
+     * @param dataFile path of the data file
+     * @param indexFile path of the index file
+     * @return the archive
+     * @throws IOException if the files can't be read or aren't an archive
+     */
+    public static GameArchive open(Path dataFile, Path indexFile) throws IOException
+    {
+        return new GameArchive(map(dataFile, DATA_MAGIC), map(indexFile, INDEX_MAGIC),
+                               indexFile);
+    }
+
+    /**
+     * Keep the mapped files.
+     */
+    private GameArchive(MappedByteBuffer[] data, MappedByteBuffer[] index, Path indexFile) throws IOException
+    {
+        this.data = data;
+        this.index = index;
+        long entries = (size(index) - HEADER_SIZE) / 8;
+        if (entries > Integer.MAX_VALUE)
+            throw new IOException("Too many games in " + indexFile);
+        gameCount = (int) entries;
+    }
+
+    /**
+     * @return the number of games in the archive
+     */
+    public int size()
+    {
+        return gameCount;
+    }
+
+    /**
+     * @param game number of the game (0 for the first)
+     * @return the result of the game, e.g. {@link GameRecord#WHITE_WINS}
+     */
+    public String getResult(int game)
+    {
+        final long offset = offset(game);
+        return RESULTS[segment(data, offset).get(position(offset)) & 3];
+    }
+
+    /**
+     * @param game number of the game (0 for the first)
+     * @return the number of moves in the game
+     */
+    public int getMoveCount(int game)
+    {
+        final long offset = offset(game);
+        return segment(data, offset).getShort(position(offset) + 2) & 0xFFFF;
+    }
+
+    /**
+     * @param game number of the game (0 for the first)
+     * @return the position the game started from in Forsyth-Edwards Notation,
+     * or null for the usual starting position
+     */
+    public String getStartFen(int game)
+    {
+        final long offset = offset(game);
+        final MappedByteBuffer segment = segment(data, offset);
+        final int position = position(offset);
+        if ((segment.get(position + 1) & HAS_START_POSITION) == 0)
+            return null;
+        final byte[] fen = new byte[segment.getShort(position + 4) & 0xFFFF];
+        for (int i = 0; i < fen.length; i++)
+            fen[i] = segment.get(position + 6 + i);
+        return new String(fen, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param game number of the game (0 for the first)
+     * @return the game's moves in order (see {@link chess.Move})
+     */
+    public int[] getMoves(int game)
+    {
+        final long offset = offset(game);
+        final MappedByteBuffer segment = segment(data, offset);
+        final int position = position(offset);
+        final int[] moves = new int[segment.getShort(position + 2) & 0xFFFF];
+        int movePosition = position + 4;
+        if ((segment.get(position + 1) & HAS_START_POSITION) != 0)
+            movePosition += 2 + (segment.getShort(position + 4) & 0xFFFF);
+        for (int i = 0; i < moves.length; i++, movePosition += 2)
+            moves[i] = segment.getShort(movePosition) & 0xFFFF;
+        return moves;
+    }
+
+    /**
+     * Play a game through on a board.
+     * @param game number of the game (0 for the first)
+     * @return a board in the game's final position; its moves can be taken
+     * back with {@link ChessBoard#unmakeMove()}
+     */
+    public ChessBoard replay(int game)
+    {
+        final String fen = getStartFen(game);
+        final ChessBoard board = (fen != null) ? ChessBoard.fromFen(fen) : new ChessBoard();
+        for (int move : getMoves(game))
+            board.makeMove(move);
+        return board;
+    }
+
+    /**
+     * Get the code for a result in a game record.
+     * @param result of the game, e.g. {@link GameRecord#DRAW}
+     * @return the code
+     */
+    static byte resultCode(String result)
+    {
+        for (byte code = 0; code < RESULTS.length; code++) {
+            if (RESULTS[code].equals(result))
+                return code;
+        }
+        throw new IllegalArgumentException("Unknown game result: " + result);
+    }
+
+    /**
+     * Look up where a game's record starts in the data file.
+     */
+    private long offset(int game)
+    {
+        if (game < 0 || game >= gameCount)
+            throw new IndexOutOfBoundsException("No game " + game + " of " + gameCount);
+        final long entry = HEADER_SIZE + 8L * game;
+        return segment(index, entry).getLong(position(entry));
+    }
+
+    /**
+     * @return the segment a file offset falls in
+     */
+    private static MappedByteBuffer segment(MappedByteBuffer[] segments, long offset)
+    {
+        return segments[(int) (offset / SEGMENT_SIZE)];
+    }
+
+    /**
+     * @return the position of a file offset within its segment
+     */
+    private static int position(long offset)
+    {
+        return (int) (offset % SEGMENT_SIZE);
+    }
+
+    /**
+     * @return the size of a mapped file
+     */
+    private static long size(MappedByteBuffer[] segments)
+    {
+        final MappedByteBuffer last = segments[segments.length - 1];
+        return (segments.length - 1) * SEGMENT_SIZE + last.capacity();
+    }
+
+    /**
+     * Map a file read-only in overlapping segments and check its header.
+     */
+    private static MappedByteBuffer[] map(Path file, int magic) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size < HEADER_SIZE)
+                throw new IOException("Not a game archive file: " + file);
+            final MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size - 1) / SEGMENT_SIZE) + 1];
+            for (int i = 0; i < segments.length; i++) {
+                final long start = i * SEGMENT_SIZE;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                                          Math.min(size - start, SEGMENT_SIZE + SEGMENT_OVERLAP));
+            }
+            if (segments[0].getInt(0) != magic)
+                throw new IOException("Not a game archive file: " + file);
+            if (segments[0].getInt(4) != VERSION)
+                throw new IOException("Unsupported game archive version " + segments[0].getInt(4) + ": " + file);
+            return segments;
+        }
+    }
+}
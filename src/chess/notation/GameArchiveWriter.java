@@ -0,0 +1,237 @@
+package chess.notation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+import chess.ChessBoard;
+
+/**
+ * Writes games to a compact binary archive that {@link GameArchive} can read
+ * back, any game at a time. The archive is two files:
+ * <ul>
+ * <li>The data file: an 8 byte file header ({@link GameArchive#DATA_MAGIC}
+ * and {@link GameArchive#VERSION}), then one record per game: a result
+ * byte, a flags byte, the number of moves as an unsigned short, the starting
+ * position's FEN (an unsigned short length and its UTF-8 bytes) if the
+ * {@link GameArchive#HAS_START_POSITION} flag is set, and every move as the
+ * 16 bit value of its {@link chess.Move} encoding.</li>
+ * <li>The index file: an 8 byte file header ({@link GameArchive#INDEX_MAGIC}
+ * and {@link GameArchive#VERSION}), then the offset in the data file of each
+ * game's record as a long.</li>
+ * </ul>
+ * Everything is big-endian. A game of 40 plies (20 moves by each player)
+ * takes 84 bytes.
+ */
+public final class GameArchiveWriter implements Closeable {
+
+    /**
+     * Size of the output buffers, in bytes.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The data file.
+     */
+    private final FileChannel data;
+
+    /**
+     * The index file.
+     */
+    private final FileChannel index;
+
+    /**
+     * Game records waiting to be written to the data file.
+     */
+    private final ByteBuffer dataBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /**
+     * Offsets waiting to be written to the index file.
+     */
+    private final ByteBuffer indexBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /**
+     * Where the next game's record starts in the data file.
+     */
+    private long dataOffset;
+
+    /**
+     * The number of games written.
+     */
+    private int gameCount;
+
+    /**
+     * Create a new archive, replacing any files already there.
+     * @param dataFile path of the data file
+     * @param indexFile path of the index file
+     * @throws IOException if the files can't be created
+     */
+    public GameArchiveWriter(Path dataFile, Path indexFile) throws IOException
+    {
+        data = FileChannel.open(dataFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            index = FileChannel.open(indexFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                     StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            data.close();
+            throw e;
+        }
+        dataBuffer.putInt(GameArchive.DATA_MAGIC).putInt(GameArchive.VERSION);
+        indexBuffer.putInt(GameArchive.INDEX_MAGIC).putInt(GameArchive.VERSION);
+        dataOffset = GameArchive.HEADER_SIZE;
+    }
+
+    /**
+     * Add a recorded game to the archive.
+     * @param game to add
+     * @throws IOException if writing fails
+     */
+    public void write(GameRecord game) throws IOException
+    {
+        final int moveCount = game.getMoveCount();
+        checkMoveCount(moveCount);
+        writeHeader(game.getStartFen(), moveCount, game.getResult());
+        for (int i = 0; i < moveCount; i++)
+            putMove(game.getMove(i));
+    }
+
+    /**
+     * Add a game to the archive.
+     * @param startFen the position the game started from, or null for the
+     * usual starting position
+     * @param moves the game's moves (see {@link chess.Move})
+     * @param result of the game, e.g. {@link GameRecord#WHITE_WINS}
+     * @throws IOException if writing fails
+     */
+    public void write(String startFen, int[] moves, String result) throws IOException
+    {
+        checkMoveCount(moves.length);
+        writeHeader(startFen, moves.length, result);
+        for (int move : moves)
+            putMove(move);
+    }
+
+    /**
+     * @return the number of games written so far
+     */
+    public int getGameCount()
+    {
+        return gameCount;
+    }
+
+    /**
+     * Write out everything buffered and close both files.
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try {
+            drain(dataBuffer, data);
+            drain(indexBuffer, index);
+        } finally {
+            try {
+                data.close();
+            } finally {
+                index.close();
+            }
+        }
+    }
+
+    /**
+     * Convert a PGN file to an archive from the command line:
+     * {@code java chess.notation.GameArchiveWriter games.pgn games.dat games.idx}.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length != 3) {
+            System.err.println("Usage: GameArchiveWriter <pgn file> <data file> <index file>");
+            System.exit(2);
+        }
+        final long start = System.nanoTime();
+        try (final GameArchiveWriter writer = new GameArchiveWriter(Paths.get(args[1]), Paths.get(args[2]))) {
+            PgnReader.read(Paths.get(args[0]), new PgnReader.GameHandler() {
+                @Override
+                public void gameRead(Map<String, String> tags, ChessBoard board, int[] moves)
+                {
+                    String result = tags.get("Result");
+                    try {
+                        writer.write(tags.get("FEN"), moves, (result != null) ? result : GameRecord.UNFINISHED);
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            });
+            System.out.printf("%,d games in %,d ms%n", writer.getGameCount(),
+                              (System.nanoTime() - start) / 1000000);
+        }
+    }
+
+    /**
+     * Write a game's index entry and the start of its record.
+     */
+    private void writeHeader(String startFen, int moveCount, String result) throws IOException
+    {
+        final byte[] fen = (startFen != null) ? startFen.getBytes(StandardCharsets.UTF_8) : null;
+        if (fen != null && fen.length > GameArchive.MAX_FEN_BYTES)
+            throw new IllegalArgumentException("Starting position is too long: " + startFen);
+        if (indexBuffer.remaining() < 8)
+            drain(indexBuffer, index);
+        indexBuffer.putLong(dataOffset);
+
+        final int headerSize = 4 + ((fen != null) ? 2 + fen.length : 0);
+        ensureRoom(headerSize);
+        dataBuffer.put(GameArchive.resultCode(result));
+        dataBuffer.put((fen != null) ? GameArchive.HAS_START_POSITION : 0);
+        dataBuffer.putShort((short) moveCount);
+        if (fen != null)
+            dataBuffer.putShort((short) fen.length).put(fen);
+        dataOffset += headerSize + 2L * moveCount;
+        gameCount++;
+    }
+
+    /**
+     * Add one move to the record being written.
+     */
+    private void putMove(int move) throws IOException
+    {
+        ensureRoom(2);
+        dataBuffer.putShort((short) move);
+    }
+
+    /**
+     * Make room in the data buffer.
+     */
+    private void ensureRoom(int bytes) throws IOException
+    {
+        if (dataBuffer.remaining() < bytes)
+            drain(dataBuffer, data);
+    }
+
+    /**
+     * Make sure a game isn't too long for its record.
+     */
+    private static void checkMoveCount(int moveCount)
+    {
+        if (moveCount > GameArchive.MAX_MOVES)
+            throw new IllegalArgumentException("Too many moves for the archive: " + moveCount);
+    }
+
+    /**
+     * Write out a buffer's contents and empty it.
+     */
+    private static void drain(ByteBuffer buffer, FileChannel channel) throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+}
@@ -0,0 +1,329 @@
+package chess.notation;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import chess.ChessBoard;
+import chess.ChessPieceColor;
+import chess.ChessPieceType;
+import chess.GameStatus;
+import chess.Move;
+import chess.MoveList;
+
+/**
+ * The record of one game: its tags, the position it started from and every
+ * move played, with what each move captured, what it promoted to and
+ * whether it gave check or mate. Each move is also kept in Standard
+ * Algebraic Notation, worked out while its position is on the board, so the
+ * game can be written out with {@link PgnWriter} without replaying it.
+ */
+public final class GameRecord {
+
+    /**
+     * Result of a game that hasn't finished.
+     */
+    public static final String UNFINISHED = "*";
+
+    /**
+     * Result of a game white won.
+     */
+    public static final String WHITE_WINS = "1-0";
+
+    /**
+     * Result of a game black won.
+     */
+    public static final String BLACK_WINS = "0-1";
+
+    /**
+     * Result of a drawn game.
+     */
+    public static final String DRAW = "1/2-1/2";
+
+    /**
+     * The "Seven Tag Roster" every PGN game has, in the order they are
+     * written.
+     */
+    static final String[] SEVEN_TAG_ROSTER = { "Event", "Site", "Date", "Round", "White", "Black", "Result" };
+
+    /**
+     * The game's tags, e.g. "White" to "Morphy, Paul".
+     */
+    private final Map<String, String> tags = new LinkedHashMap<>();
+
+    /**
+     * The position the game started from in Forsyth-Edwards Notation, or
+     * null for the usual starting position.
+     */
+    private final String startFen;
+
+    /**
+     * The number of the game's first full move.
+     */
+    private final int firstMoveNumber;
+
+    /**
+     * Whether black made the game's first move.
+     */
+    private final boolean blackMovedFirst;
+
+    /**
+     * The moves played (see {@link Move}).
+     */
+    private int[] moves = new int[128];
+
+    /**
+     * The kind of piece each move captured, or null.
+     */
+    private ChessPieceType[] captures = new ChessPieceType[128];
+
+    /**
+     * What each move left the other player in: IN_PROGRESS, CHECK,
+     * CHECKMATE or STALEMATE.
+     */
+    private GameStatus[] statuses = new GameStatus[128];
+
+    /**
+     * Each move in Standard Algebraic Notation, with its check or mate mark.
+     */
+    private String[] sanMoves = new String[128];
+
+    /**
+     * The number of moves recorded.
+     */
+    private int moveCount;
+
+    /**
+     * Reusable text for writing moves.
+     */
+    private final StringBuilder text = new StringBuilder(8);
+
+    /**
+     * Scratch list for working out move notation.
+     */
+    private final MoveList scratch = new MoveList();
+
+    /**
+     * Start the record of a game from the usual starting position.
+     */
+    public GameRecord()
+    {
+        this(null);
+    }
+
+    /**
+     * Start the record of a game from a position. Every tag of the Seven Tag
+     * Roster starts out unknown ("?") and the result unfinished.
+     * @param startFen the starting position in Forsyth-Edwards Notation, or
+     * null for the usual starting position
+     * @throws IllegalArgumentException if the position can't be read
+     */
+    public GameRecord(String startFen)
+    {
+        for (String name : SEVEN_TAG_ROSTER)
+            tags.put(name, "?");
+        tags.put("Date", "????.??.??");
+        tags.put("Result", UNFINISHED);
+        this.startFen = startFen;
+        if (startFen == null) {
+            firstMoveNumber = 1;
+            blackMovedFirst = false;
+        } else {
+            ChessBoard start = ChessBoard.fromFen(startFen);
+            firstMoveNumber = start.getFullmoveNumber();
+            blackMovedFirst = start.getSideToMove() == ChessPieceColor.BLACK;
+            tags.put("SetUp", "1");
+            tags.put("FEN", startFen);
+        }
+    }
+
+    /**
+     * Record a move that is about to be played. The board must still be in
+     * the position before the move, and is left in it; play the move after
+     * recording it.
+     * @param board the move is played on
+     * @param move a legal move of the player whose turn it is
+     */
+    public void addMove(ChessBoard board, int move)
+    {
+        if (moveCount == moves.length) {
+            final int capacity = 2 * moveCount;
+            moves = Arrays.copyOf(moves, capacity);
+            captures = Arrays.copyOf(captures, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+            sanMoves = Arrays.copyOf(sanMoves, capacity);
+        }
+        captures[moveCount] = (Move.flag(move) == Move.EN_PASSANT) ? ChessPieceType.PAWN
+                            : board.getPieceType(Move.to(move));
+
+        text.setLength(0);
+        San.appendMove(text, board, move, scratch);
+        board.makeMove(move);
+        final GameStatus status = board.gameStatus(board.getSideToMove());
+        board.unmakeMove();
+        San.appendStatus(text, status);
+
+        moves[moveCount] = move;
+        statuses[moveCount] = status;
+        sanMoves[moveCount] = text.toString();
+        moveCount++;
+    }
+
+    /**
+     * Forget the last move recorded, e.g. when it is taken back.
+     * @throws IllegalStateException if there is no move to forget
+     */
+    public void removeLastMove()
+    {
+        if (moveCount == 0)
+            throw new IllegalStateException("There is no move to remove.");
+        moveCount--;
+        sanMoves[moveCount] = null;
+        captures[moveCount] = null;
+        statuses[moveCount] = null;
+    }
+
+    /**
+     * @return the number of moves recorded
+     */
+    public int getMoveCount()
+    {
+        return moveCount;
+    }
+
+    /**
+     * @param index of the move (0 for the first)
+     * @return the move (see {@link Move})
+     */
+    public int getMove(int index)
+    {
+        checkIndex(index);
+        return moves[index];
+    }
+
+    /**
+     * @param index of the move (0 for the first)
+     * @return the kind of piece the move captured, or null
+     */
+    public ChessPieceType getCapture(int index)
+    {
+        checkIndex(index);
+        return captures[index];
+    }
+
+    /**
+     * @param index of the move (0 for the first)
+     * @return the piece a pawn was promoted to, or null
+     */
+    public ChessPieceType getPromotion(int index)
+    {
+        checkIndex(index);
+        return Move.promotionType(moves[index]);
+    }
+
+    /**
+     * @param index of the move (0 for the first)
+     * @return what the move left the other player in, e.g. CHECK
+     */
+    public GameStatus getStatusAfter(int index)
+    {
+        checkIndex(index);
+        return statuses[index];
+    }
+
+    /**
+     * @param index of the move (0 for the first)
+     * @return the move in Standard Algebraic Notation, e.g. "Qxf7#"
+     */
+    public String getSan(int index)
+    {
+        checkIndex(index);
+        return sanMoves[index];
+    }
+
+    /**
+     * @return the starting position in Forsyth-Edwards Notation, or null for
+     * the usual starting position
+     */
+    public String getStartFen()
+    {
+        return startFen;
+    }
+
+    /**
+     * @return the number of the game's first full move
+     */
+    public int getFirstMoveNumber()
+    {
+        return firstMoveNumber;
+    }
+
+    /**
+     * @return true if black made the game's first move, false otherwise
+     */
+    public boolean blackMovedFirst()
+    {
+        return blackMovedFirst;
+    }
+
+    /**
+     * Set a tag, e.g. "White" to "Morphy, Paul".
+     * @param name of the tag
+     * @param value of the tag
+     */
+    public void setTag(String name, String value)
+    {
+        if (name.equals("Result"))
+            setResult(value);
+        else
+            tags.put(name, value);
+    }
+
+    /**
+     * @param name of the tag
+     * @return the tag's value, or null if the game doesn't have that tag
+     */
+    public String getTag(String name)
+    {
+        return tags.get(name);
+    }
+
+    /**
+     * @return every tag, in the order they were first set
+     */
+    public Map<String, String> getTags()
+    {
+        return Collections.unmodifiableMap(tags);
+    }
+
+    /**
+     * Set how the game ended.
+     * @param result {@link #WHITE_WINS}, {@link #BLACK_WINS}, {@link #DRAW} or
+     * {@link #UNFINISHED}
+     */
+    public void setResult(String result)
+    {
+        if (!result.equals(WHITE_WINS) && !result.equals(BLACK_WINS) &&
+            !result.equals(DRAW) && !result.equals(UNFINISHED))
+            throw new IllegalArgumentException("Unknown game result: " + result);
+        tags.put("Result", result);
+    }
+
+    /**
+     * @return how the game ended, {@link #UNFINISHED} if it hasn't
+     */
+    public String getResult()
+    {
+        return tags.get("Result");
+    }
+
+    /**
+     * Make sure a move index is in range.
+     */
+    private void checkIndex(int index)
+    {
+        if (index < 0 || index >= moveCount)
+            throw new IndexOutOfBoundsException("No move " + index + " of " + moveCount);
+    }
+}
@@ -0,0 +1,422 @@
+package chess.notation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import chess.ChessBoard;
+import chess.Move;
+import chess.MoveList;
+
+/**
+ * Reads games in Portable Game Notation (PGN) from a channel, one game at a
+ * time, and replays each one on a {@link ChessBoard}. The input is read in
+ * fixed size blocks, so files of any size can be read without holding them
+ * in memory; only the game being read is kept.
+ * <p>
+ * Comments, variations, numeric annotations and move numbers are skipped.
+ * A game whose moves can't be played (or whose FEN tag can't be read) is
+ * skipped as a whole and counted by {@link #getGamesSkipped()}, so one bad
+ * game doesn't stop a bulk import.
+ * @see <a href="http://www.saremba.de/chessgml/standards/pgn/pgn-complete.htm">PGN Standard</a>
+ */
+public final class PgnReader {
+
+    /**
+     * Receives each game as it is read.
+     */
+    public interface GameHandler {
+
+        /**
+         * Called once for every game that was read and replayed.
+         * @param tags the game's tag pairs in the order given, e.g. "White"
+         * to "Carlsen, Magnus"; a new map for every game
+         * @param board the position at the end of the game
+         * @param moves every move of the game in order (see {@link Move})
+         */
+        void gameRead(Map<String, String> tags, ChessBoard board, int[] moves);
+    }
+
+    /**
+     * Size of the blocks read from the channel.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Returned by {@link #next()} at the end of the input.
+     */
+    private static final int END_OF_INPUT = -1;
+
+    /**
+     * Where the games are read from.
+     */
+    private final ReadableByteChannel channel;
+
+    /**
+     * The block of input being read.
+     */
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /**
+     * The move text token being read, e.g. "Nf3".
+     */
+    private final StringBuilder token = new StringBuilder();
+
+    /**
+     * The bytes of the tag name or value being read, decoded as UTF-8 once
+     * complete.
+     */
+    private byte[] text = new byte[256];
+
+    /**
+     * Scratch list for resolving moves.
+     */
+    private final MoveList scratch = new MoveList();
+
+    /**
+     * The tags of the game being read.
+     */
+    private Map<String, String> tags = new LinkedHashMap<>();
+
+    /**
+     * The board the game being read is replayed on, or null before its
+     * first move.
+     */
+    private ChessBoard board;
+
+    /**
+     * The moves of the game being read.
+     */
+    private int[] moves = new int[256];
+
+    /**
+     * The number of entries of {@link #moves} in use.
+     */
+    private int moveCount;
+
+    /**
+     * Whether the game being read has reached its move text.
+     */
+    private boolean inMoveText;
+
+    /**
+     * Whether the game being read has a move that couldn't be played.
+     */
+    private boolean failed;
+
+    /**
+     * The number of games handed to the handler.
+     */
+    private int gamesRead;
+
+    /**
+     * The number of games skipped because they couldn't be replayed.
+     */
+    private int gamesSkipped;
+
+    /**
+     * Prepare to read games from a channel. The channel is read from its
+     * current position and isn't closed by the reader.
+     * @param channel to read from
+     */
+    public PgnReader(ReadableByteChannel channel)
+    {
+        this.channel = channel;
+        buffer.flip(); // start out empty
+    }
+
+    /**
+     * Read every game in a file.
+     * @param file the PGN file
+     * @param handler receives each game
+     * @return the number of games read
+     * @throws IOException if the file can't be read
+     */
+    public static int read(Path file, GameHandler handler) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            PgnReader reader = new PgnReader(channel);
+            reader.readAll(handler);
+            return reader.getGamesRead();
+        }
+    }
+
+    /**
+     * Read games until the end of the channel.
+     * @param handler receives each game
+     * @throws IOException if the channel can't be read
+     */
+    public void readAll(GameHandler handler) throws IOException
+    {
+        int c = next();
+        while (c != END_OF_INPUT) {
+            switch (c) {
+            case '[':
+                if (inMoveText)
+                    finishGame(handler); // the last game had no result
+                readTag();
+                c = next();
+                break;
+            case '{':
+                c = skipPast('}');
+                break;
+            case ';':
+            case '%':
+                c = skipPast('\n');
+                break;
+            case '(':
+                c = skipVariation();
+                break;
+            case '$':
+                do {
+                    c = next();
+                } while ('0' <= c && c <= '9');
+                break;
+            default:
+                if (c <= ' ') {
+                    c = next();
+                } else {
+                    c = readToken(c);
+                    playToken(handler);
+                }
+                break;
+            }
+        }
+        if (inMoveText || !tags.isEmpty())
+            finishGame(handler);
+    }
+
+    /**
+     * @return the number of games handed to the handler so far
+     */
+    public int getGamesRead()
+    {
+        return gamesRead;
+    }
+
+    /**
+     * @return the number of games skipped so far because their moves
+     * couldn't be played
+     */
+    public int getGamesSkipped()
+    {
+        return gamesSkipped;
+    }
+
+    /**
+     * Act on a move text token: a move, a game result or a move number.
+     */
+    private void playToken(GameHandler handler)
+    {
+        if (token.length() == 0)
+            return; // only a move number
+        inMoveText = true;
+        if (isResult()) {
+            finishGame(handler);
+            return;
+        }
+        if (failed)
+            return;
+        if (board == null && !startBoard())
+            return;
+        final int move = San.parse(board, token, scratch);
+        if (move == Move.NONE) {
+            failed = true;
+            return;
+        }
+        board.makeMove(move);
+        if (moveCount == moves.length)
+            moves = Arrays.copyOf(moves, 2 * moveCount);
+        moves[moveCount++] = move;
+    }
+
+    /**
+     * Set up the board the game starts from: the FEN tag's position if there
+     * is one, otherwise the usual starting position.
+     * @return true if the board was set up, false if the FEN tag is bad
+     */
+    private boolean startBoard()
+    {
+        final String fen = tags.get("FEN");
+        try {
+            board = (fen != null) ? ChessBoard.fromFen(fen) : new ChessBoard();
+            return true;
+        } catch (IllegalArgumentException e) {
+            failed = true;
+            return false;
+        }
+    }
+
+    /**
+     * Hand the game just read to the handler and get ready for the next.
+     */
+    private void finishGame(GameHandler handler)
+    {
+        if (!failed && board == null)
+            startBoard(); // a game with no moves
+        if (failed) {
+            gamesSkipped++;
+        } else {
+            gamesRead++;
+            handler.gameRead(tags, board, Arrays.copyOf(moves, moveCount));
+        }
+        tags = new LinkedHashMap<>();
+        board = null;
+        moveCount = 0;
+        inMoveText = false;
+        failed = false;
+    }
+
+    /**
+     * @return true if the token is a game termination marker, false otherwise
+     */
+    private boolean isResult()
+    {
+        return tokenEquals("1-0") || tokenEquals("0-1") || tokenEquals("1/2-1/2") || tokenEquals("*");
+    }
+
+    /**
+     * Compare the token to a string without making a String of the token.
+     */
+    private boolean tokenEquals(String value)
+    {
+        if (token.length() != value.length())
+            return false;
+        for (int i = 0; i < value.length(); i++) {
+            if (token.charAt(i) != value.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Read a move text token, dropping any move number in front of it.
+     * @param c first character of the token
+     * @return the character after the token
+     */
+    private int readToken(int c) throws IOException
+    {
+        token.setLength(0);
+        boolean onlyDigits = true;
+        while (c > ' ' && "{}()[];$".indexOf(c) < 0) {
+            if (c == '.' && onlyDigits) {
+                token.setLength(0); // "12." or "12...": a move number
+            } else {
+                onlyDigits &= ('0' <= c && c <= '9');
+                token.append((char) c);
+            }
+            c = next();
+        }
+        return c;
+    }
+
+    /**
+     * Read a tag pair such as [Event "Casual Game"]; the opening bracket has
+     * already been read.
+     */
+    private void readTag() throws IOException
+    {
+        int c = next();
+        while (c != END_OF_INPUT && c <= ' ')
+            c = next();
+        int length = 0;
+        while (c > ' ' && c != '"' && c != ']') {
+            length = appendText(length, c);
+            c = next();
+        }
+        final String name = new String(text, 0, length, StandardCharsets.UTF_8);
+        while (c != END_OF_INPUT && c != '"' && c != ']')
+            c = next();
+        length = 0;
+        if (c == '"') {
+            for (c = next(); c != END_OF_INPUT && c != '"'; c = next()) {
+                if (c == '\\')
+                    c = next(); // an escaped quote or backslash
+                if (c != END_OF_INPUT)
+                    length = appendText(length, c);
+            }
+            while (c != END_OF_INPUT && c != ']')
+                c = next();
+        }
+        tags.put(name, new String(text, 0, length, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Add a byte to the tag text, growing it if needed.
+     * @return the new length of the text
+     */
+    private int appendText(int length, int c)
+    {
+        if (length == text.length)
+            text = Arrays.copyOf(text, 2 * length);
+        text[length] = (byte) c;
+        return length + 1;
+    }
+
+    /**
+     * Skip a variation, including any variations and comments inside it;
+     * the opening parenthesis has already been read.
+     * @return the character after the variation
+     */
+    private int skipVariation() throws IOException
+    {
+        int depth = 1;
+        int c = next();
+        while (c != END_OF_INPUT && depth > 0) {
+            // a comment can end right before the closing parenthesis, so the
+            // character after it is looked at like any other
+            if (c == '{') {
+                c = skipPast('}');
+                continue;
+            } else if (c == ';') {
+                c = skipPast('\n');
+                continue;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            }
+            c = next();
+        }
+        return c;
+    }
+
+    /**
+     * Skip up to and including a character.
+     * @return the character after it
+     */
+    private int skipPast(int end) throws IOException
+    {
+        int c = next();
+        while (c != END_OF_INPUT && c != end)
+            c = next();
+        return next();
+    }
+
+    /**
+     * Get the next byte of input, reading another block when the buffer
+     * runs out.
+     * @return the byte (0-255), or {@link #END_OF_INPUT}
+     */
+    private int next() throws IOException
+    {
+        if (!buffer.hasRemaining()) {
+            buffer.clear();
+            int read;
+            do {
+                read = channel.read(buffer);
+            } while (read == 0);
+            buffer.flip();
+            if (read < 0)
+                return END_OF_INPUT;
+        }
+        return buffer.get() & 0xFF;
+    }
+}
@@ -0,0 +1,166 @@
+package chess.notation;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Writes {@link GameRecord}s in Portable Game Notation (PGN) export format:
+ * the Seven Tag Roster first, then any other tags, then the moves wrapped
+ * to lines of under 80 characters, ending with the result. Output goes
+ * through a buffer and each move's notation was worked out when it was
+ * recorded, so writing a game is mostly copying text.
+ * @see <a href="http://www.saremba.de/chessgml/standards/pgn/pgn-complete.htm#c8">PGN Standard</a>
+ */
+public final class PgnWriter implements Closeable, Flushable {
+
+    /**
+     * Longest line of move text written.
+     */
+    private static final int LINE_LENGTH = 79;
+
+    /**
+     * Size of the output buffer, in characters.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Where the games are written.
+     */
+    private final Writer out;
+
+    /**
+     * The line of move text being built.
+     */
+    private final StringBuilder line = new StringBuilder(LINE_LENGTH + 16);
+
+    /**
+     * Reusable text for move numbers.
+     */
+    private final StringBuilder token = new StringBuilder(16);
+
+    /**
+     * Write games to a writer, adding a buffer if it doesn't have one.
+     * @param out to write to
+     */
+    public PgnWriter(Writer out)
+    {
+        this.out = (out instanceof BufferedWriter) ? out : new BufferedWriter(out, BUFFER_SIZE);
+    }
+
+    /**
+     * Write games to a file in UTF-8, replacing anything already in it.
+     * @param file to write to
+     * @return the writer; close it when done
+     * @throws IOException if the file can't be opened
+     */
+    public static PgnWriter open(Path file) throws IOException
+    {
+        return new PgnWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Write one game, followed by a blank line.
+     * @param game to write
+     * @throws IOException if writing fails
+     */
+    public void write(GameRecord game) throws IOException
+    {
+        final Map<String, String> tags = game.getTags();
+        for (String name : GameRecord.SEVEN_TAG_ROSTER)
+            writeTag(name, tags.get(name));
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            if (!isRosterTag(tag.getKey()))
+                writeTag(tag.getKey(), tag.getValue());
+        }
+        out.write('\n');
+
+        line.setLength(0);
+        int moveNumber = game.getFirstMoveNumber();
+        boolean whiteToMove = !game.blackMovedFirst();
+        for (int i = 0; i < game.getMoveCount(); i++) {
+            if (whiteToMove || i == 0) {
+                token.setLength(0);
+                token.append(moveNumber).append(whiteToMove ? "." : "...");
+                addToken(token);
+            }
+            addToken(game.getSan(i));
+            if (!whiteToMove)
+                moveNumber++;
+            whiteToMove = !whiteToMove;
+        }
+        addToken(game.getResult());
+        out.append(line).write("\n\n");
+    }
+
+    /**
+     * Write out anything still buffered.
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void flush() throws IOException
+    {
+        out.flush();
+    }
+
+    /**
+     * Write out anything still buffered and close the output.
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void close() throws IOException
+    {
+        out.close();
+    }
+
+    /**
+     * Add a token to the move text, starting a new line if it won't fit.
+     */
+    private void addToken(CharSequence text) throws IOException
+    {
+        if (line.length() > 0) {
+            if (line.length() + 1 + text.length() > LINE_LENGTH) {
+                out.append(line).write('\n');
+                line.setLength(0);
+            } else {
+                line.append(' ');
+            }
+        }
+        line.append(text);
+    }
+
+    /**
+     * Write a tag pair, escaping quotes and backslashes in its value.
+     */
+    private void writeTag(String name, String value) throws IOException
+    {
+        out.write('[');
+        out.write(name);
+        out.write(" \"");
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\')
+                out.write('\\');
+            out.write(c);
+        }
+        out.write("\"]\n");
+    }
+
+    /**
+     * @return true if the tag is one of the Seven Tag Roster, false otherwise
+     */
+    private static boolean isRosterTag(String name)
+    {
+        for (String rosterName : GameRecord.SEVEN_TAG_ROSTER) {
+            if (rosterName.equals(name))
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,252 @@
+package chess.notation;
+
+import chess.Bitboard;
+import chess.ChessBoard;
+import chess.ChessPieceColor;
+import chess.ChessPieceType;
+import chess.GameStatus;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.MoveList;
+
+/**
+ * Reads and writes moves in Standard Algebraic Notation (SAN), the notation
+ * used by PGN files, e.g. "e4", "Nxf7+", "exd8=Q#", "Rad1" or "O-O". A SAN
+ * move only names the piece and where it goes, so it is resolved against
+ * the legal moves of the player whose turn it is on a board, and written
+ * with just enough of the starting space to tell it apart from them.
+ * @see <a href="http://www.saremba.de/chessgml/standards/pgn/pgn-complete.htm#c8.2.3">Movetext SAN</a> (PGN Standard)
+ */
+public final class San {
+
+    /**
+     * SAN letter of each piece type, indexed by ordinal. Pawns have none.
+     */
+    private static final String PIECE_LETTERS = " NBRQK";
+
+    /**
+     * Every piece type, since values() makes a new array every call.
+     */
+    private static final ChessPieceType[] PIECE_TYPES = ChessPieceType.values();
+
+    /**
+     * This class only holds static helpers.
+     */
+    private San()
+    {
+    }
+
+    /**
+     * Find the legal move a SAN move stands for, for the player whose turn it
+     * is. Check, mate and annotation marks ("+", "#", "!", "?") are ignored,
+     * as are capture marks, and castling may be written with zeros.
+     * @param board the move is played on
+     * @param san the move, e.g. "Nbd7"
+     * @param scratch list used while generating moves; its contents are
+     * replaced
+     * @return the move (see {@link Move}), or {@link Move#NONE} if the text
+     * isn't a move, the move isn't legal or it could be more than one move
+     */
+    public static int parse(ChessBoard board, CharSequence san, MoveList scratch)
+    {
+        int end = san.length();
+        while (end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0)
+            end--;
+        if (end == 0)
+            return Move.NONE;
+        final ChessPieceColor color = board.getSideToMove();
+
+        final char first = san.charAt(0);
+        if (first == 'O' || first == '0') {
+            if ((end != 3 && end != 5) || !board.hasKing(color))
+                return Move.NONE;
+            // the King lands on column 7 castling kingside, column 3 queenside
+            final int kingColumn = (end == 3) ? 7 : 3;
+            scratch.clear();
+            MoveGenerator.generatePseudoLegalMoves(board, board.kingSquare(color), scratch);
+            for (int i = 0; i < scratch.size(); i++) {
+                final int move = scratch.get(i);
+                if (Move.flag(move) == Move.CASTLE && Bitboard.column(Move.to(move)) == kingColumn)
+                    return MoveGenerator.isLegal(board, move, color) ? move : Move.NONE;
+            }
+            return Move.NONE;
+        }
+
+        ChessPieceType promotion = null;
+        final int promotionType = (end > 2) ? PIECE_LETTERS.indexOf(san.charAt(end - 1)) : -1;
+        if (promotionType > 0) {
+            promotion = PIECE_TYPES[promotionType];
+            end -= (san.charAt(end - 2) == '=') ? 2 : 1;
+        }
+        if (end < 2)
+            return Move.NONE;
+        final int toColumn = san.charAt(end - 2) - 'a' + 1;
+        final int toRow = san.charAt(end - 1) - '0';
+        if (!ChessBoard.isOnTheBoard(toRow, toColumn))
+            return Move.NONE;
+        final int to = Bitboard.square(toRow, toColumn);
+        end -= 2;
+
+        int start = 0;
+        ChessPieceType type = ChessPieceType.PAWN;
+        final int pieceType = PIECE_LETTERS.indexOf(first);
+        if (pieceType > 0) {
+            type = PIECE_TYPES[pieceType];
+            start = 1;
+        }
+        // whatever is left tells pieces apart, e.g. the "b" of "Nbd7"
+        int fromColumn = 0;
+        int fromRow = 0;
+        for (int i = start; i < end; i++) {
+            final char symbol = san.charAt(i);
+            if ('a' <= symbol && symbol <= 'h')
+                fromColumn = symbol - 'a' + 1;
+            else if ('1' <= symbol && symbol <= '8')
+                fromRow = symbol - '0';
+            else if (symbol != 'x' && symbol != ':' && symbol != '-')
+                return Move.NONE;
+        }
+        // a pawn only leaves its column to capture, and a capture names the
+        // column it starts from, so "b5" can't stand for "axb5"
+        if (type == ChessPieceType.PAWN && fromColumn == 0)
+            fromColumn = toColumn;
+
+        // only the player's pieces of the right type can make the move, so
+        // only their moves are generated and only matching ones checked
+        int found = Move.NONE;
+        for (long candidates = board.getBitboard(type, color); candidates != 0;
+             candidates = Bitboard.popLowest(candidates)) {
+            final int from = Bitboard.lowestSquare(candidates);
+            if ((fromColumn != 0 && Bitboard.column(from) != fromColumn) ||
+                (fromRow != 0 && Bitboard.row(from) != fromRow))
+                continue;
+            scratch.clear();
+            MoveGenerator.generatePseudoLegalMoves(board, from, scratch);
+            for (int i = 0; i < scratch.size(); i++) {
+                final int move = scratch.get(i);
+                if (Move.to(move) != to || Move.promotionType(move) != promotion ||
+                    Move.flag(move) == Move.CASTLE || !MoveGenerator.isLegal(board, move, color))
+                    continue;
+                if (found != Move.NONE)
+                    return Move.NONE; // ambiguous
+                found = move;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Write a move in SAN, including the "+" or "#" for check or mate.
+     * @param board the move is played on, in the position before the move;
+     * it is left in that position
+     * @param move a legal move of the player whose turn it is
+     * @param scratch list used while generating moves; its contents are
+     * replaced
+     * @return the move in SAN, e.g. "Nbd7+"
+     */
+    public static String format(ChessBoard board, int move, MoveList scratch)
+    {
+        StringBuilder text = new StringBuilder(8);
+        appendMove(text, board, move, scratch);
+        board.makeMove(move);
+        final GameStatus status = board.gameStatus(board.getSideToMove());
+        board.unmakeMove();
+        appendStatus(text, status);
+        return text.toString();
+    }
+
+    /**
+     * Write a move in SAN without the check or mate mark.
+     * @param text the move is added to
+     * @param board the move is played on, in the position before the move
+     * @param move a legal move of the player whose turn it is
+     * @param scratch list used while generating moves; its contents are
+     * replaced
+     */
+    public static void appendMove(StringBuilder text, ChessBoard board, int move, MoveList scratch)
+    {
+        final int from = Move.from(move);
+        final int to = Move.to(move);
+        if (Move.flag(move) == Move.CASTLE) {
+            text.append(Bitboard.column(to) == 7 ? "O-O" : "O-O-O");
+            return;
+        }
+        final ChessPieceType type = board.getPieceType(from);
+        final boolean capture = board.getPieceType(to) != null || Move.flag(move) == Move.EN_PASSANT;
+        if (type == ChessPieceType.PAWN) {
+            if (capture)
+                appendColumn(text, from);
+        } else {
+            text.append(PIECE_LETTERS.charAt(type.ordinal()));
+            appendDisambiguation(text, board, type, move, scratch);
+        }
+        if (capture)
+            text.append('x');
+        appendColumn(text, to);
+        text.append(Bitboard.row(to));
+        if (Move.isPromotion(move))
+            text.append('=').append(PIECE_LETTERS.charAt(Move.promotionType(move).ordinal()));
+    }
+
+    /**
+     * Write the mark for the status a move leaves the other player in: "+"
+     * for check, "#" for checkmate and nothing otherwise.
+     * @param text the mark is added to
+     * @param status of the other player after the move
+     */
+    public static void appendStatus(StringBuilder text, GameStatus status)
+    {
+        if (status == GameStatus.CHECK)
+            text.append('+');
+        else if (status == GameStatus.CHECKMATE)
+            text.append('#');
+    }
+
+    /**
+     * Write the column, row or space a piece moves from if another piece of
+     * the same kind could also legally move to the same space.
+     */
+    private static void appendDisambiguation(StringBuilder text, ChessBoard board, ChessPieceType type,
+                                             int move, MoveList scratch)
+    {
+        final int from = Move.from(move);
+        final int to = Move.to(move);
+        final ChessPieceColor color = board.getPieceColor(from);
+        boolean ambiguous = false;
+        boolean sameColumn = false;
+        boolean sameRow = false;
+        for (long others = board.getBitboard(type, color) & ~Bitboard.bit(from); others != 0;
+             others = Bitboard.popLowest(others)) {
+            final int other = Bitboard.lowestSquare(others);
+            scratch.clear();
+            MoveGenerator.generatePseudoLegalMoves(board, other, scratch);
+            for (int i = 0; i < scratch.size(); i++) {
+                final int otherMove = scratch.get(i);
+                if (Move.to(otherMove) == to && MoveGenerator.isLegal(board, otherMove, color)) {
+                    ambiguous = true;
+                    sameColumn |= Bitboard.column(other) == Bitboard.column(from);
+                    sameRow |= Bitboard.row(other) == Bitboard.row(from);
+                    break;
+                }
+            }
+        }
+        if (!ambiguous)
+            return;
+        if (!sameColumn) {
+            appendColumn(text, from);
+        } else if (!sameRow) {
+            text.append(Bitboard.row(from));
+        } else {
+            appendColumn(text, from);
+            text.append(Bitboard.row(from));
+        }
+    }
+
+    /**
+     * Write the letter of a space's column.
+     */
+    private static void appendColumn(StringBuilder text, int square)
+    {
+        text.append((char) ('a' + Bitboard.column(square) - 1));
+    }
+}
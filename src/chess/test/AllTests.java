@@ -9,15 +9,29 @@ import org.junit.runners.Suite.SuiteClasses;
  */
 @RunWith(Suite.class)
 @SuiteClasses({
+    AttacksTest.class,
     BishopTest.class,
+    BitboardTest.class,
     ChessBoardTest.class,
     ChessPieceColorTest.class,
+    EvaluatorTest.class,
     FileTest.class,
+    GameArchiveTest.class,
     KingTest.class,
     KnightTest.class,
+    MoveGeneratorTest.class,
+    MoveTest.class,
+    ParallelSearchTest.class,
     PawnTest.class,
+    PerftTest.class,
+    PgnReaderTest.class,
+    PgnWriterTest.class,
     QueenTest.class,
-    RookTest.class
+    RookTest.class,
+    SanTest.class,
+    SearchTest.class,
+    TranspositionTableTest.class,
+    ZobristTest.class
 })
 public class AllTests {
 
@@ -0,0 +1,126 @@
+package chess.test;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import chess.Attacks;
+import chess.Bitboard;
+import chess.ChessPieceColor;
+import chess.King;
+import chess.Knight;
+import chess.Pawn;
+
+/**
+ * Tests for the {@link chess.Attacks} tables and the pieces that use them.
+ */
+public class AttacksTest {
+
+    @Test
+    public void knightAttacks_cornerAndCenter()
+    {
+        assertEquals(Bitboard.bit(Bitboard.square(2, 3)) | Bitboard.bit(Bitboard.square(3, 2)),
+                     Attacks.knightAttacks(Bitboard.square(1, 1)));
+        assertEquals(8, Bitboard.count(Attacks.knightAttacks(Bitboard.square(4, 4))));
+    }
+
+    @Test
+    public void kingAttacks_edgeAndCenter()
+    {
+        assertEquals(3, Bitboard.count(Attacks.kingAttacks(Bitboard.square(8, 8))));
+        assertEquals(5, Bitboard.count(Attacks.kingAttacks(Bitboard.square(1, 5))));
+        assertEquals(8, Bitboard.count(Attacks.kingAttacks(Bitboard.square(4, 4))));
+    }
+
+    @Test
+    public void pawnAttacks_dependOnColor()
+    {
+        final int e4 = Bitboard.square(4, 5);
+        assertEquals(Bitboard.bit(Bitboard.square(5, 4)) | Bitboard.bit(Bitboard.square(5, 6)),
+                     Attacks.pawnAttacks(e4, ChessPieceColor.WHITE));
+        assertEquals(Bitboard.bit(Bitboard.square(3, 4)) | Bitboard.bit(Bitboard.square(3, 6)),
+                     Attacks.pawnAttacks(e4, ChessPieceColor.BLACK));
+        assertEquals(Bitboard.bit(Bitboard.square(2, 2)), Attacks.pawnAttacks(Bitboard.square(1, 1), ChessPieceColor.WHITE));
+        assertEquals(Bitboard.EMPTY, Attacks.pawnAttacks(Bitboard.square(8, 3), ChessPieceColor.WHITE));
+        assertEquals(Bitboard.EMPTY, Attacks.pawnAttacks(e4, ChessPieceColor.NONE));
+    }
+
+    /**
+     * The pieces' own move checks agree with the tables everywhere.
+     */
+    @Test
+    public void pieces_agreeWithTables()
+    {
+        for (int from = 0; from < Bitboard.SQUARE_COUNT; from++) {
+            final int row = Bitboard.row(from);
+            final int column = Bitboard.column(from);
+            final Knight knight = new Knight(row, column, ChessPieceColor.WHITE);
+            final King king = new King(row, column, ChessPieceColor.WHITE);
+            final Pawn whitePawn = new Pawn(row, column, ChessPieceColor.WHITE);
+            final Pawn blackPawn = new Pawn(row, column, ChessPieceColor.BLACK);
+            for (int to = 0; to < Bitboard.SQUARE_COUNT; to++) {
+                final int deltaRow = Bitboard.row(to) - row;
+                final int deltaColumn = Math.abs(Bitboard.column(to) - column);
+                final int distanceRow = Math.abs(deltaRow);
+                assertEquals(distanceRow * deltaColumn == 2,
+                             knight.isValidMove(Bitboard.row(to), Bitboard.column(to)));
+                assertEquals(from != to && distanceRow <= 1 && deltaColumn <= 1,
+                             king.isValidMove(Bitboard.row(to), Bitboard.column(to)));
+                assertEquals(deltaRow == 1 && deltaColumn == 1,
+                             whitePawn.canCapture(Bitboard.row(to), Bitboard.column(to)));
+                assertEquals(deltaRow == -1 && deltaColumn == 1,
+                             blackPawn.canCapture(Bitboard.row(to), Bitboard.column(to)));
+            }
+        }
+    }
+
+    /**
+     * The Rook, Bishop and Queen lookups agree with walking each line of
+     * spaces out to the first piece, for every space and many arrangements
+     * of pieces.
+     */
+    @Test
+    public void slidingAttacks_agreeWithRayWalk()
+    {
+        final Random random = new Random(1);
+        for (int square = 0; square < Bitboard.SQUARE_COUNT; square++) {
+            for (int i = 0; i < 200; i++) {
+                // few to many pieces, sometimes on the attacker's own space
+                long occupied = random.nextLong();
+                if (i % 3 == 0)
+                    occupied &= random.nextLong();
+                if (i % 3 == 1)
+                    occupied &= random.nextLong() & random.nextLong();
+                final long rook = rayWalk(square, occupied, new int[][] { {1, 0}, {-1, 0}, {0, 1}, {0, -1} });
+                final long bishop = rayWalk(square, occupied, new int[][] { {1, 1}, {1, -1}, {-1, 1}, {-1, -1} });
+                assertEquals(rook, Attacks.rookAttacks(square, occupied));
+                assertEquals(bishop, Attacks.bishopAttacks(square, occupied));
+                assertEquals(rook | bishop, Attacks.queenAttacks(square, occupied));
+            }
+        }
+    }
+
+    /**
+     * Walk out from a space in each direction, stopping at the first
+     * occupied space or the edge of the board.
+     */
+    private static long rayWalk(int square, long occupied, int[][] directions)
+    {
+        long attacks = Bitboard.EMPTY;
+        for (int[] direction : directions) {
+            int row = Bitboard.row(square) + direction[0];
+            int column = Bitboard.column(square) + direction[1];
+            while (row >= 1 && row <= 8 && column >= 1 && column <= 8) {
+                final int to = Bitboard.square(row, column);
+                attacks |= Bitboard.bit(to);
+                if (Bitboard.contains(occupied, to))
+                    break;
+                row += direction[0];
+                column += direction[1];
+            }
+        }
+        return attacks;
+    }
+}
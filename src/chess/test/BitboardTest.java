@@ -0,0 +1,53 @@
+package chess.test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import chess.Bitboard;
+
+/**
+ * Tests for the {@link chess.Bitboard} helpers.
+ */
+public class BitboardTest {
+
+    /**
+     * Ensure that rows and columns map to the right space indices.
+     */
+    @Test
+    public void square()
+    {
+        assertEquals(0, Bitboard.square(1, 1));
+        assertEquals(7, Bitboard.square(1, 8));
+        assertEquals(8, Bitboard.square(2, 1));
+        assertEquals(63, Bitboard.square(8, 8));
+    }
+
+    /**
+     * Ensure that space indices map back to the right rows and columns.
+     */
+    @Test
+    public void rowAndColumn()
+    {
+        int square = Bitboard.square(5, 3);
+        assertEquals(5, Bitboard.row(square));
+        assertEquals(3, Bitboard.column(square));
+    }
+
+    /**
+     * Iterating a bitboard visits every set space from lowest to highest.
+     */
+    @Test
+    public void popLowestVisitsEverySpace()
+    {
+        long bitboard = Bitboard.bit(3) | Bitboard.bit(20) | Bitboard.bit(63);
+        assertEquals(3, Bitboard.count(bitboard));
+        assertEquals(3, Bitboard.lowestSquare(bitboard));
+        bitboard = Bitboard.popLowest(bitboard);
+        assertEquals(20, Bitboard.lowestSquare(bitboard));
+        bitboard = Bitboard.popLowest(bitboard);
+        assertEquals(63, Bitboard.lowestSquare(bitboard));
+        assertEquals(Bitboard.EMPTY, Bitboard.popLowest(bitboard));
+    }
+
+}
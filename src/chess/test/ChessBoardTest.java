@@ -12,14 +12,23 @@ import org.junit.Before;
 import org.junit.Test;
 
 import chess.Bishop;
+import chess.Bitboard;
 import chess.ChessBoard;
 import chess.ChessPiece;
+import chess.ChessPieceColor;
+import chess.ChessPieceType;
+import chess.GameStatus;
 import chess.King;
 import chess.Knight;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.MoveList;
 import chess.OffTheChessBoardException;
 import chess.Pawn;
+import chess.Perft;
 import chess.Queen;
 import chess.Rook;
+import chess.TranspositionTable;
 
 /**
  * Tests for the {@link ChessBoard} class.
@@ -148,6 +157,71 @@ public class ChessBoardTest {
         assertFalse(board.getPiece(c, 3) instanceof Knight);
     }
 
+    @Test
+    public void copyConstructor_CopiesMovedFlags()
+    {
+        board.move(b, 1, a, 3);
+        board.move(a, 3, b, 1);
+        ChessBoard copyBoard = new ChessBoard(board);
+        assertFalse(copyBoard.getPiece(b, 1).inStartingPosition());
+        assertTrue(copyBoard.getPiece(g, 1).inStartingPosition());
+        assertEquals(board.getPiece(b, 1), copyBoard.getPiece(b, 1));
+    }
+
+    /**
+     * Taking back a move made before the copy mustn't move the copy's pieces.
+     */
+    @Test
+    public void copyConstructor_UnmakeInOriginalDoesntAffectCopy()
+    {
+        board.move(e, 2, e, 4);
+        board.move(d, 7, d, 5);
+        board.move(e, 4, d, 5);
+        final String fen = board.toFen();
+        ChessBoard copyBoard = new ChessBoard(board);
+        board.unmakeMove();
+        board.unmakeMove();
+        board.unmakeMove();
+        assertEquals(fen, copyBoard.toFen());
+        assertEquals(5, copyBoard.getPiece(d, 5).getRow());
+        assertEquals(2, board.getPiece(e, 2).getRow());
+    }
+
+    /**
+     * Taking back moves made after a copy has to bring back the en passant
+     * state, and later copies have to keep it.
+     */
+    @Test
+    public void copyConstructor_KeepsEnPassantRestoredByUnmake()
+    {
+        ChessBoard original = ChessBoard.fromFen("4k3/8/8/8/3p4/8/4P3/4K3 w - - 0 1");
+        original.move(e, 2, e, 4);
+        new ChessBoard(original);
+        original.move(e, 8, f, 8);
+        original.move(e, 4, e, 5);
+        original.unmakeMove();
+        original.unmakeMove();
+        ChessBoard copyBoard = new ChessBoard(original);
+        assertEquals(original.getZobristKey(), copyBoard.getZobristKey());
+        assertEquals(Bitboard.square(3, 5), copyBoard.getEnPassantSquare());
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegalMoves(copyBoard, BLACK, moves);
+        assertEquals(7, moves.size());
+        assertTrue(moves.contains(Move.create(Bitboard.square(4, 4), Bitboard.square(3, 5), Move.EN_PASSANT)));
+    }
+
+    @Test
+    public void copyConstructor_CopiesCanBothPlayOn()
+    {
+        Perft.Position position = Perft.REFERENCE_POSITIONS[1];
+        ChessBoard original = ChessBoard.fromFen(position.fen);
+        ChessBoard copyBoard = new ChessBoard(original);
+        assertEquals(position.nodeCount(3), new Perft(copyBoard).perft(3));
+        assertEquals(position.nodeCount(3), new Perft(original).perft(3));
+        assertEquals(position.fen, copyBoard.toFen());
+        assertEquals(position.fen, original.toFen());
+    }
+
     @Test
     public void copyConstructor_WhenGivenNullCreateEmptyBoard()
     {
@@ -228,6 +302,15 @@ public class ChessBoardTest {
         board.getPiece(c, 9);
     }
 
+    @Test
+    public void getPiece_MovingTheReturnedPieceDoesntChangeTheBoard()
+    {
+        ChessPiece knight = board.getPiece(b, 1);
+        knight.move(a, 3);
+        assertTrue(board.isEmptySpace(a, 3));
+        assertTrue(board.getPiece(b, 1).inStartingPosition());
+    }
+
     @Test
     public void addPiece_WithLegalPiece()
     {
@@ -281,6 +364,46 @@ public class ChessBoardTest {
         assertFalse(board.isEmptySpace(2, 1));
     }
 
+    @Test
+    public void getBitboard_StartingPawns()
+    {
+        assertEquals(0x000000000000FF00L, board.getBitboard(ChessPieceType.PAWN, WHITE));
+        assertEquals(0x00FF000000000000L, board.getBitboard(ChessPieceType.PAWN, BLACK));
+    }
+
+    @Test
+    public void getOccupied_FollowsMovedPieces()
+    {
+        assertEquals(0x000000000000FFFFL, board.getOccupied(WHITE));
+        board.move(g, 1, f, 3);
+        // g1 is empty, f3 is occupied
+        assertEquals(0x0000000000000000L, board.getOccupied(WHITE) & (1L << 6));
+        assertEquals(1L << 21, board.getOccupied(WHITE) & (1L << 21));
+        assertEquals(board.getOccupied(WHITE) | board.getOccupied(BLACK), board.getOccupied());
+    }
+
+    @Test
+    public void pieceCount_FollowsCaptures()
+    {
+        assertEquals(16, board.pieceCount(WHITE));
+        assertEquals(16, board.pieceCount(BLACK));
+        board.move(e, 2, e, 4);
+        board.move(d, 7, d, 5);
+        board.move(e, 4, d, 5);
+        assertEquals(16, board.pieceCount(WHITE));
+        assertEquals(15, board.pieceCount(BLACK));
+        board.unmakeMove();
+        assertEquals(16, board.pieceCount(BLACK));
+        assertEquals(0, emptyBoard.pieceCount(WHITE));
+    }
+
+    @Test
+    public void addPiece_ReplacedPieceIsRemovedFromBitboards()
+    {
+        board.addPiece(new Queen(h, 1, WHITE));
+        assertEquals(1L << 0, board.getBitboard(ChessPieceType.ROOK, WHITE));
+    }
+
     @Test
     public void isValidMove_EmptySpacesCantMakeMoves()
     {
@@ -461,6 +584,51 @@ public class ChessBoardTest {
         assertFalse(emptyBoard.isValidMove(a, 3, a, 6));
     }
 
+    /**
+     * A pawn back on its starting space after moving is in the same place as
+     * an unmoved pawn but can't move two spaces.
+     */
+    @Test
+    public void isValidMove_TranspositionTableTellsMovedPawnsApart()
+    {
+        TranspositionTable table = new TranspositionTable(1);
+        ChessBoard unmoved = ChessBoard.fromFen("4k3/8/8/8/8/8/4P3/4K3 w - - 0 1");
+        unmoved.setTranspositionTable(table);
+        assertTrue(unmoved.isValidMove(e, 2, e, 4));
+        ChessBoard moved = ChessBoard.fromFen("4k3/8/8/8/8/8/8/4K3 w - - 0 1");
+        moved.setTranspositionTable(table);
+        Pawn pawn = new Pawn(e, 3, WHITE);
+        pawn.move(e, 2);
+        moved.addPiece(pawn);
+        assertEquals(unmoved.getZobristKey(), moved.getZobristKey());
+        assertFalse(moved.isValidMove(e, 2, e, 4));
+        assertTrue(unmoved.isValidMove(e, 2, e, 4));
+    }
+
+    /**
+     * Answers cached in a transposition table match the computed ones, both
+     * when first asked and when asked again.
+     */
+    @Test
+    public void isValidMove_TranspositionTableGivesSameAnswers()
+    {
+        ChessBoard plain = ChessBoard.fromFen(Perft.REFERENCE_POSITIONS[1].fen);
+        ChessBoard cached = new ChessBoard(plain);
+        cached.setTranspositionTable(new TranspositionTable(1));
+        for (int pass = 0; pass < 2; pass++) {
+            for (int from = 0; from < Bitboard.SQUARE_COUNT; from++) {
+                for (int to = 0; to < Bitboard.SQUARE_COUNT; to++) {
+                    int row = Bitboard.row(from), column = Bitboard.column(from);
+                    int newRow = Bitboard.row(to), newColumn = Bitboard.column(to);
+                    assertEquals(Move.toString(Move.create(from, to)),
+                                 plain.isValidMove(row, column, newRow, newColumn),
+                                 cached.isValidMove(row, column, newRow, newColumn));
+                }
+            }
+        }
+        assertEquals(plain.gameStatus(WHITE), cached.gameStatus(WHITE));
+    }
+
     @Test
     public void move_MovingNullPieceDoesNothing()
     {
@@ -755,6 +923,71 @@ public class ChessBoardTest {
         assertFalse(board.getPiece(d, 6) instanceof Pawn); // white pawn hasn't moved
     }
 
+    @Test
+    public void unmakeMove_RestoresCapturedPiece()
+    {
+        ChessPiece whiteRook = kingsAndRooksBoard.getPiece(a, 1);
+        ChessPiece blackRook = kingsAndRooksBoard.getPiece(a, 8);
+        kingsAndRooksBoard.move(a, 1, a, 8);
+        kingsAndRooksBoard.unmakeMove();
+        assertEquals(whiteRook, kingsAndRooksBoard.getPiece(a, 1));
+        assertEquals(blackRook, kingsAndRooksBoard.getPiece(a, 8));
+        assertEquals(1, whiteRook.getRow());
+    }
+
+    @Test
+    public void unmakeMove_RestoresMovedFlags()
+    {
+        kingsAndRooksBoard.move(h, 1, h, 4);
+        assertFalse(kingsAndRooksBoard.canCastle(e, 1, g, 1));
+        kingsAndRooksBoard.unmakeMove();
+        assertTrue(kingsAndRooksBoard.canCastle(e, 1, g, 1));
+    }
+
+    @Test
+    public void unmakeMove_TakesBackCastle()
+    {
+        kingsAndRooksBoard.castle(e, 1, g, 1);
+        kingsAndRooksBoard.unmakeMove();
+        assertTrue(kingsAndRooksBoard.getPiece(e, 1) instanceof King);
+        assertTrue(kingsAndRooksBoard.getPiece(h, 1) instanceof Rook);
+        assertTrue(kingsAndRooksBoard.isEmptySpace(f, 1));
+        assertTrue(kingsAndRooksBoard.isEmptySpace(g, 1));
+        assertTrue(kingsAndRooksBoard.canCastle(e, 1, g, 1));
+    }
+
+    @Test
+    public void unmakeMove_TakesBackEnPassant()
+    {
+        board.addPiece(new Pawn(e, 5, WHITE));
+        board.move(d, 7, d, 5);
+        board.enPassant(e, 5, d, 6);
+        board.unmakeMove();
+        assertTrue(board.getPiece(d, 5) instanceof Pawn);
+        assertTrue(board.getPiece(e, 5) instanceof Pawn);
+        assertTrue(board.isEmptySpace(d, 6));
+        // still allowed since the en passant state is restored too
+        assertTrue(board.canEnPassant(e, 5, d, 6));
+    }
+
+    @Test
+    public void unmakeMove_TakesBackPromotion()
+    {
+        Pawn pawn = new Pawn(b, 7, WHITE);
+        emptyBoard.addPiece(pawn);
+        emptyBoard.makeMove(Move.create(Bitboard.square(7, 2), Bitboard.square(8, 2), Move.PROMOTE_QUEEN));
+        assertTrue(emptyBoard.getPiece(b, 8) instanceof Queen);
+        emptyBoard.unmakeMove();
+        assertEquals(pawn, emptyBoard.getPiece(b, 7));
+        assertTrue(emptyBoard.isEmptySpace(b, 8));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void unmakeMove_NothingToTakeBack_Throws()
+    {
+        board.unmakeMove();
+    }
+
     @Test
     public void canPromotePawn_whitePawnOnBlackSide()
     {
@@ -795,6 +1028,36 @@ public class ChessBoardTest {
         assertFalse(emptyBoard.hasKing(BLACK));
     }
 
+    @Test
+    public void kingSquare_followsTheKing()
+    {
+        assertEquals(Bitboard.square(1, 5), board.kingSquare(WHITE));
+        assertEquals(Bitboard.square(8, 5), board.kingSquare(BLACK));
+        assertEquals(ChessBoard.NO_SQUARE, emptyBoard.kingSquare(WHITE));
+        assertEquals(ChessBoard.NO_SQUARE, board.kingSquare(ChessPieceColor.NONE));
+
+        board.move(e, 2, e, 4);
+        board.move(e, 1, e, 2);
+        assertEquals(Bitboard.square(2, 5), board.kingSquare(WHITE));
+        board.unmakeMove();
+        assertEquals(Bitboard.square(1, 5), board.kingSquare(WHITE));
+    }
+
+    @Test
+    public void kingSquare_afterCastlingAndCapture()
+    {
+        emptyBoard.addPiece(new King(e, 1, WHITE));
+        emptyBoard.addPiece(new Rook(h, 1, WHITE));
+        emptyBoard.addPiece(new King(e, 8, BLACK));
+        emptyBoard.castle(1, 5, 1, 7);
+        assertEquals(Bitboard.square(1, 7), emptyBoard.kingSquare(WHITE));
+
+        // replacing the king with another piece leaves no king
+        emptyBoard.addPiece(new Queen(e, 8, WHITE));
+        assertEquals(ChessBoard.NO_SQUARE, emptyBoard.kingSquare(BLACK));
+        assertFalse(emptyBoard.hasKing(BLACK));
+    }
+
     /**
      * Confirm that the board can recognize when a player is in or out of check.
      */
@@ -828,6 +1091,30 @@ public class ChessBoardTest {
         assertFalse(board.inCheck(BLACK));
     }
 
+    @Test
+    public void getAttackedSquares_StartingPosition()
+    {
+        long rank3 = 0x0000000000FF0000L;
+        long rank4 = 0x00000000FF000000L;
+        assertEquals(rank3, board.getAttackedSquares(WHITE) & rank3);
+        assertEquals(0, board.getAttackedSquares(WHITE) & rank4);
+    }
+
+    @Test
+    public void getAttackedSquares_FollowsOpenedLines()
+    {
+        int a5 = Bitboard.square(5, 1);
+        kingsAndRooksBoard.addPiece(new Pawn(a, 4, BLACK));
+        assertFalse(kingsAndRooksBoard.isSquareAttacked(a5, WHITE));
+        // capturing the blocker opens the a-file for the rook
+        kingsAndRooksBoard.move(a, 8, a, 4);
+        assertFalse(kingsAndRooksBoard.isSquareAttacked(a5, WHITE));
+        kingsAndRooksBoard.unmakeMove();
+        kingsAndRooksBoard.move(a, 4, b, 4);
+        assertTrue(kingsAndRooksBoard.isSquareAttacked(a5, WHITE));
+        assertTrue(kingsAndRooksBoard.isSquareAttacked(Bitboard.square(7, 1), WHITE));
+    }
+
     @Test
     public void inCheck_NoKingOnTheBoard()
     {
@@ -901,4 +1188,196 @@ public class ChessBoardTest {
         emptyBoard.addPiece(new King(f, 5, WHITE));
         assertFalse(emptyBoard.stalemate(BLACK));
     }
+
+    @Test
+    public void gameStatus_inProgress()
+    {
+        assertEquals(GameStatus.IN_PROGRESS, board.gameStatus(WHITE));
+        assertEquals(GameStatus.IN_PROGRESS, board.gameStatus(BLACK));
+    }
+
+    @Test
+    public void gameStatus_check()
+    {
+        emptyBoard.addPiece(new King(e, 1, WHITE));
+        emptyBoard.addPiece(new Rook(e, 8, BLACK));
+        assertEquals(GameStatus.CHECK, emptyBoard.gameStatus(WHITE));
+    }
+
+    @Test
+    public void gameStatus_checkmateAndStalemate()
+    {
+        emptyBoard.addPiece(new King(h, 5, BLACK));
+        emptyBoard.addPiece(new Rook(h, 1, WHITE));
+        emptyBoard.addPiece(new King(f, 5, WHITE));
+        assertEquals(GameStatus.CHECKMATE, emptyBoard.gameStatus(BLACK));
+        assertTrue(emptyBoard.gameStatus(BLACK).isGameOver());
+
+        ChessBoard stalemateBoard = new ChessBoard(null);
+        stalemateBoard.addPiece(new King(h, 8, BLACK));
+        stalemateBoard.addPiece(new Queen(g, 6, WHITE));
+        stalemateBoard.addPiece(new King(f, 7, WHITE));
+        assertEquals(GameStatus.STALEMATE, stalemateBoard.gameStatus(BLACK));
+        assertTrue(stalemateBoard.gameStatus(BLACK).isGameOver());
+    }
+
+    /**
+     * The cached status has to be thrown away once the board changes.
+     */
+    @Test
+    public void gameStatus_updatesAfterMove()
+    {
+        board.move(f, 2, f, 3);
+        board.move(e, 7, e, 5);
+        board.move(g, 2, g, 4);
+        assertEquals(GameStatus.IN_PROGRESS, board.gameStatus(WHITE));
+        board.move(d, 8, h, 4);
+        assertEquals(GameStatus.CHECKMATE, board.gameStatus(WHITE));
+        board.unmakeMove();
+        assertEquals(GameStatus.IN_PROGRESS, board.gameStatus(WHITE));
+    }
+
+    @Test
+    public void toFen_startingPosition()
+    {
+        assertEquals("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", board.toFen());
+    }
+
+    /**
+     * Every reference position reads back in to the same string.
+     */
+    @Test
+    public void fromFen_roundTrips()
+    {
+        for (Perft.Position position : Perft.REFERENCE_POSITIONS)
+            assertEquals(position.fen, ChessBoard.fromFen(position.fen).toFen());
+    }
+
+    @Test
+    public void fromFen_mapsStateOntoTheBoard()
+    {
+        ChessBoard fenBoard = ChessBoard.fromFen("r3k2r/8/8/3pP3/8/8/8/R3K2R w Kq d6 3 20");
+        assertEquals(WHITE, fenBoard.getSideToMove());
+        assertEquals(ChessBoard.WHITE_KINGSIDE | ChessBoard.BLACK_QUEENSIDE, fenBoard.getCastlingRights());
+        assertTrue(fenBoard.canCastle(e, 1, g, 1));
+        assertFalse(fenBoard.canCastle(e, 1, c, 1));
+        assertTrue(fenBoard.canEnPassant(e, 5, d, 6));
+        assertEquals(3, fenBoard.getHalfmoveClock());
+        assertEquals(20, fenBoard.getFullmoveNumber());
+    }
+
+    /**
+     * Missing trailing fields take their defaults.
+     */
+    @Test
+    public void fromFen_defaults()
+    {
+        ChessBoard fenBoard = ChessBoard.fromFen("4k3/8/8/8/8/8/8/4K2R");
+        assertEquals("4k3/8/8/8/8/8/8/4K2R w - - 0 1", fenBoard.toFen());
+    }
+
+    @Test
+    public void toFen_followsMoves()
+    {
+        board.move(e, 2, e, 4);
+        assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1", board.toFen());
+        board.move(g, 8, f, 6);
+        board.move(e, 1, e, 2);
+        assertEquals("rnbqkb1r/pppppppp/5n2/8/4P3/8/PPPPKPPP/RNBQ1BNR b kq - 2 2", board.toFen());
+        board.unmakeMove();
+        board.unmakeMove();
+        board.unmakeMove();
+        assertEquals("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", board.toFen());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fromFen_rejectsShortRow()
+    {
+        ChessBoard.fromFen("rnbqkbnr/ppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fromFen_rejectsUnknownPiece()
+    {
+        ChessBoard.fromFen("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNX w KQkq - 0 1");
+    }
+
+    /**
+     * Play the knights out and back, the shortest way to repeat a position.
+     */
+    private static void shuffleKnights(ChessBoard chessBoard)
+    {
+        chessBoard.move(g, 1, f, 3);
+        chessBoard.move(g, 8, f, 6);
+        chessBoard.move(f, 3, g, 1);
+        chessBoard.move(f, 6, g, 8);
+    }
+
+    @Test
+    public void repetition_countsRepeatedPositions()
+    {
+        board.setRepetitionTracking(true);
+        assertEquals(1, board.getRepetitionCount());
+        shuffleKnights(board);
+        assertEquals(2, board.getRepetitionCount());
+        assertFalse(board.isThreefoldRepetition());
+        shuffleKnights(board);
+        assertEquals(3, board.getRepetitionCount());
+        assertTrue(board.isThreefoldRepetition());
+        board.unmakeMove();
+        assertFalse(board.isThreefoldRepetition());
+        board.move(f, 6, g, 8);
+        assertTrue(board.isThreefoldRepetition());
+    }
+
+    @Test
+    public void repetition_notCountedUntilTracked()
+    {
+        shuffleKnights(board);
+        assertEquals(1, board.getRepetitionCount());
+        board.setRepetitionTracking(true);
+        shuffleKnights(board);
+        assertEquals(2, board.getRepetitionCount());
+    }
+
+    /**
+     * Kings that move away and come back have lost their castling rights, so
+     * the position isn't the same.
+     */
+    @Test
+    public void repetition_needsSameCastlingRights()
+    {
+        ChessBoard fenBoard = ChessBoard.fromFen("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        fenBoard.setRepetitionTracking(true);
+        fenBoard.move(e, 1, e, 2);
+        fenBoard.move(e, 8, e, 7);
+        fenBoard.move(e, 2, e, 1);
+        fenBoard.move(e, 7, e, 8);
+        assertEquals(1, fenBoard.getRepetitionCount());
+        fenBoard.move(e, 1, e, 2);
+        fenBoard.move(e, 8, e, 7);
+        fenBoard.move(e, 2, e, 1);
+        fenBoard.move(e, 7, e, 8);
+        assertEquals(2, fenBoard.getRepetitionCount());
+    }
+
+    @Test
+    public void fiftyMoveRule_afterHundredHalfmoves()
+    {
+        ChessBoard fenBoard = ChessBoard.fromFen("4k3/8/8/8/8/8/8/4K2R w - - 99 80");
+        assertFalse(fenBoard.isFiftyMoveRule());
+        fenBoard.move(h, 1, h, 2);
+        assertTrue(fenBoard.isFiftyMoveRule());
+        assertFalse(fenBoard.isSeventyFiveMoveRule());
+        fenBoard.unmakeMove();
+        assertFalse(fenBoard.isFiftyMoveRule());
+    }
+
+    @Test
+    public void seventyFiveMoveRule_afterHundredFiftyHalfmoves()
+    {
+        ChessBoard fenBoard = ChessBoard.fromFen("4k3/8/8/8/8/8/8/4K2R b - - 149 80");
+        fenBoard.move(e, 8, d, 8);
+        assertTrue(fenBoard.isSeventyFiveMoveRule());
+    }
 }
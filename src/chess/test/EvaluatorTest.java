@@ -0,0 +1,103 @@
+package chess.test;
+
+import static org.junit.Assert.*;
+import static chess.ChessPieceColor.WHITE;
+import static chess.ChessPieceColor.BLACK;
+
+import org.junit.Test;
+
+import chess.ChessBoard;
+import chess.ChessPieceColor;
+import chess.ChessPieceType;
+import chess.Evaluator;
+import chess.MoveGenerator;
+import chess.MoveList;
+import chess.Perft;
+
+/**
+ * Tests for the piece-square table {@link Evaluator}.
+ */
+public class EvaluatorTest {
+
+    /**
+     * Check the board's running score against one added up from scratch,
+     * for every position reachable within a depth.
+     */
+    private static void checkIncrementalScore(ChessBoard board, ChessPieceColor color, int depth)
+    {
+        assertEquals(Evaluator.evaluateFromScratch(board, WHITE), Evaluator.evaluate(board, WHITE));
+        if (depth == 0)
+            return;
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegalMoves(board, color, moves);
+        for (int i = 0; i < moves.size(); i++) {
+            board.makeMove(moves.get(i));
+            checkIncrementalScore(board, color.otherColor(), depth - 1);
+            board.unmakeMove();
+        }
+    }
+
+    @Test
+    public void startingPositionIsEven()
+    {
+        ChessBoard board = new ChessBoard();
+        assertEquals(0, Evaluator.evaluate(board, WHITE));
+        assertEquals(0, Evaluator.evaluate(board, BLACK));
+    }
+
+    @Test
+    public void playersScoresAreOpposite()
+    {
+        ChessBoard board = ChessBoard.fromFen(Perft.REFERENCE_POSITIONS[1].fen);
+        assertEquals(-Evaluator.evaluate(board, WHITE), Evaluator.evaluate(board, BLACK));
+    }
+
+    @Test
+    public void extraMaterialIsAnAdvantage()
+    {
+        ChessBoard board = ChessBoard.fromFen("4k3/8/8/8/8/8/8/R3K3 w - - 0 1");
+        assertTrue(Evaluator.evaluate(board, WHITE) > Evaluator.pieceValue(ChessPieceType.PAWN));
+        assertTrue(Evaluator.evaluate(board, BLACK) < 0);
+    }
+
+    @Test
+    public void knightsBelongInTheCenter()
+    {
+        ChessBoard center = ChessBoard.fromFen("4k3/8/8/8/3N4/8/8/4K3 w - - 0 1");
+        ChessBoard rim = ChessBoard.fromFen("4k3/8/8/8/N7/8/8/4K3 w - - 0 1");
+        assertTrue(Evaluator.evaluate(center, WHITE) > Evaluator.evaluate(rim, WHITE));
+    }
+
+    /**
+     * With only kings and pawns left the King should head for the center.
+     */
+    @Test
+    public void kingCentralizesInTheEndgame()
+    {
+        ChessBoard center = ChessBoard.fromFen("4k3/8/8/8/4K3/8/8/8 w - - 0 1");
+        ChessBoard corner = ChessBoard.fromFen("4k3/8/8/8/8/8/8/K7 w - - 0 1");
+        assertTrue(Evaluator.evaluate(center, WHITE) > Evaluator.evaluate(corner, WHITE));
+    }
+
+    /**
+     * The running score matches the full sum through captures, castling, en
+     * passant and promotions, and after taking them all back.
+     */
+    @Test
+    public void incrementalScoreMatchesFullSum()
+    {
+        for (int i = 0; i < 4; i++) {
+            ChessBoard board = ChessBoard.fromFen(Perft.REFERENCE_POSITIONS[i].fen);
+            final int before = Evaluator.evaluate(board, WHITE);
+            checkIncrementalScore(board, board.getSideToMove(), 2);
+            assertEquals(before, Evaluator.evaluate(board, WHITE));
+        }
+    }
+
+    @Test
+    public void copiedBoardKeepsTheScore()
+    {
+        ChessBoard board = ChessBoard.fromFen(Perft.REFERENCE_POSITIONS[1].fen);
+        assertEquals(Evaluator.evaluate(board, WHITE), Evaluator.evaluate(new ChessBoard(board), WHITE));
+    }
+}
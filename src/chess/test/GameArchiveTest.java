@@ -0,0 +1,116 @@
+package chess.test;
+
+import static org.junit.Assert.*;
+import static chess.test.TestGames.OPERA_GAME;
+import static chess.test.TestGames.record;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+import chess.ChessPieceColor;
+import chess.GameStatus;
+import chess.notation.GameArchive;
+import chess.notation.GameArchiveWriter;
+import chess.notation.GameRecord;
+
+/**
+ * Tests for the binary {@link GameArchive} and {@link GameArchiveWriter}.
+ */
+public class GameArchiveTest {
+
+    /**
+     * A position to start a game from.
+     */
+    private static final String START_FEN = "4k3/8/8/8/8/8/8/R3K3 b Q - 0 30";
+
+    @Test
+    public void readsGamesInAnyOrder() throws IOException
+    {
+        Path dataFile = Files.createTempFile("games", ".dat");
+        Path indexFile = Files.createTempFile("games", ".idx");
+        try {
+            GameRecord opera = record(null, OPERA_GAME);
+            opera.setResult(GameRecord.WHITE_WINS);
+            GameRecord fromPosition = record(START_FEN, "Kd7", "O-O-O+");
+            try (GameArchiveWriter writer = new GameArchiveWriter(dataFile, indexFile)) {
+                for (int i = 0; i < 1000; i++)
+                    writer.write((i % 2 == 0) ? opera : fromPosition);
+                writer.write(null, new int[0], GameRecord.DRAW);
+                assertEquals(1001, writer.getGameCount());
+            }
+
+            GameArchive archive = GameArchive.open(dataFile, indexFile);
+            assertEquals(1001, archive.size());
+
+            assertEquals(GameRecord.DRAW, archive.getResult(1000));
+            assertEquals(0, archive.getMoveCount(1000));
+
+            assertEquals(START_FEN, archive.getStartFen(777));
+            assertEquals(GameRecord.UNFINISHED, archive.getResult(777));
+            int[] moves = archive.getMoves(777);
+            assertEquals(2, moves.length);
+            assertEquals(fromPosition.getMove(1), moves[1]);
+            assertEquals("8/3k4/8/8/8/8/8/2KR4 b - - 2 31", archive.replay(777).toFen());
+
+            assertNull(archive.getStartFen(0));
+            assertEquals(GameRecord.WHITE_WINS, archive.getResult(0));
+            assertEquals(OPERA_GAME.length, archive.getMoveCount(0));
+            moves = archive.getMoves(0);
+            for (int i = 0; i < moves.length; i++)
+                assertEquals(opera.getMove(i), moves[i]);
+            assertEquals(GameStatus.CHECKMATE, archive.replay(998).gameStatus(ChessPieceColor.BLACK));
+        } finally {
+            Files.deleteIfExists(dataFile);
+            Files.deleteIfExists(indexFile);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws IOException
+    {
+        Path file = Files.createTempFile("games", ".dat");
+        try {
+            Files.write(file, "[Event \"?\"]\n".getBytes("UTF-8"));
+            GameArchive.open(file, file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsMissingGame() throws IOException
+    {
+        Path dataFile = Files.createTempFile("games", ".dat");
+        Path indexFile = Files.createTempFile("games", ".idx");
+        try {
+            new GameArchiveWriter(dataFile, indexFile).close();
+            GameArchive.open(dataFile, indexFile).getMoves(0);
+        } finally {
+            Files.deleteIfExists(dataFile);
+            Files.deleteIfExists(indexFile);
+        }
+    }
+
+    /**
+     * A starting position longer than any real FEN is refused up front
+     * rather than overflowing the writer's buffer.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOverlongStartPosition() throws IOException
+    {
+        Path dataFile = Files.createTempFile("games", ".dat");
+        Path indexFile = Files.createTempFile("games", ".idx");
+        try (GameArchiveWriter writer = new GameArchiveWriter(dataFile, indexFile)) {
+            StringBuilder fen = new StringBuilder(START_FEN);
+            while (fen.length() < 65535)
+                fen.append(' ');
+            writer.write(fen.toString(), new int[0], GameRecord.DRAW);
+        } finally {
+            Files.deleteIfExists(dataFile);
+            Files.deleteIfExists(indexFile);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package chess.test;
+
+import static org.junit.Assert.*;
+import static chess.File.*;
+import static chess.ChessPieceColor.WHITE;
+import static chess.ChessPieceColor.BLACK;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import chess.Bishop;
+import chess.Bitboard;
+import chess.ChessBoard;
+import chess.File;
+import chess.King;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.MoveList;
+import chess.Pawn;
+import chess.Queen;
+import chess.Rook;
+
+/**
+ * Tests for the {@link MoveGenerator} class.
+ */
+public class MoveGeneratorTest {
+
+    /**
+     * List the generated moves are added to.
+     */
+    private MoveList moves;
+
+    /**
+     * Create a new move list before every test.
+     */
+    @Before
+    public void runBeforeTests()
+    {
+        moves = new MoveList();
+    }
+
+    @Test
+    public void generateLegalMoves_StartingPositionHasTwentyMoves()
+    {
+        MoveGenerator.generateLegalMoves(new ChessBoard(), WHITE, moves);
+        assertEquals(20, moves.size());
+        moves.clear();
+        MoveGenerator.generateLegalMoves(new ChessBoard(), BLACK, moves);
+        assertEquals(20, moves.size());
+    }
+
+    @Test
+    public void generateLegalMoves_PawnDoubleStepIsFlagged()
+    {
+        ChessBoard board = new ChessBoard();
+        MoveGenerator.generateLegalMoves(board, square(e, 2), moves);
+        assertEquals(2, moves.size());
+        assertTrue(moves.contains(Move.create(square(e, 2), square(e, 3))));
+        assertTrue(moves.contains(Move.create(square(e, 2), square(e, 4), Move.DOUBLE_PAWN_PUSH)));
+    }
+
+    @Test
+    public void generateLegalMoves_IncludesCastling()
+    {
+        ChessBoard board = new ChessBoard(null);
+        board.addPiece(new King(e, 1, WHITE));
+        board.addPiece(new Rook(a, 1, WHITE));
+        board.addPiece(new Rook(h, 1, WHITE));
+        board.addPiece(new King(e, 8, BLACK));
+        MoveGenerator.generateLegalMoves(board, square(e, 1), moves);
+        assertTrue(moves.contains(Move.create(square(e, 1), square(g, 1), Move.CASTLE)));
+        assertTrue(moves.contains(Move.create(square(e, 1), square(c, 1), Move.CASTLE)));
+    }
+
+    @Test
+    public void generateLegalMoves_NoCastlingThroughCheck()
+    {
+        ChessBoard board = new ChessBoard(null);
+        board.addPiece(new King(e, 1, WHITE));
+        board.addPiece(new Rook(h, 1, WHITE));
+        board.addPiece(new King(e, 8, BLACK));
+        board.addPiece(new Rook(f, 8, BLACK));
+        MoveGenerator.generateLegalMoves(board, square(e, 1), moves);
+        assertFalse(moves.contains(Move.create(square(e, 1), square(g, 1), Move.CASTLE)));
+        // the pseudo-legal list still has it
+        moves.clear();
+        MoveGenerator.generatePseudoLegalMoves(board, square(e, 1), moves);
+        assertTrue(moves.contains(Move.create(square(e, 1), square(g, 1), Move.CASTLE)));
+    }
+
+    @Test
+    public void generateLegalMoves_IncludesEnPassant()
+    {
+        ChessBoard board = new ChessBoard();
+        board.addPiece(new Pawn(e, 5, WHITE));
+        board.move(d, 7, d, 5);
+        MoveGenerator.generateLegalMoves(board, square(e, 5), moves);
+        assertTrue(moves.contains(Move.create(square(e, 5), square(d, 6), Move.EN_PASSANT)));
+    }
+
+    @Test
+    public void generateLegalMoves_PromotionsToEveryPiece()
+    {
+        ChessBoard board = new ChessBoard(null);
+        board.addPiece(new King(a, 1, WHITE));
+        board.addPiece(new King(h, 1, BLACK));
+        board.addPiece(new Pawn(c, 7, WHITE));
+        MoveGenerator.generateLegalMoves(board, square(c, 7), moves);
+        assertEquals(4, moves.size());
+        assertTrue(moves.contains(Move.create(square(c, 7), square(c, 8), Move.PROMOTE_QUEEN)));
+        assertTrue(moves.contains(Move.create(square(c, 7), square(c, 8), Move.PROMOTE_KNIGHT)));
+    }
+
+    @Test
+    public void generateLegalMoves_PinnedPieceStaysOnPinLine()
+    {
+        ChessBoard board = new ChessBoard(null);
+        board.addPiece(new King(e, 1, WHITE));
+        board.addPiece(new Rook(e, 3, WHITE));
+        board.addPiece(new Queen(e, 8, BLACK));
+        board.addPiece(new King(a, 8, BLACK));
+        MoveGenerator.generateLegalMoves(board, square(e, 3), moves);
+        // e2, e4, e5, e6, e7 and capturing on e8
+        assertEquals(6, moves.size());
+        assertFalse(moves.contains(Move.create(square(e, 3), square(d, 3))));
+    }
+
+    @Test
+    public void generateLegalMoves_CheckIsBlockedOrCaptured()
+    {
+        ChessBoard board = new ChessBoard(null);
+        board.addPiece(new King(e, 1, WHITE));
+        board.addPiece(new Rook(a, 2, WHITE));
+        board.addPiece(new Bishop(b, 5, WHITE));
+        board.addPiece(new Rook(e, 8, BLACK));
+        board.addPiece(new King(a, 8, BLACK));
+        MoveGenerator.generateLegalMoves(board, WHITE, moves);
+        // the King steps aside, the Rook or Bishop blocks on e2 or the
+        // Bishop captures
+        assertEquals(7, moves.size());
+        assertTrue(moves.contains(Move.create(square(b, 5), square(e, 2))));
+        assertTrue(moves.contains(Move.create(square(a, 2), square(e, 2))));
+        assertTrue(moves.contains(Move.create(square(b, 5), square(e, 8))));
+        assertFalse(moves.contains(Move.create(square(a, 2), square(a, 3))));
+    }
+
+    @Test
+    public void generateLegalMoves_OnlyKingMovesInDoubleCheck()
+    {
+        ChessBoard board = new ChessBoard(null);
+        board.addPiece(new King(e, 1, WHITE));
+        board.addPiece(new Rook(b, 1, WHITE));
+        board.addPiece(new Rook(e, 8, BLACK));
+        board.addPiece(new Bishop(b, 4, BLACK));
+        board.addPiece(new King(h, 8, BLACK));
+        MoveGenerator.generateLegalMoves(board, WHITE, moves);
+        // d1, f1 and f2; capturing the Bishop leaves the Rook's check
+        assertEquals(3, moves.size());
+        assertFalse(moves.contains(Move.create(square(b, 1), square(b, 4))));
+    }
+
+    @Test
+    public void generateLegalMoves_KingCannotRetreatAlongCheck()
+    {
+        ChessBoard board = new ChessBoard(null);
+        board.addPiece(new King(d, 1, WHITE));
+        board.addPiece(new Rook(a, 1, BLACK));
+        board.addPiece(new King(h, 8, BLACK));
+        MoveGenerator.generateLegalMoves(board, WHITE, moves);
+        // c2, d2 and e2; e1 is still on the Rook's line once the King leaves d1
+        assertEquals(3, moves.size());
+        assertFalse(moves.contains(Move.create(square(d, 1), square(e, 1))));
+    }
+
+    @Test
+    public void hasLegalMove_FalseInCheckmate()
+    {
+        ChessBoard board = new ChessBoard(null);
+        board.addPiece(new King(h, 5, BLACK));
+        board.addPiece(new Rook(h, 1, WHITE));
+        board.addPiece(new King(f, 5, WHITE));
+        assertFalse(MoveGenerator.hasLegalMove(board, BLACK, moves));
+        assertTrue(MoveGenerator.hasLegalMove(board, WHITE, moves));
+    }
+
+    /**
+     * Get the space index of a location in algebraic chess notation.
+     */
+    private static int square(File file, int rank)
+    {
+        return Bitboard.square(rank, file.getColumn());
+    }
+}
@@ -0,0 +1,51 @@
+package chess.test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import chess.Bitboard;
+import chess.ChessPieceType;
+import chess.Move;
+
+/**
+ * Tests for the {@link chess.Move} helpers.
+ */
+public class MoveTest {
+
+    /**
+     * Ensure that the parts of a move survive encoding.
+     */
+    @Test
+    public void createAndDecode()
+    {
+        int move = Move.create(Bitboard.square(7, 5), Bitboard.square(8, 6), Move.PROMOTE_ROOK);
+        assertEquals(Bitboard.square(7, 5), Move.from(move));
+        assertEquals(Bitboard.square(8, 6), Move.to(move));
+        assertEquals(Move.PROMOTE_ROOK, Move.flag(move));
+        assertTrue(Move.isPromotion(move));
+        assertEquals(ChessPieceType.ROOK, Move.promotionType(move));
+    }
+
+    /**
+     * Moves fit in 16 bits so they can be stored compactly.
+     */
+    @Test
+    public void movesFitInSixteenBits()
+    {
+        int move = Move.create(63, 63, Move.PROMOTE_QUEEN);
+        assertEquals(move, move & 0xFFFF);
+    }
+
+    /**
+     * Ensure that moves are written in coordinate notation.
+     */
+    @Test
+    public void toStringUsesCoordinateNotation()
+    {
+        assertEquals("e2e4", Move.toString(Move.create(Bitboard.square(2, 5), Bitboard.square(4, 5))));
+        assertEquals("a7a8n", Move.toString(Move.create(Bitboard.square(7, 1), Bitboard.square(8, 1),
+                                                        Move.PROMOTE_KNIGHT)));
+    }
+
+}
@@ -0,0 +1,82 @@
+package chess.test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import chess.ChessBoard;
+import chess.Move;
+import chess.Perft;
+import chess.TranspositionTable;
+import chess.engine.ParallelSearch;
+import chess.engine.Search;
+import chess.engine.SearchHandle;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+
+/**
+ * Tests for the multi-threaded {@link ParallelSearch}.
+ */
+public class ParallelSearchTest {
+
+    @Test
+    public void findsMateWithSeveralThreads()
+    {
+        ParallelSearch search = new ParallelSearch(new TranspositionTable(4), 4);
+        ChessBoard board = ChessBoard.fromFen("7k/8/8/8/8/8/R7/1R4K1 w - - 0 1");
+        long key = board.getZobristKey();
+        SearchResult result = search.search(board, SearchLimits.depth(5));
+        search.shutdown();
+        assertEquals(Search.MATE - 3, result.score);
+        assertEquals(key, board.getZobristKey());
+    }
+
+    /**
+     * Every thread reports its own work, and the total adds them up.
+     */
+    @Test
+    public void reportsEachThread()
+    {
+        ParallelSearch search = new ParallelSearch(null, 3);
+        assertEquals(3, search.getThreadCount());
+        SearchResult result = search.search(ChessBoard.fromFen(Perft.REFERENCE_POSITIONS[1].fen),
+                                            SearchLimits.depth(4));
+        search.shutdown();
+        SearchResult[] threads = search.getThreadResults();
+        assertEquals(3, threads.length);
+        long total = 0;
+        for (SearchResult thread : threads)
+            total += thread.nodes;
+        assertEquals(total, result.nodes);
+        assertTrue(threads[0].nodes > 0);
+        assertTrue(result.depth >= 4);
+        assertTrue(result.bestMove != Move.NONE);
+    }
+
+    @Test
+    public void singleThreadNeedsNoHelpers()
+    {
+        ParallelSearch search = new ParallelSearch(null, 1);
+        SearchResult result = search.search(new ChessBoard(), SearchLimits.depth(3));
+        search.shutdown();
+        assertEquals(3, result.depth);
+        assertEquals(1, search.getThreadResults().length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void needsAThread()
+    {
+        new ParallelSearch(null, 0);
+    }
+
+    @Test
+    public void cancelStopsEveryThread() throws InterruptedException
+    {
+        ParallelSearch search = new ParallelSearch(null, 2);
+        SearchHandle handle = search.start(new ChessBoard(), SearchLimits.time(60000));
+        handle.cancel();
+        SearchResult result = handle.awaitResult();
+        search.shutdown();
+        assertTrue(result.bestMove != Move.NONE);
+    }
+}
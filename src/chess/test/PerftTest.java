@@ -0,0 +1,57 @@
+package chess.test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import chess.ChessBoard;
+import chess.ChessPieceColor;
+import chess.Perft;
+
+/**
+ * Node-count regression tests for move generation using {@link Perft}.
+ */
+public class PerftTest {
+
+    /**
+     * Largest node count checked, to keep the test suite quick. Deeper counts
+     * can be checked with {@code java chess.Perft suite}.
+     */
+    private static final long MAX_NODES = 100000;
+
+    /**
+     * Every reference position matches its published node counts.
+     */
+    @Test
+    public void referencePositionsMatchPublishedCounts()
+    {
+        for (Perft.Position position : Perft.REFERENCE_POSITIONS) {
+            Perft perft = new Perft(position.fen);
+            for (int depth = 1; depth <= position.maxDepth(); depth++) {
+                if (position.nodeCount(depth) > MAX_NODES)
+                    break;
+                assertEquals(position.name + " depth " + depth,
+                             position.nodeCount(depth), perft.perft(depth));
+            }
+        }
+    }
+
+    /**
+     * Counting moves leaves the board as it was.
+     */
+    @Test
+    public void perftRestoresTheBoard()
+    {
+        ChessBoard board = new ChessBoard();
+        new Perft(board, ChessPieceColor.WHITE).perft(3);
+        assertEquals(0x000000000000FFFFL, board.getOccupied(ChessPieceColor.WHITE));
+        assertEquals(0xFFFF000000000000L, board.getOccupied(ChessPieceColor.BLACK));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void perft_DepthZero_Throws()
+    {
+        new Perft(new ChessBoard(), ChessPieceColor.WHITE).perft(0);
+    }
+
+}
@@ -0,0 +1,174 @@
+package chess.test;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import chess.ChessBoard;
+import chess.ChessPieceColor;
+import chess.GameStatus;
+import chess.Move;
+import chess.notation.PgnReader;
+
+/**
+ * Tests for the streaming {@link PgnReader}.
+ */
+public class PgnReaderTest {
+
+    /**
+     * Morphy's "Opera Game", with comments, a variation and annotations.
+     */
+    private static final String OPERA_GAME =
+        "[Event \"Paris\"]\n" +
+        "[White \"Morphy, Paul\"]\n" +
+        "[Black \"Duke Karl / Count Isouard\"]\n" +
+        "[Result \"1-0\"]\n" +
+        "\n" +
+        "1. e4 e5 2. Nf3 d6 3. d4 Bg4 {a poor move} 4. dxe5 Bxf3 5. Qxf3 dxe5\n" +
+        "6. Bc4 Nf6 7. Qb3 Qe7 8. Nc3 c6 9. Bg5 b5?! (9... Qb4 10. Qxb4) 10. Nxb5 cxb5\n" +
+        "11. Bxb5+ Nbd7 12. O-O-O Rd8 13. Rxd7 $1 Rxd7 14. Rd1 Qe6 15. Bxd7+ Nxd7\n" +
+        "16. Qb8+ Nxb8 17. Rd8# 1-0\n" +
+        "\n";
+
+    /**
+     * A short game from a set up position.
+     */
+    private static final String FEN_GAME =
+        "[SetUp \"1\"]\n" +
+        "[FEN \"4k3/8/8/8/8/8/8/R3K3 w Q - 0 1\"]\n" +
+        "\n" +
+        "1.O-O-O Kf7 2.Rd7+ *\n";
+
+    /**
+     * A game with a move that can't be played.
+     */
+    private static final String BAD_GAME =
+        "[Event \"Broken\"]\n" +
+        "\n" +
+        "1. e4 e5 2. Ke3 Nc6 1/2-1/2\n";
+
+    /**
+     * Collects the games handed to it.
+     */
+    private static final class Collector implements PgnReader.GameHandler {
+        final List<Map<String, String>> tags = new ArrayList<>();
+        final List<ChessBoard> boards = new ArrayList<>();
+        final List<int[]> moves = new ArrayList<>();
+
+        @Override
+        public void gameRead(Map<String, String> gameTags, ChessBoard board, int[] gameMoves)
+        {
+            tags.add(gameTags);
+            boards.add(board);
+            moves.add(gameMoves);
+        }
+    }
+
+    /**
+     * Read every game of a string through a channel.
+     */
+    private static Collector read(ReadableByteChannel channel) throws IOException
+    {
+        Collector collector = new Collector();
+        new PgnReader(channel).readAll(collector);
+        return collector;
+    }
+
+    /**
+     * Make a channel over the UTF-8 bytes of a string.
+     */
+    private static ReadableByteChannel channel(String pgn)
+    {
+        return Channels.newChannel(new ByteArrayInputStream(pgn.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void readsTagsAndReplaysMoves() throws IOException
+    {
+        Collector games = read(channel(OPERA_GAME));
+        assertEquals(1, games.boards.size());
+        assertEquals("Morphy, Paul", games.tags.get(0).get("White"));
+        assertEquals("1-0", games.tags.get(0).get("Result"));
+        assertEquals(33, games.moves.get(0).length);
+        assertEquals("e2e4", Move.toString(games.moves.get(0)[0]));
+        assertEquals(GameStatus.CHECKMATE, games.boards.get(0).gameStatus(ChessPieceColor.BLACK));
+    }
+
+    @Test
+    public void readsSeveralGamesAndSkipsBadOnes() throws IOException
+    {
+        Collector collector = new Collector();
+        PgnReader reader = new PgnReader(channel(OPERA_GAME + BAD_GAME + FEN_GAME));
+        reader.readAll(collector);
+        assertEquals(2, reader.getGamesRead());
+        assertEquals(1, reader.getGamesSkipped());
+        assertEquals("Paris", collector.tags.get(0).get("Event"));
+        assertEquals("8/3R1k2/8/8/8/8/8/2K5 b - - 3 2", collector.boards.get(1).toFen());
+    }
+
+    /**
+     * Games split across reads come out the same as when read at once.
+     */
+    @Test
+    public void readsOneByteAtATime() throws IOException
+    {
+        final ByteBuffer source = ByteBuffer.wrap((OPERA_GAME + FEN_GAME).getBytes(StandardCharsets.UTF_8));
+        Collector games = read(new ReadableByteChannel() {
+            @Override
+            public int read(ByteBuffer destination)
+            {
+                if (!source.hasRemaining())
+                    return -1;
+                destination.put(source.get());
+                return 1;
+            }
+
+            @Override
+            public boolean isOpen()
+            {
+                return true;
+            }
+
+            @Override
+            public void close()
+            {
+            }
+        });
+        assertEquals(2, games.boards.size());
+        assertEquals(33, games.moves.get(0).length);
+        assertEquals(3, games.moves.get(1).length);
+    }
+
+    /**
+     * A comment ending right before the close of a variation mustn't hide
+     * the close and swallow the rest of the input.
+     */
+    @Test
+    public void commentsEndingAVariationCloseIt() throws IOException
+    {
+        Collector games = read(channel("1. e4 (1. d4 {good}) e5 (1... c5 ; sharp\n) 2. Nf3 *\n\n" + FEN_GAME));
+        assertEquals(2, games.boards.size());
+        assertEquals(3, games.moves.get(0).length);
+        assertEquals(3, games.moves.get(1).length);
+    }
+
+    @Test
+    public void tagValuesKeepEscapesAndUnicode() throws IOException
+    {
+        Collector games = read(channel("[Event \"The \\\"Immortal\\\" Game\"]\n[Site \"K\u00f8benhavn\"]\n\n*\n"));
+        assertEquals(1, games.boards.size());
+        assertEquals("The \"Immortal\" Game", games.tags.get(0).get("Event"));
+        assertEquals("K\u00f8benhavn", games.tags.get(0).get("Site"));
+        assertEquals(0, games.moves.get(0).length);
+    }
+}
@@ -0,0 +1,117 @@
+package chess.test;
+
+import static org.junit.Assert.*;
+import static chess.test.TestGames.OPERA_GAME;
+import static chess.test.TestGames.record;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.junit.Test;
+
+import chess.ChessBoard;
+import chess.ChessPieceType;
+import chess.GameStatus;
+import chess.notation.GameRecord;
+import chess.notation.PgnReader;
+import chess.notation.PgnWriter;
+
+/**
+ * Tests for {@link GameRecord} and writing it with {@link PgnWriter}.
+ */
+public class PgnWriterTest {
+
+    /**
+     * Write a game to a string.
+     */
+    private static String write(GameRecord game) throws IOException
+    {
+        StringWriter text = new StringWriter();
+        try (PgnWriter writer = new PgnWriter(text)) {
+            writer.write(game);
+        }
+        return text.toString();
+    }
+
+    @Test
+    public void recordsCapturesPromotionsAndChecks()
+    {
+        GameRecord game = record("4k3/1P6/8/8/8/8/8/4K3 w - - 0 1", "b8=N", "Kf7", "Nc6");
+        assertEquals(3, game.getMoveCount());
+        assertEquals(ChessPieceType.KNIGHT, game.getPromotion(0));
+        assertNull(game.getCapture(0));
+        assertEquals(GameStatus.IN_PROGRESS, game.getStatusAfter(0));
+
+        game = record(null, OPERA_GAME);
+        assertEquals(ChessPieceType.PAWN, game.getCapture(6));
+        assertEquals(ChessPieceType.KNIGHT, game.getCapture(7));
+        assertEquals(GameStatus.CHECK, game.getStatusAfter(20));
+        assertEquals(GameStatus.CHECKMATE, game.getStatusAfter(32));
+        assertEquals("Rd8#", game.getSan(32));
+        game.removeLastMove();
+        assertEquals(32, game.getMoveCount());
+    }
+
+    @Test
+    public void writesExportFormat() throws IOException
+    {
+        GameRecord game = record(null, OPERA_GAME);
+        game.setTag("White", "Morphy, Paul");
+        game.setTag("Annotator", "Quote \"me\"");
+        game.setResult(GameRecord.WHITE_WINS);
+        String pgn = write(game);
+        assertTrue(pgn.startsWith("[Event \"?\"]\n[Site \"?\"]\n[Date \"????.??.??\"]\n[Round \"?\"]\n" +
+                                  "[White \"Morphy, Paul\"]\n[Black \"?\"]\n[Result \"1-0\"]\n" +
+                                  "[Annotator \"Quote \\\"me\\\"\"]\n\n1. e4 e5 2. Nf3 d6"));
+        assertTrue(pgn.endsWith("17. Rd8# 1-0\n\n"));
+        for (String line : pgn.split("\n"))
+            assertTrue(line.length() < 80);
+    }
+
+    @Test
+    public void blackMovingFirstStartsWithEllipsis() throws IOException
+    {
+        GameRecord game = record("4k3/8/8/8/8/8/8/R3K3 b Q - 0 30", "Kd7", "O-O-O+");
+        String pgn = write(game);
+        assertTrue(pgn.contains("[SetUp \"1\"]\n[FEN \"4k3/8/8/8/8/8/8/R3K3 b Q - 0 30\"]\n"));
+        assertTrue(pgn.endsWith("\n30... Kd7 31. O-O-O+ *\n\n"));
+    }
+
+    /**
+     * Games written out read back in as the same moves.
+     */
+    @Test
+    public void readsBackTheSameGame() throws IOException
+    {
+        final GameRecord game = record(null, OPERA_GAME);
+        String pgn = write(game) + write(record("4k3/8/8/8/8/8/8/R3K3 b Q - 0 30", "Kd7", "O-O-O+"));
+        final int[] gamesRead = new int[1];
+        new PgnReader(Channels.newChannel(new java.io.ByteArrayInputStream(
+                pgn.getBytes(StandardCharsets.UTF_8)))).readAll(new PgnReader.GameHandler() {
+            @Override
+            public void gameRead(Map<String, String> tags, ChessBoard board, int[] moves)
+            {
+                if (gamesRead[0]++ == 0) {
+                    assertEquals(game.getMoveCount(), moves.length);
+                    for (int i = 0; i < moves.length; i++)
+                        assertEquals(game.getMove(i), moves[i]);
+                } else {
+                    assertEquals("4k3/8/8/8/8/8/8/R3K3 b Q - 0 30", tags.get("FEN"));
+                    assertEquals(2, moves.length);
+                }
+            }
+        });
+        assertEquals(2, gamesRead[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownResult()
+    {
+        new GameRecord().setResult("2-0");
+    }
+}
@@ -0,0 +1,126 @@
+package chess.test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import chess.ChessBoard;
+import chess.Move;
+import chess.MoveList;
+import chess.notation.San;
+
+/**
+ * Tests for reading Standard Algebraic Notation with {@link San}.
+ */
+public class SanTest {
+
+    /**
+     * Scratch list for parsing.
+     */
+    private final MoveList scratch = new MoveList();
+
+    /**
+     * Parse a move and write it in coordinate notation, or "none".
+     */
+    private String parse(ChessBoard board, String san)
+    {
+        final int move = San.parse(board, san, scratch);
+        return (move == Move.NONE) ? "none" : Move.toString(move);
+    }
+
+    @Test
+    public void pawnAndPieceMoves()
+    {
+        ChessBoard board = new ChessBoard();
+        assertEquals("e2e4", parse(board, "e4"));
+        assertEquals("g1f3", parse(board, "Nf3"));
+        board.makeMove(San.parse(board, "e4", scratch));
+        assertEquals("d7d5", parse(board, "d5"));
+        board.makeMove(San.parse(board, "d5", scratch));
+        assertEquals("e4d5", parse(board, "exd5"));
+        assertEquals("f1b5", parse(board, "Bb5+"));
+    }
+
+    @Test
+    public void disambiguation()
+    {
+        ChessBoard board = ChessBoard.fromFen("4k3/8/8/8/8/8/8/1N2KN2 w - - 0 1");
+        assertEquals("none", parse(board, "Nd2"));
+        assertEquals("b1d2", parse(board, "Nbd2"));
+        assertEquals("f1d2", parse(board, "Nf1d2"));
+    }
+
+    @Test
+    public void pawnCapturesNeedTheirColumn()
+    {
+        ChessBoard board = ChessBoard.fromFen("4k3/8/8/1p6/P7/8/8/4K3 w - - 0 1");
+        assertEquals("none", parse(board, "b5"));
+        assertEquals("none", parse(board, "xb5"));
+        assertEquals("a4b5", parse(board, "axb5"));
+        assertEquals("a4a5", parse(board, "a5"));
+    }
+
+    @Test
+    public void promotions()
+    {
+        ChessBoard board = ChessBoard.fromFen("8/P6k/8/8/8/8/8/K7 w - - 0 1");
+        assertEquals("a7a8q", parse(board, "a8=Q"));
+        assertEquals("a7a8n", parse(board, "a8N"));
+        assertEquals("none", parse(board, "a8"));
+    }
+
+    @Test
+    public void castling()
+    {
+        ChessBoard board = ChessBoard.fromFen("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        assertEquals("e1g1", parse(board, "O-O"));
+        assertEquals("e1c1", parse(board, "0-0-0"));
+        assertEquals("e1f1", parse(board, "Kf1"));
+    }
+
+    @Test
+    public void enPassant()
+    {
+        ChessBoard board = ChessBoard.fromFen("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1");
+        int move = San.parse(board, "exd6", scratch);
+        assertEquals(Move.EN_PASSANT, Move.flag(move));
+    }
+
+    @Test
+    public void illegalOrGarbageGivesNone()
+    {
+        ChessBoard board = new ChessBoard();
+        assertEquals("none", parse(board, "Ke2"));
+        assertEquals("none", parse(board, "e5"));
+        assertEquals("none", parse(board, "xyz"));
+        assertEquals("none", parse(board, "+"));
+        assertEquals("none", parse(board, "O-O"));
+    }
+
+    @Test
+    public void formatsMoves()
+    {
+        ChessBoard board = ChessBoard.fromFen("r3k2r/1P6/8/3pP3/8/8/8/RN2K2R w KQkq d6 0 1");
+        assertEquals("exd6", San.format(board, San.parse(board, "exd6", scratch), scratch));
+        assertEquals("O-O", San.format(board, San.parse(board, "O-O", scratch), scratch));
+        assertEquals("bxa8=Q+", San.format(board, San.parse(board, "bxa8=Q", scratch), scratch));
+        assertEquals("Nd2", San.format(board, San.parse(board, "Nbd2", scratch), scratch));
+        assertEquals("Rxa8+", San.format(board, San.parse(board, "Rxa8", scratch), scratch));
+    }
+
+    @Test
+    public void formatsDisambiguation()
+    {
+        ChessBoard board = ChessBoard.fromFen("4k3/8/8/8/8/5N2/8/1N2KN2 w - - 0 1");
+        assertEquals("Nbd2", San.format(board, San.parse(board, "Nbd2", scratch), scratch));
+        assertEquals("Nf1d2", San.format(board, San.parse(board, "Nf1d2", scratch), scratch));
+        assertEquals("N3d2", San.format(board, San.parse(board, "Nf3d2", scratch), scratch));
+    }
+
+    @Test
+    public void formatsMate()
+    {
+        ChessBoard board = ChessBoard.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        assertEquals("Ra8#", San.format(board, San.parse(board, "Ra8", scratch), scratch));
+    }
+}
@@ -0,0 +1,158 @@
+package chess.test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import chess.ChessBoard;
+import chess.ChessPieceColor;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.MoveList;
+import chess.Perft;
+import chess.engine.Search;
+import chess.engine.SearchHandle;
+import chess.engine.SearchLimits;
+import chess.engine.SearchListener;
+import chess.engine.SearchResult;
+
+/**
+ * Tests for the alpha-beta {@link Search}.
+ */
+public class SearchTest {
+
+    /**
+     * Search a position given in Forsyth-Edwards Notation to a fixed depth.
+     */
+    private static SearchResult search(String fen, int depth)
+    {
+        return new Search(null).search(ChessBoard.fromFen(fen), SearchLimits.depth(depth));
+    }
+
+    @Test
+    public void findsMateInOne()
+    {
+        // back rank mate with the rook
+        SearchResult result = search("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1", 3);
+        assertEquals("a1a8", Move.toString(result.bestMove));
+        assertEquals(Search.MATE - 1, result.score);
+        assertTrue(result.isMateScore());
+    }
+
+    @Test
+    public void findsMateInTwo()
+    {
+        // two rooks roll the king up the board
+        SearchResult result = search("7k/8/8/8/8/8/R7/1R4K1 w - - 0 1", 5);
+        assertEquals(Search.MATE - 3, result.score);
+        assertEquals(3, result.getPrincipalVariation().length);
+    }
+
+    @Test
+    public void winsHangingQueen()
+    {
+        SearchResult result = search("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1", 2);
+        assertEquals("d2d5", Move.toString(result.bestMove));
+        assertTrue(result.score > 400);
+    }
+
+    /**
+     * Taking the queen lets black mate on the back rank with captures, which
+     * only quiescence search sees at this depth. A player in check there
+     * mustn't stand pat.
+     */
+    @Test
+    public void quiescenceSeesMateByCaptures()
+    {
+        SearchResult result = search("3r2k1/4qppp/8/8/8/8/4QPPP/3R2K1 w - - 0 1", 1);
+        assertFalse("e2e7".equals(Move.toString(result.bestMove)));
+    }
+
+    @Test
+    public void noMoveWhenCheckmated()
+    {
+        SearchResult result = search("R5k1/5ppp/8/8/8/8/8/6K1 b - - 0 1", 3);
+        assertEquals(Move.NONE, result.bestMove);
+        assertEquals(-Search.MATE, result.score);
+    }
+
+    @Test
+    public void stalemateScoresZero()
+    {
+        SearchResult result = search("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1", 3);
+        assertEquals(Move.NONE, result.bestMove);
+        assertEquals(0, result.score);
+    }
+
+    /**
+     * The board is back where it started after searching.
+     */
+    @Test
+    public void searchRestoresTheBoard()
+    {
+        ChessBoard board = ChessBoard.fromFen(Perft.REFERENCE_POSITIONS[1].fen);
+        long key = board.getZobristKey();
+        SearchResult result = new Search(null).search(board, SearchLimits.depth(3));
+        assertEquals(key, board.getZobristKey());
+        assertTrue(result.bestMove != Move.NONE);
+        assertEquals(3, result.depth);
+        assertEquals(result.bestMove, result.getPrincipalVariation()[0]);
+    }
+
+    /**
+     * A search that runs out of nodes still gives a legal move.
+     */
+    @Test
+    public void nodeLimitStillGivesAMove()
+    {
+        ChessBoard board = new ChessBoard();
+        SearchLimits oneNode = new SearchLimits(Search.MAX_DEPTH, SearchLimits.UNLIMITED, 1);
+        SearchResult result = new Search(null).search(board, oneNode);
+        MoveList legalMoves = new MoveList();
+        MoveGenerator.generateLegalMoves(board, ChessPieceColor.WHITE, legalMoves);
+        assertTrue(legalMoves.contains(result.bestMove));
+    }
+
+    /**
+     * A cancelled search finishes promptly with a move.
+     */
+    @Test
+    public void cancelledSearchReturnsAMove() throws InterruptedException
+    {
+        ChessBoard board = ChessBoard.fromFen(Perft.REFERENCE_POSITIONS[1].fen);
+        SearchHandle handle = new Search(null).start(board, SearchLimits.time(60000));
+        handle.cancel();
+        SearchResult result = handle.awaitResult();
+        assertTrue(handle.isDone());
+        assertTrue(result.bestMove != Move.NONE);
+    }
+
+    /**
+     * The listener hears about every iteration in order, and the last one
+     * matches the result.
+     */
+    @Test
+    public void listenerHearsEveryIteration()
+    {
+        final List<SearchResult> iterations = new ArrayList<>();
+        Search search = new Search(null);
+        search.setListener(new SearchListener() {
+            @Override
+            public void iterationCompleted(SearchResult progress)
+            {
+                iterations.add(progress);
+            }
+        });
+        SearchResult result = search.search(new ChessBoard(), SearchLimits.depth(4));
+        assertEquals(4, iterations.size());
+        for (int i = 0; i < iterations.size(); i++) {
+            assertEquals(i + 1, iterations.get(i).depth);
+            assertTrue(iterations.get(i).bestMove != Move.NONE);
+        }
+        assertEquals(result.bestMove, iterations.get(3).bestMove);
+        assertEquals(result.score, iterations.get(3).score);
+    }
+}
@@ -0,0 +1,48 @@
+package chess.test;
+
+import chess.ChessBoard;
+import chess.MoveList;
+import chess.notation.GameRecord;
+import chess.notation.San;
+
+/**
+ * Games shared by the tests that write and store {@link GameRecord}s.
+ */
+final class TestGames {
+
+    /**
+     * The moves of Morphy's "Opera Game".
+     */
+    static final String[] OPERA_GAME = {
+        "e4", "e5", "Nf3", "d6", "d4", "Bg4", "dxe5", "Bxf3", "Qxf3", "dxe5",
+        "Bc4", "Nf6", "Qb3", "Qe7", "Nc3", "c6", "Bg5", "b5", "Nxb5", "cxb5",
+        "Bxb5+", "Nbd7", "O-O-O", "Rd8", "Rxd7", "Rxd7", "Rd1", "Qe6", "Bxd7+", "Nxd7",
+        "Qb8+", "Nxb8", "Rd8#"
+    };
+
+    /**
+     * This class only holds static helpers.
+     */
+    private TestGames()
+    {
+    }
+
+    /**
+     * Record a game's moves, playing them on a board.
+     * @param fen of the starting position, or null for the normal start
+     * @param sanMoves the moves in Standard Algebraic Notation
+     * @return the recorded game
+     */
+    static GameRecord record(String fen, String... sanMoves)
+    {
+        GameRecord game = new GameRecord(fen);
+        ChessBoard board = (fen == null) ? new ChessBoard() : ChessBoard.fromFen(fen);
+        MoveList scratch = new MoveList();
+        for (String san : sanMoves) {
+            int move = San.parse(board, san, scratch);
+            game.addMove(board, move);
+            board.makeMove(move);
+        }
+        return game;
+    }
+}
@@ -0,0 +1,84 @@
+package chess.test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import chess.TranspositionTable;
+import chess.TranspositionTable.ReplacementPolicy;
+
+/**
+ * Tests for {@link TranspositionTable}.
+ */
+public class TranspositionTableTest {
+
+    /**
+     * Two keys that land on the same slot of any table.
+     */
+    private static final long KEY = 0x123456789ABCDEF0L;
+    private static final long CLASHING_KEY = KEY ^ 0x7000000000000000L;
+
+    @Test
+    public void capacityIsAPowerOfTwoWithinBudget()
+    {
+        TranspositionTable table = new TranspositionTable(1);
+        int capacity = table.capacity();
+        assertEquals(0, capacity & (capacity - 1));
+        assertTrue(capacity * 18L <= 1024 * 1024);
+        assertTrue(capacity * 18L * 2 > 1024 * 1024);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void needsSomeMemory()
+    {
+        new TranspositionTable(0);
+    }
+
+    @Test
+    public void probeFindsStoredData()
+    {
+        TranspositionTable table = new TranspositionTable(1);
+        assertEquals(TranspositionTable.NO_ENTRY, table.probe(KEY));
+        assertTrue(table.store(KEY, 42, 0));
+        assertEquals(42, table.probe(KEY));
+        assertEquals(TranspositionTable.NO_ENTRY, table.probe(CLASHING_KEY));
+        table.clear();
+        assertEquals(TranspositionTable.NO_ENTRY, table.probe(KEY));
+    }
+
+    @Test
+    public void zeroKeyIsNeverFound()
+    {
+        TranspositionTable table = new TranspositionTable(1);
+        assertFalse(table.store(0, 1, 0));
+        assertEquals(TranspositionTable.NO_ENTRY, table.probe(0));
+    }
+
+    @Test
+    public void depthPreferredKeepsDeeperEntries()
+    {
+        TranspositionTable table = new TranspositionTable(1, ReplacementPolicy.DEPTH_PREFERRED);
+        table.store(KEY, 1, 5);
+        assertFalse(table.store(CLASHING_KEY, 2, 3));
+        assertEquals(1, table.probe(KEY));
+        // the same key can always be updated
+        assertTrue(table.store(KEY, 3, 0));
+        assertEquals(3, table.probe(KEY));
+        // entries from an earlier search give way
+        table.store(KEY, 4, 5);
+        table.newSearch();
+        assertTrue(table.store(CLASHING_KEY, 5, 3));
+        assertEquals(5, table.probe(CLASHING_KEY));
+        assertEquals(TranspositionTable.NO_ENTRY, table.probe(KEY));
+    }
+
+    @Test
+    public void alwaysReplaceKeepsNewestEntries()
+    {
+        TranspositionTable table = new TranspositionTable(1, ReplacementPolicy.ALWAYS_REPLACE);
+        table.store(KEY, 1, 5);
+        assertTrue(table.store(CLASHING_KEY, 2, 3));
+        assertEquals(2, table.probe(CLASHING_KEY));
+        assertEquals(TranspositionTable.NO_ENTRY, table.probe(KEY));
+    }
+}
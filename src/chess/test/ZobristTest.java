@@ -0,0 +1,113 @@
+package chess.test;
+
+import static org.junit.Assert.*;
+import static chess.ChessPieceColor.WHITE;
+import static chess.ChessPieceColor.BLACK;
+
+import org.junit.Test;
+
+import chess.ChessBoard;
+import chess.King;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.MoveList;
+import chess.Perft;
+import chess.Rook;
+
+/**
+ * Tests for the Zobrist keys {@link ChessBoard} keeps of its position.
+ */
+public class ZobristTest {
+
+    /**
+     * Reaching the same position by different move orders gives the same key.
+     */
+    @Test
+    public void transpositionsHaveTheSameKey()
+    {
+        ChessBoard first = new ChessBoard();
+        first.move(2, 5, 4, 5);   // e2e4
+        first.move(7, 5, 5, 5);   // e7e5
+        first.move(1, 7, 3, 6);   // g1f3
+        first.move(8, 2, 6, 3);   // b8c6
+
+        ChessBoard second = new ChessBoard();
+        second.move(1, 7, 3, 6);  // g1f3
+        second.move(8, 2, 6, 3);  // b8c6
+        second.move(2, 5, 4, 5);  // e2e4
+        second.move(7, 5, 5, 5);  // e7e5
+
+        assertEquals(first.getZobristKey(), second.getZobristKey());
+        assertEquals(first.getZobristKey(), new ChessBoard(first).getZobristKey());
+    }
+
+    @Test
+    public void sideToMoveChangesTheKey()
+    {
+        ChessBoard board = new ChessBoard();
+        long whiteToMove = board.getZobristKey();
+        // knights out and back returns the pieces with black to move
+        board.move(1, 7, 3, 6);
+        board.move(8, 7, 6, 6);
+        board.move(3, 6, 1, 7);
+        assertEquals(BLACK, board.getSideToMove());
+        assertTrue(whiteToMove != board.getZobristKey());
+        board.move(6, 6, 8, 7);
+        assertEquals(WHITE, board.getSideToMove());
+        assertEquals(whiteToMove, board.getZobristKey());
+    }
+
+    @Test
+    public void losingCastlingRightsChangesTheKey()
+    {
+        ChessBoard board = new ChessBoard(null);
+        board.addPiece(new King(1, 5, WHITE));
+        board.addPiece(new Rook(1, 8, WHITE));
+        board.addPiece(new King(8, 5, BLACK));
+        assertEquals(ChessBoard.WHITE_KINGSIDE, board.getCastlingRights());
+        long canCastle = board.getZobristKey();
+
+        board.move(1, 8, 2, 8);
+        board.move(8, 5, 8, 4);
+        board.move(2, 8, 1, 8);
+        board.move(8, 4, 8, 5);
+        // same placement and side to move, but the rook has moved
+        assertEquals(0, board.getCastlingRights());
+        assertTrue(canCastle != board.getZobristKey());
+    }
+
+    /**
+     * The en passant file only counts when a pawn can actually capture.
+     */
+    @Test
+    public void enPassantOnlyCountsWhenCapturable()
+    {
+        ChessBoard noCapture = ChessBoard.fromFen("4k3/8/8/8/8/8/4P3/4K3 w - - 0 1");
+        noCapture.move(2, 5, 4, 5);
+        ChessBoard samePosition = ChessBoard.fromFen("4k3/8/8/8/4P3/8/8/4K3 b - - 0 1");
+        assertEquals(samePosition.getZobristKey(), noCapture.getZobristKey());
+
+        ChessBoard capture = ChessBoard.fromFen("4k3/8/8/8/3p4/8/4P3/4K3 w - - 0 1");
+        capture.move(2, 5, 4, 5);
+        ChessBoard withoutEnPassant = ChessBoard.fromFen("4k3/8/8/8/3pP3/8/8/4K3 b - - 0 1");
+        assertTrue(withoutEnPassant.getZobristKey() != capture.getZobristKey());
+    }
+
+    /**
+     * Every move and take back in a busy position restores the original key.
+     */
+    @Test
+    public void unmakeMoveRestoresTheKey()
+    {
+        ChessBoard board = ChessBoard.fromFen(Perft.REFERENCE_POSITIONS[1].fen);
+        long original = board.getZobristKey();
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegalMoves(board, WHITE, moves);
+        for (int i = 0; i < moves.size(); i++) {
+            board.makeMove(moves.get(i));
+            assertTrue(Move.toString(moves.get(i)), original != board.getZobristKey());
+            board.unmakeMove();
+            assertEquals(Move.toString(moves.get(i)), original, board.getZobristKey());
+        }
+    }
+}